@@ -0,0 +1,31 @@
+package gps.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Punto de entrada de benchmarks.jar: ejecuta JMH con los mismos argumentos,
+ * pero por defecto guarda los resultados en formato JSON (jmh-result.json)
+ * para poder compararlos entre versiones.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>();
+        List<String> given = Arrays.asList(args);
+        if (!given.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!given.contains("-rff")) {
+            arguments.add("-rff");
+            arguments.add("jmh-result.json");
+        }
+        arguments.addAll(given);
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,192 @@
+package gps.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Acceso a las clases de la aplicación, que están en el paquete por defecto.
+ * JMH exige que los benchmarks estén en un paquete con nombre, y desde un paquete
+ * con nombre no se pueden importar clases del paquete por defecto, así que se
+ * usan MethodHandles. Al ser constantes (static final) el JIT los compila como
+ * llamadas directas, sin el costo de la reflexión.
+ */
+final class Gps {
+    private static final MethodHandle NEW_ASTAR;
+    private static final MethodHandle SET_SEARCH_MODE;
+    private static final MethodHandle SEARCH_MODE_VALUE_OF;
+    private static final MethodHandle FIND_PATH;
+    private static final MethodHandle FIND_PATH_WITH_STOPS;
+    private static final MethodHandle ROUTE_COST;
+    private static final MethodHandle PARSE_GRAPH;
+    private static final MethodHandle PARSE_MAP_FILE;
+    private static final MethodHandle NUM_CITIES;
+    private static final MethodHandle NUM_EDGES;
+    private static final MethodHandle NEW_BUILDER;
+    private static final MethodHandle ADD_EDGE;
+    private static final MethodHandle SET_COORDINATES;
+    private static final MethodHandle BUILD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> graph = Class.forName("Graph");
+            Class<?> builder = Class.forName("Graph$Builder");
+            Class<?> aStar = Class.forName("AStar");
+            Class<?> route = Class.forName("Route");
+            Class<?> searchMode = Class.forName("SearchMode");
+            Class<?> mapParser = Class.forName("MapParser");
+
+            NEW_ASTAR = lookup.findConstructor(aStar, MethodType.methodType(void.class, graph))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            SET_SEARCH_MODE = lookup.findVirtual(aStar, "setSearchMode", MethodType.methodType(void.class, searchMode))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            SEARCH_MODE_VALUE_OF = lookup.findStatic(searchMode, "valueOf", MethodType.methodType(searchMode, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            FIND_PATH = lookup.findVirtual(aStar, "findPath", MethodType.methodType(route, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, int.class, int.class));
+            FIND_PATH_WITH_STOPS = lookup.findVirtual(aStar, "findPath", MethodType.methodType(route, int.class, int.class, int[].class))
+                    .asType(MethodType.methodType(Object.class, Object.class, int.class, int.class, int[].class));
+            ROUTE_COST = lookup.findVirtual(route, "getCost", MethodType.methodType(double.class))
+                    .asType(MethodType.methodType(double.class, Object.class));
+            PARSE_GRAPH = lookup.findStatic(mapParser, "parseGraph", MethodType.methodType(graph, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            PARSE_MAP_FILE = lookup.findStatic(mapParser, "parseMapFile", MethodType.methodType(Object[].class, String.class));
+            NUM_CITIES = lookup.findVirtual(graph, "getNumCities", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            NUM_EDGES = lookup.findVirtual(graph, "getNumEdges", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            NEW_BUILDER = lookup.findConstructor(builder, MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class));
+            ADD_EDGE = lookup.findVirtual(builder, "addEdge", MethodType.methodType(void.class, int.class, int.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, int.class, double.class));
+            SET_COORDINATES = lookup.findVirtual(builder, "setCoordinates", MethodType.methodType(void.class, int.class, double.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, double.class, double.class));
+            BUILD = lookup.findVirtual(builder, "build", MethodType.methodType(graph, List.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, List.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Gps() {
+    }
+
+    static Object newAStar(Object graph) {
+        try {
+            return NEW_ASTAR.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * @param searchMode Nombre del valor de SearchMode (ASTAR, BIDIRECTIONAL, ...)
+     */
+    static void setSearchMode(Object aStar, String searchMode) {
+        try {
+            SET_SEARCH_MODE.invokeExact(aStar, (Object) SEARCH_MODE_VALUE_OF.invokeExact(searchMode));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object findPath(Object aStar, int start, int goal) {
+        try {
+            return FIND_PATH.invokeExact(aStar, start, goal);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object findPath(Object aStar, int start, int goal, int[] stops) {
+        try {
+            return FIND_PATH_WITH_STOPS.invokeExact(aStar, start, goal, stops);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static double routeCost(Object route) {
+        try {
+            return (double) ROUTE_COST.invokeExact(route);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object parseGraph(String filename) {
+        try {
+            return PARSE_GRAPH.invokeExact(filename);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object[] parseMapFile(String filename) {
+        try {
+            return (Object[]) PARSE_MAP_FILE.invokeExact(filename);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int numCities(Object graph) {
+        try {
+            return (int) NUM_CITIES.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int numEdges(Object graph) {
+        try {
+            return (int) NUM_EDGES.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newBuilder(int expectedCities) {
+        try {
+            return NEW_BUILDER.invokeExact(expectedCities);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addEdge(Object builder, int from, int to, double distance) {
+        try {
+            ADD_EDGE.invokeExact(builder, from, to, distance);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setCoordinates(Object builder, int city, double latitude, double longitude) {
+        try {
+            SET_COORDINATES.invokeExact(builder, city, latitude, longitude);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object build(Object builder, List<String> cityNames) {
+        try {
+            return BUILD.invokeExact(builder, cityNames);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,134 @@
+package gps.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mapas usados por los benchmarks: Espanya.txt y mapas sintéticos.
+ *
+ * Un parámetro "Espanya" carga el archivo de ejemplo del repositorio (se busca
+ * en el directorio actual y en sus padres, o en la propiedad gps.espanya).
+ * Un parámetro numérico genera una cuadrícula con ese número de ciudades,
+ * coordenadas reales (unos 1,1 km entre ciudades vecinas) y distancias por
+ * carretera entre un 0 % y un 30 % más largas que la línea recta.
+ */
+final class Maps {
+    static final String ESPANYA = "Espanya";
+
+    private static final double SPACING_DEGREES = 0.01;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private Maps() {
+    }
+
+    /**
+     * Cargar o generar un mapa
+     *
+     * @param map "Espanya" o el número de ciudades del mapa sintético
+     * @return El grafo (instancia de Graph)
+     */
+    static Object load(String map) {
+        if (map.equals(ESPANYA)) {
+            return Gps.parseGraph(espanyaPath());
+        }
+        return grid(Integer.parseInt(map), 42);
+    }
+
+    /**
+     * @return Ruta del archivo Espanya.txt
+     */
+    static String espanyaPath() {
+        String configured = System.getProperty("gps.espanya");
+        if (configured != null) {
+            return configured;
+        }
+        File dir = new File("").getAbsoluteFile();
+        while (dir != null) {
+            File candidate = new File(dir, "Espanya.txt");
+            if (candidate.isFile()) {
+                return candidate.getPath();
+            }
+            dir = dir.getParentFile();
+        }
+        throw new IllegalStateException("No se encuentra Espanya.txt; indíquelo con -Dgps.espanya=<ruta>");
+    }
+
+    /**
+     * Generar una cuadrícula no dirigida de numCities ciudades
+     *
+     * @param numCities Número de ciudades
+     * @param seed Semilla de las distancias aleatorias
+     * @return El grafo (instancia de Graph)
+     */
+    static Object grid(int numCities, long seed) {
+        int side = (int) Math.ceil(Math.sqrt(numCities));
+        Random random = new Random(seed);
+        Object builder = Gps.newBuilder(numCities);
+        List<String> names = new ArrayList<>(numCities);
+        for (int city = 0; city < numCities; city++) {
+            names.add("Ciudad" + city);
+            Gps.setCoordinates(builder, city, latitude(city, side), longitude(city, side));
+        }
+        for (int city = 0; city < numCities; city++) {
+            int right = city % side + 1 < side ? city + 1 : -1;
+            int down = city + side;
+            for (int neighbor : new int[] { right, down }) {
+                if (neighbor >= 0 && neighbor < numCities) {
+                    double straight = greatCircle(latitude(city, side), longitude(city, side),
+                            latitude(neighbor, side), longitude(neighbor, side));
+                    double road = Math.round(straight * (1 + 0.3 * random.nextDouble()) * 1000) / 1000.0;
+                    Gps.addEdge(builder, city, neighbor, road);
+                    Gps.addEdge(builder, neighbor, city, road);
+                }
+            }
+        }
+        return Gps.build(builder, names);
+    }
+
+    private static double latitude(int city, int side) {
+        return 36.0 + (city / side) * SPACING_DEGREES;
+    }
+
+    private static double longitude(int city, int side) {
+        return -9.0 + (city % side) * SPACING_DEGREES;
+    }
+
+    private static double greatCircle(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Escribir un archivo de cartografía en formato de matriz completa con
+     * distancias aleatorias, para medir la lectura de archivos
+     *
+     * @param numCities Número de ciudades (el archivo tiene numCities² distancias)
+     * @param file Archivo de destino
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    static void writeMatrix(int numCities, Path file) throws IOException {
+        Random random = new Random(numCities);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(Integer.toString(numCities));
+            out.newLine();
+            for (int i = 0; i < numCities; i++) {
+                out.write("Ciudad" + i);
+                for (int j = 0; j < numCities; j++) {
+                    out.write(';');
+                    out.write(i == j ? "0.0" : (1 + random.nextInt(1000)) + ".0");
+                }
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package gps.benchmarks;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Memoria por ciudad: la del grafo ya construido y la que añade el buscador
+ * (heurística y espacio de trabajo) tras su primera búsqueda. Se mide como la
+ * diferencia del heap ocupado después de forzar recolecciones de basura, así
+ * que es una aproximación; el tiempo de este benchmark no es significativo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class MemoryBenchmark {
+
+    @Param({ Maps.ESPANYA, "1000", "10000", "100000", "1000000" })
+    public String map;
+
+    /**
+     * Bytes por ciudad, informados junto al tiempo de cada iteración
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memory {
+        public double graphBytesPerCity;
+        public double searchBytesPerCity;
+        public double edgesPerCity;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            graphBytesPerCity = 0;
+            searchBytesPerCity = 0;
+            edgesPerCity = 0;
+        }
+    }
+
+    @Benchmark
+    public Object memoryPerCity(Memory memory) {
+        long before = usedHeap();
+        Object graph = Maps.load(map);
+        long afterGraph = usedHeap();
+        Object aStar = Gps.newAStar(graph);
+        int numCities = Gps.numCities(graph);
+        Gps.findPath(aStar, 0, numCities - 1); // Reserva el espacio de trabajo
+        long afterSearch = usedHeap();
+        Reference.reachabilityFence(graph);
+        Reference.reachabilityFence(aStar);
+
+        memory.graphBytesPerCity = (afterGraph - before) / (double) numCities;
+        memory.searchBytesPerCity = (afterSearch - afterGraph) / (double) numCities;
+        memory.edgesPerCity = Gps.numEdges(graph) / (double) numCities;
+        return aStar;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repetir hasta que el heap deje de bajar: una sola llamada a gc() no garantiza una recolección completa
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
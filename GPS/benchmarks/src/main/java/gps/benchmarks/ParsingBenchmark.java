@@ -0,0 +1,90 @@
+package gps.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lectura de archivos de cartografía en formato de matriz, con el lector
+ * disperso (parseGraph) y con el lector denso original (parseMapFile).
+ * Además de los archivos por segundo se informa de los bytes leídos por segundo.
+ * El formato de matriz ocupa N² distancias, por eso los mapas sintéticos de
+ * este benchmark son más pequeños que los de las consultas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({ Maps.ESPANYA, "1000", "2000" })
+    public String map;
+
+    private Path file;
+    private long fileSize;
+    private boolean temporary;
+
+    /**
+     * Bytes leídos, que JMH informa como bytes por segundo
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (map.equals(Maps.ESPANYA)) {
+            file = Paths.get(Maps.espanyaPath());
+        } else {
+            file = Files.createTempFile("gps-bench-", ".txt");
+            temporary = true;
+            Maps.writeMatrix(Integer.parseInt(map), file);
+        }
+        fileSize = Files.size(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (temporary) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public Object parseGraph(Bytes counter) {
+        counter.bytes += fileSize;
+        return Gps.parseGraph(file.toString());
+    }
+
+    @Benchmark
+    public Object parseMapFile(Bytes counter) {
+        counter.bytes += fileSize;
+        return Gps.parseMapFile(file.toString());
+    }
+}
@@ -0,0 +1,78 @@
+package gps.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Consultas punto a punto, con y sin ciudad obligatoria, sobre un conjunto fijo
+ * de pares aleatorios de ciudades (el mismo para todos los motores).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    // Potencia de dos para recorrer las consultas con una máscara
+    private static final int NUM_QUERIES = 1024;
+
+    @Param({ Maps.ESPANYA, "1000", "10000", "100000", "1000000" })
+    public String map;
+
+    @Param({ "ASTAR", "BIDIRECTIONAL" })
+    public String engine;
+
+    private Object aStar;
+    private final int[] starts = new int[NUM_QUERIES];
+    private final int[] goals = new int[NUM_QUERIES];
+    private final int[][] stops = new int[NUM_QUERIES][];
+
+    /**
+     * Posición de la siguiente consulta, propia de cada hilo
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object graph = Maps.load(map);
+        aStar = Gps.newAStar(graph);
+        Gps.setSearchMode(aStar, engine);
+
+        int numCities = Gps.numCities(graph);
+        Random random = new Random(7);
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            starts[i] = random.nextInt(numCities);
+            goals[i] = random.nextInt(numCities);
+            stops[i] = new int[] { random.nextInt(numCities) };
+        }
+    }
+
+    @Benchmark
+    public Object pointToPoint(Cursor cursor) {
+        int i = cursor.next++ & (NUM_QUERIES - 1);
+        return Gps.findPath(aStar, starts[i], goals[i]);
+    }
+
+    @Benchmark
+    public Object withMandatoryCity(Cursor cursor) {
+        int i = cursor.next++ & (NUM_QUERIES - 1);
+        return Gps.findPath(aStar, starts[i], goals[i], stops[i]);
+    }
+}
@@ -1,26 +1,54 @@
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Implementación del algoritmo A* para encontrar rutas óptimas entre ciudades.
  */
 public class AStar {
-    private List<String> cityNames;
-    private double[][] distanceMatrix;
-    private boolean debugMode = true; // Activar modo de depuración por defecto
+    private final Graph graph;
+    private final List<String> cityNames;
+    private volatile SearchListener searchListener; // Sin listener por defecto: búsqueda sin trazas
+    // Espacios de trabajo por hilo, para poder compartir una instancia entre varios hilos
+    private final WorkspacePool<SearchWorkspace> workspace;
+    private final WorkspacePool<SearchWorkspace> backwardWorkspace;
+    private final Heuristic geographicHeuristic; // Haversine si hay coordenadas, o cero
+    private Heuristic heuristic;
+    private Landmarks landmarks;
+    private ContractionHierarchy contractionHierarchy;
+    private SearchMode searchMode = SearchMode.ASTAR;
+    private RouteCache routeCache;
+    private SearchMetrics searchMetrics;
+    private final WaypointRouter waypointRouter;
+    private final AlternativeRoutes alternativeRoutes;
+    private volatile DeltaStepping deltaStepping; // Se crea al usarlo por primera vez
     
     /**
      * Constructor para la clase AStar
      * 
+     * @param graph Grafo disperso con las ciudades y sus conexiones
+     */
+    public AStar(Graph graph) {
+        this.graph = graph;
+        this.cityNames = graph.getCityNames();
+        this.geographicHeuristic = graph.hasCoordinates() ? new HaversineHeuristic(graph) : Heuristic.ZERO;
+        this.heuristic = geographicHeuristic;
+        this.workspace = WorkspacePool.forCities(graph.getNumCities());
+        this.backwardWorkspace = WorkspacePool.forCities(graph.getNumCities());
+        this.waypointRouter = new WaypointRouter(graph, workspace);
+        this.alternativeRoutes = new AlternativeRoutes(graph);
+    }
+    
+    /**
+     * Constructor a partir de una matriz de distancias densa
+     * 
      * @param cityNames Lista de nombres de ciudades
      * @param distanceMatrix Matriz de distancias entre ciudades
      */
     public AStar(List<String> cityNames, double[][] distanceMatrix) {
-        this.cityNames = cityNames;
-        this.distanceMatrix = distanceMatrix;
+        this(Graph.fromMatrix(cityNames, distanceMatrix));
     }
     
     /**
@@ -30,42 +58,28 @@ public class AStar {
      * @return El índice de la ciudad, o -1 si no se encuentra
      */
     private int findCityIndex(String cityName) {
-        for (int i = 0; i < cityNames.size(); i++) {
-            if (cityNames.get(i).equalsIgnoreCase(cityName)) {
-                return i;
-            }
-        }
-        return -1;
+        return graph.findCity(cityName);
     }
     
     /**
-     * Calcular la distancia directa entre dos ciudades
+     * Comprobar si una ciudad existe en la cartografía (sin distinguir mayúsculas)
      * 
-     * @param fromIndex Índice de la ciudad de origen
-     * @param toIndex Índice de la ciudad de destino
-     * @return La distancia entre las ciudades, o -1 si no existe un camino directo
+     * @param cityName Nombre de la ciudad
+     * @return true si la ciudad existe
      */
-    private double getDistance(int fromIndex, int toIndex) {
-        return distanceMatrix[fromIndex][toIndex];
+    public boolean hasCity(String cityName) {
+        return graph.findCity(cityName) >= 0;
     }
     
     /**
-     * Encontrar todas las ciudades que están directamente conectadas a la ciudad dada
+     * Calcular la distancia directa entre dos ciudades
      * 
-     * @param cityIndex Índice de la ciudad
-     * @return Lista de índices de ciudades conectadas a la ciudad dada
+     * @param fromIndex Índice de la ciudad de origen
+     * @param toIndex Índice de la ciudad de destino
+     * @return La distancia entre las ciudades, o -1 si no existe un camino directo
      */
-    private List<Integer> getNeighbors(int cityIndex) {
-        List<Integer> neighbors = new ArrayList<>();
-        
-        for (int i = 0; i < cityNames.size(); i++) {
-            double distance = distanceMatrix[cityIndex][i];
-            if (distance > 0) { // Ciudad está conectada (no -1 y no 0)
-                neighbors.add(i);
-            }
-        }
-        
-        return neighbors;
+    private double getDistance(int fromIndex, int toIndex) {
+        return graph.getDistance(fromIndex, toIndex);
     }
     
     /**
@@ -76,7 +90,7 @@ public class AStar {
      * @return Un objeto City que contiene la ruta y el costo, o null si no existe una ruta
      */
     public City findRoute(String startCity, String goalCity) {
-        return findRoute(startCity, goalCity, null);
+        return findRoute(startCity, goalCity, (String) null);
     }
     
     /**
@@ -88,231 +102,734 @@ public class AStar {
      * @return Un objeto City que contiene la ruta y el costo, o null si no existe una ruta
      */
     public City findRoute(String startCity, String goalCity, String mandatoryCity) {
-        // Manejar caso con ciudad obligatoria encontrando dos rutas
-        if (mandatoryCity != null && !mandatoryCity.isEmpty() && 
-            !mandatoryCity.equalsIgnoreCase(startCity) && 
-            !mandatoryCity.equalsIgnoreCase(goalCity)) {
-            
-            if (debugMode) {
-                System.out.println("\n=== EXPLICACIÓN DEL ALGORITMO A* ===");
-                System.out.println("Buscando ruta con ciudad intermedia obligatoria: " + mandatoryCity);
-                System.out.println("El algoritmo A* dividirá la búsqueda en dos partes:");
-                System.out.println("1. De " + startCity + " a " + mandatoryCity);
-                System.out.println("2. De " + mandatoryCity + " a " + goalCity);
-            }
-            
-            // Encontrar ruta desde inicio hasta ciudad obligatoria
-            City firstLeg = findRouteDirect(startCity, mandatoryCity);
-            if (firstLeg == null) {
-                if (debugMode) System.out.println("No se encontró una ruta desde " + startCity + " hasta " + mandatoryCity);
-                return null; // No hay camino hacia la ciudad obligatoria
-            }
-            
-            // Encontrar ruta desde ciudad obligatoria hasta destino
-            City secondLeg = findRouteDirect(mandatoryCity, goalCity);
-            if (secondLeg == null) {
-                if (debugMode) System.out.println("No se encontró una ruta desde " + mandatoryCity + " hasta " + goalCity);
-                return null; // No hay camino desde la ciudad obligatoria hasta el destino
-            }
-            
-            // Combinar las rutas
-            double totalCost = firstLeg.getG() + secondLeg.getG();
-            List<String> combinedPath = new ArrayList<>(firstLeg.getPath());
-            // La ciudad obligatoria ya está incluida al final de la ruta de firstLeg,
-            // así que la omitimos de la ruta de secondLeg
-            combinedPath.addAll(secondLeg.getPath().subList(1, secondLeg.getPath().size()));
-            
-            // Crear un nuevo objeto City que represente la ruta completa
-            City completeRoute = new City(goalCity);
-            completeRoute.setG(totalCost);
-            completeRoute.setH(0);
-            
-            // Establecer la ruta combinada
-            City current = completeRoute;
-            for (int i = combinedPath.size() - 2; i >= 0; i--) {
-                City parent = new City(combinedPath.get(i));
-                current.setParent(parent);
-                current = parent;
-            }
-            
-            if (debugMode) {
-                System.out.println("Ruta combinada encontrada con costo total: " + totalCost + " km");
-            }
-            
-            return completeRoute;
-        } else {
-            // No hay ciudad obligatoria, encontrar ruta directa
-            if (debugMode) {
-                System.out.println("\n=== EXPLICACIÓN DEL ALGORITMO A* ===");
-                System.out.println("Buscando ruta directa desde " + startCity + " hasta " + goalCity);
-            }
-            return findRouteDirect(startCity, goalCity);
+        // Resolver los nombres una sola vez con el índice de ciudades
+        int startIndex = findCityIndex(startCity);
+        int goalIndex = findCityIndex(goalCity);
+        boolean hasMandatory = mandatoryCity != null && !mandatoryCity.isEmpty();
+        int mandatoryIndex = hasMandatory ? findCityIndex(mandatoryCity) : -1;
+        
+        if (startIndex == -1 || goalIndex == -1 || (hasMandatory && mandatoryIndex == -1)) {
+            return null; // Ciudad no encontrada
         }
+        
+        // Crear la cadena de objetos City una sola vez para la ruta completa
+        return toCity(findPath(startIndex, goalIndex, hasMandatory ? new int[] { mandatoryIndex } : new int[0]));
     }
     
     /**
-     * La implementación central del algoritmo A* para encontrar una ruta entre dos ciudades
+     * Encontrar la ruta óptima entre dos ciudades pasando por varias ciudades
+     * obligatorias, en el orden de visita que minimiza el costo total
      * 
      * @param startCity Nombre de la ciudad de inicio
      * @param goalCity Nombre de la ciudad de destino
+     * @param mandatoryCities Nombres de las ciudades por las que la ruta debe pasar, en cualquier orden
      * @return Un objeto City que contiene la ruta y el costo, o null si no existe una ruta
      */
-    private City findRouteDirect(String startCity, String goalCity) {
+    public City findRoute(String startCity, String goalCity, List<String> mandatoryCities) {
         int startIndex = findCityIndex(startCity);
         int goalIndex = findCityIndex(goalCity);
+        int[] stops = new int[mandatoryCities.size()];
+        boolean found = startIndex != -1 && goalIndex != -1;
+        for (int i = 0; i < stops.length && found; i++) {
+            stops[i] = findCityIndex(mandatoryCities.get(i));
+            found = stops[i] != -1;
+        }
+        if (!found) {
+            return null; // Ciudad no encontrada
+        }
         
+        return toCity(findPath(startIndex, goalIndex, stops));
+    }
+    
+    /**
+     * Encontrar la ruta óptima y hasta k - 1 rutas alternativas sin ciclos,
+     * ordenadas de menor a mayor distancia (algoritmo de Yen)
+     * 
+     * @param startCity Nombre de la ciudad de inicio
+     * @param goalCity Nombre de la ciudad de destino
+     * @param k Número de rutas pedidas, contando la óptima
+     * @param maxSharing Fracción máxima de la distancia de una alternativa que puede coincidir
+     *        con una ruta ya devuelta (1 para devolver las k más cortas sin filtrar)
+     * @return Las rutas como objetos City, vacía si no existe ninguna ruta, o null si alguna ciudad no existe
+     */
+    public List<City> findAlternativeRoutes(String startCity, String goalCity, int k, double maxSharing) {
+        int startIndex = findCityIndex(startCity);
+        int goalIndex = findCityIndex(goalCity);
         if (startIndex == -1 || goalIndex == -1) {
-            if (debugMode) System.out.println("Una o ambas ciudades no se encuentran en la cartografía");
             return null; // Ciudad no encontrada
         }
         
-        // Inicializar conjuntos abierto y cerrado
-        PriorityQueue<City> openSet = new PriorityQueue<>();
-        Set<String> closedSet = new HashSet<>();
+        List<City> routes = new ArrayList<>();
+        for (Route route : findAlternativePaths(startIndex, goalIndex, k, maxSharing)) {
+            routes.add(toCity(route));
+        }
+        return routes;
+    }
+    
+    /**
+     * Encontrar la ruta óptima (con el motor seleccionado y la caché) y hasta
+     * k - 1 rutas alternativas sin ciclos, ordenadas de menor a mayor costo.
+     * Las búsquedas de las alternativas reutilizan el espacio de trabajo del
+     * hilo y la heurística configurada.
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param k Número de rutas pedidas, contando la óptima
+     * @param maxSharing Fracción máxima de la distancia de una alternativa que puede coincidir
+     *        con una ruta ya devuelta (1 para devolver las k más cortas sin filtrar)
+     * @return Las rutas, vacía si no existe ninguna ruta
+     */
+    public List<Route> findAlternativePaths(int startIndex, int goalIndex, int k, double maxSharing) {
+        Route shortest = findPath(startIndex, goalIndex, new int[0]);
+        if (shortest == null) {
+            return new ArrayList<>();
+        }
+        return alternativeRoutes.findRoutes(shortest, k, maxSharing, heuristic, getWorkspace());
+    }
+    
+    /**
+     * Encontrar la ruta óptima entre dos ciudades ya resueltas pasando por las
+     * paradas obligatorias, consultando antes la caché de rutas si la hay.
+     * No crea objetos City, por lo que es la forma más barata de hacer muchas
+     * consultas (por ejemplo desde varios hilos a la vez).
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param stops Índices de las paradas obligatorias (en cualquier orden), o un array vacío
+     * @return La ruta, o null si no existe una ruta
+     */
+    public Route findPath(int startIndex, int goalIndex, int[] stops) {
+        if (stops.length > 1) {
+            return waypointRouter.findRoute(startIndex, goalIndex, stops);
+        }
         
-        // Crear nodo de inicio
-        City start = new City(startCity);
-        start.setG(0);
-        start.setH(getHeuristic(startIndex, goalIndex));
+        // Una ciudad obligatoria igual al origen o al destino no añade ninguna restricción
+        int viaIndex = stops.length == 0 || stops[0] == startIndex || stops[0] == goalIndex ? -1 : stops[0];
+        
+        // Consultar primero la caché de rutas
+        if (routeCache != null) {
+            Route cached = routeCache.get(startIndex, goalIndex, viaIndex);
+            if (cached != null) {
+                if (searchMetrics != null) {
+                    searchMetrics.recordCacheHit(searchMode);
+                }
+                return cached == RouteCache.NO_ROUTE ? null : cached;
+            }
+        }
+        
+        Route route = viaIndex == -1
+            ? findRouteDirect(startIndex, goalIndex)
+            : findRouteVia(startIndex, viaIndex, goalIndex);
+        
+        if (routeCache != null) {
+            routeCache.put(startIndex, goalIndex, viaIndex, route);
+        }
+        return route;
+    }
+    
+    /**
+     * Encontrar la ruta entre dos ciudades ya resueltas
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @return La ruta, o null si no existe una ruta
+     */
+    private Route findRouteDirect(int startIndex, int goalIndex) {
+        return findPath(startIndex, goalIndex);
+    }
+    
+    /**
+     * Encontrar la ruta entre dos ciudades pasando por una ciudad obligatoria,
+     * uniendo las rutas de los dos tramos
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param mandatoryIndex Índice de la ciudad obligatoria
+     * @param goalIndex Índice de la ciudad de destino
+     * @return La ruta completa, o null si algún tramo no tiene ruta
+     */
+    private Route findRouteVia(int startIndex, int mandatoryIndex, int goalIndex) {
+        // Encontrar ruta desde inicio hasta ciudad obligatoria
+        Route firstLeg = findPath(startIndex, mandatoryIndex);
+        if (firstLeg == null) {
+            return null; // No hay camino hacia la ciudad obligatoria
+        }
+        
+        // Encontrar ruta desde ciudad obligatoria hasta destino
+        Route secondLeg = findPath(mandatoryIndex, goalIndex);
+        if (secondLeg == null) {
+            return null; // No hay camino desde la ciudad obligatoria hasta el destino
+        }
         
-        if (debugMode) {
-            System.out.println("\nIniciando búsqueda A* desde " + startCity + " a " + goalCity);
-            System.out.println("Algoritmo A* utiliza la fórmula f(n) = g(n) + h(n) donde:");
-            System.out.println("- g(n): costo real acumulado desde el origen hasta el nodo actual");
-            System.out.println("- h(n): heurística (estimación del costo desde el nodo actual hasta el destino)");
-            System.out.println("- f(n): costo total estimado del camino que pasa por este nodo");
-            System.out.println("\nNodo inicial: " + start.getName());
-            System.out.println("g(" + start.getName() + ") = " + start.getG() + " (costo desde inicio)");
-            System.out.println("h(" + start.getName() + ") = " + start.getH() + " (heurística hasta destino)");
-            System.out.println("f(" + start.getName() + ") = " + start.getF() + " (costo total estimado)");
+        // Combinar las rutas. La ciudad obligatoria ya está incluida al final
+        // de firstLeg, así que la omitimos de secondLeg
+        int[] combinedPath = new int[firstLeg.length() + secondLeg.length() - 1];
+        for (int i = 0; i < firstLeg.length(); i++) {
+            combinedPath[i] = firstLeg.getCity(i);
+        }
+        for (int i = 1; i < secondLeg.length(); i++) {
+            combinedPath[firstLeg.length() + i - 1] = secondLeg.getCity(i);
+        }
+        double totalCost = firstLeg.getCost() + secondLeg.getCost();
+        return new Route(combinedPath, totalCost);
+    }
+    
+    /**
+     * Encontrar la ruta óptima entre dos ciudades con el motor de búsqueda seleccionado,
+     * registrando la búsqueda en las métricas si las hay
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @return La ruta encontrada, o null si no existe una ruta
+     */
+    public Route findPath(int startIndex, int goalIndex) {
+        SearchMode mode = searchMode;
+        SearchMetrics metrics = searchMetrics;
+        if (metrics == null) {
+            return search(startIndex, goalIndex, mode);
+        }
+        
+        // Medir la búsqueda: los contadores de los espacios de trabajo empiezan de cero
+        SearchWorkspace forward = getWorkspace();
+        SearchWorkspace backward = mode == SearchMode.BIDIRECTIONAL || mode == SearchMode.CONTRACTION_HIERARCHIES
+            ? backwardWorkspace.get() : null;
+        forward.clearCounters();
+        if (backward != null) {
+            backward.clearCounters();
+        }
+        long startTime = System.nanoTime();
+        Route route = search(startIndex, goalIndex, mode);
+        metrics.recordSearch(mode, startIndex, goalIndex, System.nanoTime() - startTime, route != null, forward, backward);
+        return route;
+    }
+    
+    /**
+     * Buscar con el motor indicado, avisando al listener si lo hay
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param mode Motor de búsqueda
+     * @return La ruta encontrada, o null si no existe una ruta
+     */
+    private Route search(int startIndex, int goalIndex, SearchMode mode) {
+        SearchListener listener = searchListener;
+        if (listener != null) {
+            listener.searchStarted(startIndex, goalIndex, mode);
+        }
+        
+        Route route;
+        if (mode == SearchMode.CONTRACTION_HIERARCHIES) {
+            route = contractionHierarchy.findPath(startIndex, goalIndex, getWorkspace(), backwardWorkspace.get());
+        } else if (mode == SearchMode.BIDIRECTIONAL) {
+            route = findPathBidirectional(startIndex, goalIndex);
+        } else if (mode == SearchMode.DELTA_STEPPING && DeltaStepping.isWorthwhile(graph, ForkJoinPool.commonPool())) {
+            route = getDeltaStepping().findPath(startIndex, goalIndex, ForkJoinPool.commonPool(), getWorkspace());
+        } else {
+            // También DELTA_STEPPING en mapas pequeños, donde repartir el trabajo no
+            // compensa; como los demás motores, ese solo avisa del inicio y del resultado
+            route = findPathAStar(startIndex, goalIndex, mode == SearchMode.ASTAR ? listener : null);
         }
         
-        // Añadir nodo inicial al conjunto abierto
-        openSet.add(start);
+        if (listener != null) {
+            if (route != null) {
+                listener.goalReached(goalIndex, route.getCost());
+            } else {
+                listener.searchFailed(startIndex, goalIndex);
+            }
+        }
+        return route;
+    }
+    
+    /**
+     * La implementación central del algoritmo A* sobre índices de ciudades.
+     * Trabaja solo con arrays primitivos y un montículo indexado con decrease-key,
+     * por lo que el bucle principal no crea objetos ni compara cadenas.
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param listener Receptor de los eventos de la búsqueda, o null
+     * @return La ruta encontrada, o null si no existe una ruta
+     */
+    private Route findPathAStar(int startIndex, int goalIndex, SearchListener listener) {
+        SearchWorkspace ws = getWorkspace();
+        ws.reset();
+        IndexedMinHeap openSet = ws.getOpenSet();
         
-        if (debugMode) System.out.println("\n=== INICIO DE LA BÚSQUEDA ===");
+        // Crear nodo de inicio
+        double startH = getHeuristic(startIndex, goalIndex);
+        ws.update(startIndex, 0, -1);
+        openSet.insertOrDecrease(startIndex, startH);
+        if (listener != null) {
+            listener.nodeImproved(startIndex, -1, 0, startH);
+        }
         
-        int iteration = 0;
         while (!openSet.isEmpty()) {
-            iteration++;
             // Obtener el nodo con el valor f más bajo
-            City current = openSet.poll();
-            
-            if (debugMode) {
-                System.out.println("\nIteración " + iteration + ":");
-                System.out.println("Nodo actual: " + current.getName());
-                System.out.println("g(" + current.getName() + ") = " + current.getG() + ", h(" + current.getName() + ") = " + current.getH() + ", f(" + current.getName() + ") = " + current.getF());
+            double currentF = openSet.peekKey();
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            if (listener != null) {
+                listener.nodePopped(current, currentG, currentF);
             }
             
             // Si hemos llegado al objetivo, devolver la ruta
-            if (current.getName().equalsIgnoreCase(goalCity)) {
-                if (debugMode) {
-                    System.out.println("\n¡DESTINO ALCANZADO!");
-                    System.out.println("Se ha encontrado la ruta óptima desde " + startCity + " hasta " + goalCity);
-                    System.out.println("El costo total de la ruta es: " + current.getG() + " km");
-                    System.out.println("\nEl algoritmo A* garantiza que esta es la ruta óptima porque:");
-                    System.out.println("1. Explora primero los nodos con menor costo estimado total (f)");
-                    System.out.println("2. Lleva un registro de los nodos ya explorados para evitar ciclos");
-                    System.out.println("3. Utiliza una heurística admisible que nunca sobreestima el costo real");
-                }
-                return current;
+            if (current == goalIndex) {
+                return new Route(ws.extractPath(goalIndex), currentG);
             }
             
             // Añadir nodo actual al conjunto cerrado
-            closedSet.add(current.getName().toLowerCase());
-            
-            // Obtener índice de la ciudad actual
-            int currentIndex = findCityIndex(current.getName());
+            ws.close(current);
+            ws.countRelaxedEdges(graph.edgeEnd(current) - graph.edgeStart(current));
             
-            // Explorar todos los vecinos
-            List<Integer> neighbors = getNeighbors(currentIndex);
-            if (debugMode) {
-                System.out.println("Vecinos de " + current.getName() + ": ");
-                for (int neighborIndex : neighbors) {
-                    System.out.println("- " + cityNames.get(neighborIndex) + " (distancia: " + getDistance(currentIndex, neighborIndex) + " km)");
-                }
-            }
-            
-            for (int neighborIndex : neighbors) {
-                String neighborName = cityNames.get(neighborIndex);
+            // Explorar todos los vecinos (solo las aristas salientes de la ciudad, O(grado))
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
                 
                 // Omitir si el vecino ya está en el conjunto cerrado
-                if (closedSet.contains(neighborName.toLowerCase())) {
-                    if (debugMode) System.out.println("  " + neighborName + " ya fue explorado, omitiendo");
+                if (ws.isClosed(neighbor)) {
                     continue;
                 }
                 
                 // Calcular costo hasta este vecino
-                double cost = current.getG() + getDistance(currentIndex, neighborIndex);
-                
-                // Crear nodo vecino
-                double heuristic = getHeuristic(neighborIndex, goalIndex);
-                City neighbor = new City(neighborName, cost, heuristic, current);
-                
-                if (debugMode) {
-                    System.out.println("  Evaluando vecino: " + neighborName);
-                    System.out.println("    g(" + neighborName + ") = " + cost + " (costo desde inicio)");
-                    System.out.println("    h(" + neighborName + ") = " + heuristic + " (heurística hasta destino)");
-                    System.out.println("    f(" + neighborName + ") = " + neighbor.getF() + " (costo total estimado)");
+                double cost = currentG + graph.getWeight(e);
+                if (listener != null) {
+                    listener.edgeRelaxed(current, neighbor, cost, getHeuristic(neighbor, goalIndex));
                 }
                 
-                // Comprobar si este vecino ya está en el conjunto abierto con un mejor camino
-                boolean inOpenSet = false;
-                for (City openNode : openSet) {
-                    if (openNode.getName().equalsIgnoreCase(neighborName)) {
-                        inOpenSet = true;
-                        
-                        // Si el camino actual al vecino es mejor, actualizarlo
-                        if (cost < openNode.getG()) {
-                            if (debugMode) System.out.println("    ¡Encontrado camino mejor a " + neighborName + "! Actualizando.");
-                            openSet.remove(openNode);
-                            openSet.add(neighbor);
-                        } else {
-                            if (debugMode) System.out.println("    Ya existe un camino mejor a " + neighborName + ", manteniendo el existente.");
-                        }
-                        break;
+                // Solo se actualiza si el nuevo camino mejora el conocido (decrease-key en O(log n));
+                // la heurística (tablas ALT o trigonometría) solo se calcula entonces
+                if (cost < ws.getG(neighbor)) {
+                    double f = cost + getHeuristic(neighbor, goalIndex);
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, f);
+                    if (listener != null) {
+                        listener.nodeImproved(neighbor, current, cost, f);
                     }
                 }
-                
-                // Si el vecino no está en el conjunto abierto, añadirlo
-                if (!inOpenSet) {
-                    if (debugMode) System.out.println("    Añadiendo " + neighborName + " al conjunto abierto.");
-                    openSet.add(neighbor);
-                }
             }
+        }
+        
+        // No se encontró ninguna ruta
+        return null;
+    }
+    
+    /**
+     * Búsqueda A* bidireccional: una búsqueda avanza desde el origen sobre el grafo y otra
+     * desde el destino sobre el grafo traspuesto, por lo que funciona también con mapas
+     * dirigidos. Ambas usan la potencial media p(v) = (h(v, destino) - h(origen, v)) / 2,
+     * que es consistente en los dos sentidos, y la búsqueda se detiene cuando la suma
+     * de las prioridades mínimas de ambas colas alcanza el mejor camino encontrado.
+     * Con la heurística cero es un Dijkstra bidireccional. El costo es siempre el mismo
+     * que el de la búsqueda unidireccional.
+     * 
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @return La ruta encontrada, o null si no existe una ruta
+     */
+    private Route findPathBidirectional(int startIndex, int goalIndex) {
+        if (startIndex == goalIndex) {
+            return new Route(new int[] { startIndex }, 0);
+        }
+        double startToGoal = getHeuristic(startIndex, goalIndex);
+        if (startToGoal == Double.POSITIVE_INFINITY) {
+            return null; // La heurística garantiza que el destino es inalcanzable
+        }
+        
+        Graph reverse = graph.reverse();
+        SearchWorkspace forward = getWorkspace();
+        SearchWorkspace backward = backwardWorkspace.get();
+        forward.reset();
+        backward.reset();
+        IndexedMinHeap forwardQueue = forward.getOpenSet();
+        IndexedMinHeap backwardQueue = backward.getOpenSet();
+        
+        // Prioridad hacia delante: g + p(v); hacia atrás: g - p(v)
+        forward.update(startIndex, 0, -1);
+        forwardQueue.insertOrDecrease(startIndex, startToGoal / 2);
+        backward.update(goalIndex, 0, -1);
+        backwardQueue.insertOrDecrease(goalIndex, startToGoal / 2);
+        
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()
+                && forwardQueue.peekKey() + backwardQueue.peekKey() < best) {
+            // Avanzar por el lado con la cola más pequeña
+            boolean useForward = forwardQueue.size() <= backwardQueue.size();
+            SearchWorkspace ws = useForward ? forward : backward;
+            SearchWorkspace other = useForward ? backward : forward;
+            IndexedMinHeap queue = ws.getOpenSet();
+            Graph direction = useForward ? graph : reverse;
             
-            if (debugMode) {
-                System.out.println("\nEstado del conjunto abierto después de la iteración " + iteration + ":");
-                if (openSet.isEmpty()) {
-                    System.out.println("  Conjunto abierto vacío. No hay más nodos para explorar.");
-                } else {
-                    for (City node : openSet) {
-                        System.out.println("  " + node.getName() + ": f = " + node.getF() + " (g = " + node.getG() + ", h = " + node.getH() + ")");
+            int current = queue.poll();
+            double currentG = ws.getG(current);
+            ws.close(current);
+            ws.countRelaxedEdges(direction.edgeEnd(current) - direction.edgeStart(current));
+            
+            for (int e = direction.edgeStart(current); e < direction.edgeEnd(current); e++) {
+                int neighbor = direction.getTarget(e);
+                if (ws.isClosed(neighbor)) {
+                    continue;
+                }
+                double cost = currentG + direction.getWeight(e);
+                if (cost < ws.getG(neighbor)) {
+                    double potential = (getHeuristic(neighbor, goalIndex) - getHeuristic(startIndex, neighbor)) / 2;
+                    if (Double.isNaN(potential) || Double.isInfinite(potential)) {
+                        continue; // La heurística indica que por aquí no hay camino
+                    }
+                    ws.update(neighbor, cost, current);
+                    queue.insertOrDecrease(neighbor, useForward ? cost + potential : cost - potential);
+                    
+                    // Comprobar si las dos búsquedas se encuentran en el vecino
+                    double through = cost + other.getG(neighbor);
+                    if (through < best) {
+                        best = through;
+                        meeting = neighbor;
                     }
-                    System.out.println("  Próximo nodo a explorar: " + openSet.peek().getName());
                 }
             }
         }
         
-        // No se encontró ninguna ruta
-        if (debugMode) System.out.println("\nNo se encontró ninguna ruta desde " + startCity + " hasta " + goalCity);
-        return null;
+        if (meeting == -1) {
+            return null;
+        }
+        
+        // Unir el camino del origen al punto de encuentro con el del punto de encuentro al destino
+        int[] firstHalf = forward.extractPath(meeting);
+        IntList path = new IntList(firstHalf.length * 2);
+        for (int city : firstHalf) {
+            path.add(city);
+        }
+        for (int city = backward.getParent(meeting); city != -1; city = backward.getParent(city)) {
+            path.add(city);
+        }
+        return new Route(path.toArray(), best);
+    }
+    
+    /**
+     * Encontrar todas las ciudades alcanzables desde una ciudad sin superar una
+     * distancia, con una sola búsqueda que se detiene al llegar al límite
+     * 
+     * @param startCity Nombre de la ciudad de origen
+     * @param budget Distancia máxima (incluida)
+     * @return Las ciudades alcanzables con su distancia, o null si la ciudad no existe
+     */
+    public Isochrone findReachable(String startCity, double budget) {
+        int startIndex = findCityIndex(startCity);
+        return startIndex == -1 ? null : findReachable(startIndex, budget);
+    }
+    
+    /**
+     * Encontrar todas las ciudades alcanzables desde una ciudad sin superar una distancia
+     * 
+     * @param sourceIndex Índice de la ciudad de origen
+     * @param budget Distancia máxima (incluida)
+     * @return Las ciudades alcanzables con su distancia, de más cerca a más lejos
+     */
+    public Isochrone findReachable(int sourceIndex, double budget) {
+        return Isochrone.compute(graph, sourceIndex, budget, getWorkspace());
+    }
+    
+    /**
+     * Encontrar las ciudades alcanzables desde varios orígenes (por ejemplo
+     * varios almacenes) a la vez: una búsqueda acotada por origen, repartidas
+     * entre los hilos del pool común
+     * 
+     * @param sourceIndices Índices de las ciudades de origen
+     * @param budget Distancia máxima (incluida)
+     * @return Las ciudades alcanzables desde cada origen, en el mismo orden
+     */
+    public List<Isochrone> findReachable(int[] sourceIndices, double budget) {
+        return findReachable(sourceIndices, budget, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Encontrar las ciudades alcanzables desde varios orígenes a la vez. Cada
+     * hilo del pool usa su propio espacio de trabajo de este buscador.
+     * 
+     * @param sourceIndices Índices de las ciudades de origen
+     * @param budget Distancia máxima (incluida)
+     * @param pool Pool de hilos en el que ejecutar las búsquedas
+     * @return Las ciudades alcanzables desde cada origen, en el mismo orden
+     */
+    public List<Isochrone> findReachable(int[] sourceIndices, double budget, ForkJoinPool pool) {
+        int[] sources = sourceIndices.clone();
+        Isochrone[] result = pool.submit(() -> IntStream.range(0, sources.length).parallel()
+            .mapToObj(i -> findReachable(sources[i], budget))
+            .toArray(Isochrone[]::new)).join();
+        return Arrays.asList(result);
+    }
+    
+    /**
+     * Calcular la tabla de distancias entre orígenes y destinos con una búsqueda
+     * de uno a muchos por origen, repartidas entre los hilos del pool común
+     * 
+     * @param sourceIndices Índices de las ciudades de origen (filas)
+     * @param targetIndices Índices de las ciudades de destino (columnas)
+     * @return La tabla de distancias
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link DistanceTable#MAX_CELLS} distancias
+     */
+    public DistanceTable computeDistanceTable(int[] sourceIndices, int[] targetIndices) {
+        return computeDistanceTable(sourceIndices, targetIndices, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Calcular la tabla de distancias entre orígenes y destinos. Cada hilo del
+     * pool usa su propio espacio de trabajo de este buscador, que se reutiliza
+     * en las tablas siguientes y se libera con close().
+     * 
+     * @param sourceIndices Índices de las ciudades de origen (filas)
+     * @param targetIndices Índices de las ciudades de destino (columnas)
+     * @param pool Pool de hilos en el que ejecutar las búsquedas
+     * @return La tabla de distancias
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link DistanceTable#MAX_CELLS} distancias
+     */
+    public DistanceTable computeDistanceTable(int[] sourceIndices, int[] targetIndices, ForkJoinPool pool) {
+        return DistanceTable.build(graph, sourceIndices, targetIndices, pool, workspace);
+    }
+    
+    /**
+     * Calcular la distancia mínima desde una ciudad a todas las demás (Dijkstra
+     * de uno a todos, o delta-stepping en paralelo con el motor DELTA_STEPPING
+     * en un mapa grande)
+     * 
+     * @param sourceIndex Índice de la ciudad de origen
+     * @return Distancia a cada ciudad, o infinito si no es alcanzable
+     */
+    public double[] computeDistances(int sourceIndex) {
+        double[] distances = new double[graph.getNumCities()];
+        if (usesParallelSearch()) {
+            getDeltaStepping().computeDistances(sourceIndex, ForkJoinPool.commonPool(), getWorkspace(), distances);
+        } else {
+            computeDistances(graph, sourceIndex, getWorkspace(), distances);
+        }
+        return distances;
+    }
+    
+    /**
+     * Calcular la distancia mínima desde una ciudad a todas las demás sobre un grafo cualquiera.
+     * Pasando el grafo traspuesto se obtienen las distancias de todas las ciudades hacia el origen.
+     * 
+     * @param graph Grafo sobre el que buscar
+     * @param sourceIndex Índice de la ciudad de origen
+     * @param ws Espacio de trabajo con capacidad para el grafo
+     * @param distances Array de salida (tamaño N) con la distancia a cada ciudad, o infinito
+     */
+    public static void computeDistances(Graph graph, int sourceIndex, SearchWorkspace ws, double[] distances) {
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        ws.reset();
+        IndexedMinHeap openSet = ws.getOpenSet();
+        ws.update(sourceIndex, 0, -1);
+        openSet.insertOrDecrease(sourceIndex, 0);
+        
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            distances[current] = currentG;
+            ws.close(current);
+            
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
+                double cost = currentG + graph.getWeight(e);
+                if (!ws.isClosed(neighbor) && cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, cost);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Convertir una ruta de índices en la cadena de objetos City que usa el resto de la aplicación
+     * 
+     * @param route La ruta a convertir, o null
+     * @return El objeto City de la ciudad destino, o null si la ruta es null
+     */
+    private City toCity(Route route) {
+        if (route == null) {
+            return null;
+        }
+        City current = null;
+        double g = 0;
+        for (int i = 0; i < route.length(); i++) {
+            int city = route.getCity(i);
+            if (i > 0) {
+                g += getDistance(route.getCity(i - 1), city);
+            }
+            current = new City(cityNames.get(city), g, 0, current);
+        }
+        current.setG(route.getCost());
+        return current;
+    }
+    
+    /**
+     * Obtener el espacio de trabajo de búsqueda del hilo actual, creándolo la primera vez
+     * 
+     * @return El espacio de trabajo
+     */
+    private SearchWorkspace getWorkspace() {
+        return workspace.get();
     }
     
     /**
      * Calcular el valor heurístico (costo estimado) desde una ciudad hasta el objetivo.
-     * En esta implementación, usamos cero como heurística para hacer que el algoritmo
-     * se comporte como Dijkstra. Para una implementación real de A*, podríamos usar
-     * distancias geográficas si están disponibles.
+     * Si la cartografía tiene coordenadas se usa la distancia de círculo máximo;
+     * si no, la heurística es cero y el algoritmo se comporta como Dijkstra.
      * 
      * @param fromIndex Índice de la ciudad de origen
      * @param toIndex Índice de la ciudad de destino
      * @return El valor heurístico
      */
     private double getHeuristic(int fromIndex, int toIndex) {
-        // Por ahora, usamos cero como heurística (equivalente al algoritmo de Dijkstra)
-        // En un escenario del mundo real, esto sería reemplazado con una estimación de distancia real
-        return 0;
+        return heuristic.estimate(fromIndex, toIndex);
+    }
+    
+    /**
+     * Cambiar la heurística usada por la búsqueda. Debe ser admisible y consistente
+     * para que la ruta encontrada siga siendo la óptima.
+     * 
+     * @param heuristic La nueva heurística
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic != null ? heuristic : Heuristic.ZERO;
+    }
+    
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+    
+    /**
+     * Usar las tablas de landmarks (ALT) como heurística, combinadas con la
+     * heurística geográfica si la cartografía tiene coordenadas
+     * 
+     * @param landmarks Las tablas de landmarks, o null para dejar de usarlas
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+        this.heuristic = landmarks == null ? geographicHeuristic : Heuristic.max(geographicHeuristic, landmarks);
+    }
+    
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+    
+    /**
+     * Asignar la jerarquía preprocesada que usa el modo CONTRACTION_HIERARCHIES
+     * 
+     * @param contractionHierarchy La jerarquía construida para este grafo
+     */
+    public void setContractionHierarchy(ContractionHierarchy contractionHierarchy) {
+        this.contractionHierarchy = contractionHierarchy;
+        if (contractionHierarchy == null && searchMode == SearchMode.CONTRACTION_HIERARCHIES) {
+            searchMode = SearchMode.ASTAR;
+        }
+    }
+    
+    public ContractionHierarchy getContractionHierarchy() {
+        return contractionHierarchy;
+    }
+    
+    /**
+     * Seleccionar el motor de búsqueda
+     * 
+     * @param searchMode El motor a usar
+     * @throws IllegalStateException Si el motor requiere un preprocesado que no se ha hecho
+     */
+    public void setSearchMode(SearchMode searchMode) {
+        if (searchMode == SearchMode.CONTRACTION_HIERARCHIES && contractionHierarchy == null) {
+            throw new IllegalStateException("Contraction Hierarchies requiere preprocesar el grafo primero");
+        }
+        this.searchMode = searchMode;
+    }
+    
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+    
+    /**
+     * @return true si las búsquedas se reparten entre hilos: motor DELTA_STEPPING,
+     *         mapa de al menos {@link DeltaStepping#MIN_PARALLEL_CITIES} ciudades y
+     *         más de un hilo en el pool común. Si no, ese motor busca con A*.
+     */
+    public boolean usesParallelSearch() {
+        return searchMode == SearchMode.DELTA_STEPPING && DeltaStepping.isWorthwhile(graph, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * @return El motor de delta-stepping de este grafo, creándolo la primera vez
+     */
+    private DeltaStepping getDeltaStepping() {
+        DeltaStepping engine = deltaStepping;
+        if (engine == null) {
+            // Un solo motor por buscador: close() libera la memoria de búsqueda de sus hilos
+            synchronized (this) {
+                engine = deltaStepping;
+                if (engine == null) {
+                    engine = new DeltaStepping(graph);
+                    deltaStepping = engine;
+                }
+            }
+        }
+        return engine;
+    }
+    
+    /**
+     * Usar una caché de rutas compartida. La caché debe vaciarse al cambiar de cartografía.
+     * 
+     * @param routeCache La caché, o null para no usar caché
+     */
+    public void setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+    }
+    
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+    
+    /**
+     * Registrar cada búsqueda (trabajo hecho y latencia) en unas métricas,
+     * que pueden compartir varios buscadores y varios hilos
+     * 
+     * @param searchMetrics Las métricas, o null para no medir
+     */
+    public void setSearchMetrics(SearchMetrics searchMetrics) {
+        this.searchMetrics = searchMetrics;
+    }
+    
+    public SearchMetrics getSearchMetrics() {
+        return searchMetrics;
+    }
+    
+    /**
+     * Asignar un receptor de los eventos de búsqueda (por ejemplo
+     * {@link ExplainingSearchListener} para ver la explicación paso a paso).
+     * Los eventos se emiten en el hilo que hace la búsqueda, así que con
+     * consultas desde varios hilos el listener debe ser seguro entre hilos.
+     * 
+     * @param searchListener El listener, o null para buscar sin trazas
+     */
+    public void setSearchListener(SearchListener searchListener) {
+        this.searchListener = searchListener;
+    }
+    
+    public SearchListener getSearchListener() {
+        return searchListener;
+    }
+    
+    public Graph getGraph() {
+        return graph;
+    }
+    
+    /**
+     * Liberar la memoria de búsqueda que han creado todos los hilos. Solo se debe
+     * llamar cuando ningún hilo va a volver a usar este buscador; después, cualquier
+     * búsqueda lanza IllegalStateException.
+     */
+    public void close() {
+        workspace.close();
+        backwardWorkspace.close();
+        DeltaStepping engine = deltaStepping;
+        if (engine != null) {
+            engine.close();
+        }
     }
     
     /**
@@ -329,7 +846,7 @@ public class AStar {
         List<String> path = route.getPath();
         System.out.println("Ruta Óptima:");
         System.out.println("Camino: " + String.join(" -> ", path));
-        System.out.println("Distancia Total: " + route.getG() + " km");
+        System.out.printf("Distancia Total: %.1f km%n", route.getG());
         
         // Imprimir detalles de segmentos
         if (path.size() > 1) {
@@ -338,7 +855,7 @@ public class AStar {
                 int fromIndex = findCityIndex(path.get(i));
                 int toIndex = findCityIndex(path.get(i + 1));
                 double distance = getDistance(fromIndex, toIndex);
-                System.out.println(path.get(i) + " -> " + path.get(i + 1) + ": " + distance + " km");
+                System.out.printf("%s -> %s: %.1f km%n", path.get(i), path.get(i + 1), distance);
             }
         }
     }
@@ -0,0 +1,415 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Rutas alternativas: las k rutas sin ciclos más cortas entre dos ciudades,
+ * con el algoritmo de Yen. Cada ruta nueva se busca desviándose de la anterior
+ * en cada una de sus ciudades (la "ciudad de desvío"): se prohíben las ciudades
+ * anteriores del camino y las carreteras que ya tomaron desde ahí las rutas
+ * aceptadas con el mismo tramo inicial, y se busca con A* el resto del camino.
+ *
+ * Para que pedir k rutas cueste bastante menos que k búsquedas por ciudad:
+ * - Todas las búsquedas de desvío usan el mismo espacio de trabajo; las
+ *   ciudades prohibidas se marcan como cerradas, sin arrays adicionales.
+ * - Se recuerda el resultado de cada desvío por su tramo inicial. Las
+ *   restricciones de un mismo tramo solo aumentan, así que si el camino
+ *   guardado sigue siendo válido (o no había camino) no se vuelve a buscar.
+ * - Los desvíos se buscan empezando por el final de la ruta, que son los más
+ *   baratos; cuando ya hay suficientes candidatas, cada búsqueda se corta en
+ *   cuanto no puede mejorar ninguna de las que harían falta.
+ *
+ * Las alternativas de Yen suelen diferenciarse en pequeños rodeos. Para
+ * obtener alternativas claramente distintas (maxSharing menor que 1) se usa el
+ * método de penalización: se repite la búsqueda encareciendo las carreteras de
+ * las rutas ya encontradas y solo se devuelven las rutas que comparten como
+ * mucho esa fracción de su distancia con las ya devueltas.
+ */
+public class AlternativeRoutes {
+    /**
+     * Fracción de distancia compartida admitida por defecto al pedir alternativas claramente distintas
+     */
+    public static final double DISTINCT_MAX_SHARING = 0.7;
+
+    // Aumento de la distancia de una carretera por cada ruta encontrada que pasa por ella
+    private static final double PENALTY = 0.5;
+    // Búsquedas penalizadas como máximo por cada ruta pedida
+    private static final int ATTEMPTS_PER_ROUTE = 4;
+
+    private final Graph graph;
+
+    /**
+     * Constructor para la clase AlternativeRoutes
+     *
+     * @param graph El grafo de carreteras
+     */
+    public AlternativeRoutes(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Ruta candidata, ordenada por costo y después por orden de llegada
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final Route route;
+        final long sequence;
+
+        Candidate(Route route, long sequence) {
+            this.route = route;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byCost = Double.compare(route.getCost(), other.route.getCost());
+            return byCost != 0 ? byCost : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Resultado guardado de un desvío: el camino encontrado, que no hay camino,
+     * o que la búsqueda se cortó porque no podía mejorar las candidatas
+     */
+    private static final class Spur {
+        final int[] path; // Desde la ciudad de desvío hasta el destino, o null
+        final double cost;
+        final boolean pruned;
+
+        Spur(int[] path, double cost, boolean pruned) {
+            this.path = path;
+            this.cost = cost;
+            this.pruned = pruned;
+        }
+    }
+
+    /**
+     * Camino usado como clave (por contenido) para no repetir candidatas
+     */
+    private static final class PathKey {
+        final int[] cities;
+        final int hash;
+
+        PathKey(int[] cities) {
+            this.cities = cities;
+            this.hash = Arrays.hashCode(cities);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PathKey && Arrays.equals(cities, ((PathKey) other).cities);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Encontrar hasta k rutas ordenadas de menor a mayor costo
+     *
+     * @param shortest La ruta más corta entre las dos ciudades (la primera del resultado)
+     * @param k Número de rutas pedidas (al menos 1)
+     * @param maxSharing Fracción máxima de la distancia de una ruta que puede
+     *        coincidir con una ya devuelta; con 1 se devuelven las k rutas sin
+     *        ciclos más cortas (Yen) y con menos, alternativas por penalización
+     * @param heuristic Heurística admisible y consistente hacia el destino
+     * @param ws Espacio de trabajo para las búsquedas
+     * @return Las rutas, empezando por shortest; puede haber menos de k si no existen más
+     */
+    public List<Route> findRoutes(Route shortest, int k, double maxSharing, Heuristic heuristic, SearchWorkspace ws) {
+        if (k <= 1 || shortest.length() < 2) {
+            List<Route> result = new ArrayList<>();
+            result.add(shortest);
+            return result;
+        }
+        return maxSharing < 1
+            ? findDistinctRoutes(shortest, k, maxSharing, heuristic, ws)
+            : findShortestRoutes(shortest, k, heuristic, ws);
+    }
+
+    /**
+     * Algoritmo de Yen: las k rutas sin ciclos más cortas
+     */
+    private List<Route> findShortestRoutes(Route shortest, int k, Heuristic heuristic, SearchWorkspace ws) {
+        int goal = shortest.getCity(shortest.length() - 1);
+        List<Route> accepted = new ArrayList<>();
+        accepted.add(shortest);
+        TreeSet<Candidate> candidates = new TreeSet<>();
+        Set<PathKey> seen = new HashSet<>();
+        seen.add(new PathKey(toArray(shortest)));
+        // Desvíos ya buscados, por tramo inicial: (primera ruta aceptada con ese tramo, longitud del tramo)
+        Map<Long, Spur> spurs = new HashMap<>();
+        long sequence = 0;
+
+        while (accepted.size() < k) {
+            Route last = accepted.get(accepted.size() - 1);
+            int length = last.length();
+            double[] rootCosts = new double[length];
+            for (int i = 1; i < length; i++) {
+                rootCosts[i] = rootCosts[i - 1] + graph.getDistance(last.getCity(i - 1), last.getCity(i));
+            }
+            // Para cada ciudad de desvío: rutas aceptadas que comparten el tramo inicial hasta ella
+            IntList[] blockedNext = new IntList[length - 1];
+            int[] firstWithPrefix = new int[length - 1];
+            boolean[] samePrefix = new boolean[accepted.size()];
+            Arrays.fill(samePrefix, true);
+            for (int i = 0; i + 1 < length; i++) {
+                blockedNext[i] = new IntList(4);
+                firstWithPrefix[i] = -1;
+                for (int p = 0; p < accepted.size(); p++) {
+                    Route other = accepted.get(p);
+                    samePrefix[p] = samePrefix[p] && other.length() > i && other.getCity(i) == last.getCity(i);
+                    if (samePrefix[p]) {
+                        if (firstWithPrefix[i] < 0) {
+                            firstWithPrefix[i] = p;
+                        }
+                        if (other.length() > i + 1) {
+                            blockedNext[i].add(other.getCity(i + 1));
+                        }
+                    }
+                }
+            }
+
+            // Desde el final: los desvíos cerca del destino son baratos y dan pronto
+            // candidatas que acotan las búsquedas largas desde el principio de la ruta
+            for (int i = length - 2; i >= 0; i--) {
+                long key = ((long) firstWithPrefix[i] << 32) | i;
+                Spur spur = spurs.get(key);
+                if (spur != null && (spur.pruned || spur.path == null || !contains(blockedNext[i], spur.path[1]))) {
+                    continue; // El resultado guardado sigue valiendo: su candidata ya está
+                }
+                double limit = costLimit(candidates, k - accepted.size()) - rootCosts[i];
+                spur = searchSpur(last, i, goal, blockedNext[i], limit, heuristic, ws);
+                spurs.put(key, spur);
+                if (spur.path != null) {
+                    int[] path = new int[i + spur.path.length];
+                    for (int j = 0; j < i; j++) {
+                        path[j] = last.getCity(j);
+                    }
+                    System.arraycopy(spur.path, 0, path, i, spur.path.length);
+                    if (seen.add(new PathKey(path))) {
+                        candidates.add(new Candidate(new Route(path, rootCosts[i] + spur.cost), sequence++));
+                    }
+                }
+            }
+
+            Candidate next = candidates.pollFirst();
+            if (next == null) {
+                break; // No hay más rutas sin ciclos
+            }
+            accepted.add(next.route);
+        }
+        return accepted;
+    }
+
+    /**
+     * Método de penalización: se repite la búsqueda encareciendo las carreteras
+     * de las rutas ya encontradas, y se aceptan las rutas que no coinciden
+     * demasiado con las devueltas
+     */
+    private List<Route> findDistinctRoutes(Route shortest, int k, double maxSharing, Heuristic heuristic,
+                                           SearchWorkspace ws) {
+        int start = shortest.getCity(0);
+        int goal = shortest.getCity(shortest.length() - 1);
+        List<Route> result = new ArrayList<>();
+        result.add(shortest);
+        List<Set<Long>> resultRoads = new ArrayList<>();
+        resultRoads.add(roads(shortest));
+        Set<PathKey> seen = new HashSet<>();
+        seen.add(new PathKey(toArray(shortest)));
+        Map<Long, Integer> penalties = new HashMap<>(); // Veces que se ha penalizado cada carretera
+        boolean[] onRoute = new boolean[graph.getNumCities()];
+
+        Route last = shortest;
+        for (int attempt = 0; attempt < k * ATTEMPTS_PER_ROUTE && result.size() < k; attempt++) {
+            for (int i = 1; i < last.length(); i++) {
+                onRoute[last.getCity(i - 1)] = true;
+                onRoute[last.getCity(i)] = true;
+                penalties.merge(road(last.getCity(i - 1), last.getCity(i)), 1, Integer::sum);
+            }
+            int[] path = searchPenalized(start, goal, penalties, onRoute, heuristic, ws);
+            if (path == null) {
+                break;
+            }
+            double cost = 0;
+            for (int i = 1; i < path.length; i++) {
+                cost += graph.getDistance(path[i - 1], path[i]);
+            }
+            last = new Route(path, cost);
+            if (seen.add(new PathKey(path)) && sharedFraction(last, resultRoads) <= maxSharing) {
+                result.add(last);
+                resultRoads.add(roads(last));
+            }
+        }
+        result.sort((a, b) -> Double.compare(a.getCost(), b.getCost()));
+        return result;
+    }
+
+    /**
+     * A* con las carreteras penalizadas más caras. Como las penalizaciones solo
+     * aumentan las distancias, la heurística sigue siendo admisible.
+     *
+     * @return El camino, o null si no hay ninguno
+     */
+    private int[] searchPenalized(int start, int goal, Map<Long, Integer> penalties, boolean[] onRoute,
+                                  Heuristic heuristic, SearchWorkspace ws) {
+        ws.reset();
+        IndexedMinHeap openSet = ws.getOpenSet();
+        ws.update(start, 0, -1);
+        openSet.insertOrDecrease(start, heuristic.estimate(start, goal));
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            if (current == goal) {
+                return ws.extractPath(goal);
+            }
+            ws.close(current);
+            ws.countRelaxedEdges(graph.edgeEnd(current) - graph.edgeStart(current));
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
+                if (ws.isClosed(neighbor)) {
+                    continue;
+                }
+                double weight = graph.getWeight(e);
+                if (onRoute[current] && onRoute[neighbor]) {
+                    Integer times = penalties.get(road(current, neighbor));
+                    if (times != null) {
+                        weight *= Math.pow(1 + PENALTY, times);
+                    }
+                }
+                double cost = currentG + weight;
+                if (cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, cost + heuristic.estimate(neighbor, goal));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Costo por debajo del cual una candidata nueva puede entrar en el resultado:
+     * el de la candidata número "needed" si ya hay tantas, o infinito
+     */
+    private static double costLimit(TreeSet<Candidate> candidates, int needed) {
+        if (candidates.size() < needed) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int seen = 0;
+        for (Candidate candidate : candidates) {
+            if (++seen == needed) {
+                return candidate.route.getCost();
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Búsqueda A* desde la ciudad de desvío hasta el destino sin pasar por las
+     * ciudades anteriores de la ruta ni salir por las carreteras bloqueadas
+     *
+     * @param route Ruta de la que se desvía
+     * @param spurIndex Posición de la ciudad de desvío en la ruta
+     * @param goal Índice de la ciudad de destino
+     * @param blockedNext Ciudades a las que no se puede ir directamente desde la de desvío
+     * @param limit Costo a partir del cual el desvío ya no interesa
+     * @param heuristic Heurística hacia el destino
+     * @param ws Espacio de trabajo
+     * @return El desvío
+     */
+    private Spur searchSpur(Route route, int spurIndex, int goal, IntList blockedNext, double limit,
+                            Heuristic heuristic, SearchWorkspace ws) {
+        int spurCity = route.getCity(spurIndex);
+        ws.reset();
+        for (int j = 0; j < spurIndex; j++) {
+            ws.close(route.getCity(j)); // Tramo inicial: prohibido volver a pasar
+        }
+        IndexedMinHeap openSet = ws.getOpenSet();
+        ws.update(spurCity, 0, -1);
+        openSet.insertOrDecrease(spurCity, heuristic.estimate(spurCity, goal));
+
+        while (!openSet.isEmpty()) {
+            if (openSet.peekKey() >= limit) {
+                return new Spur(null, 0, true);
+            }
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            if (current == goal) {
+                return new Spur(ws.extractPath(goal), currentG, false);
+            }
+            ws.close(current);
+            ws.countRelaxedEdges(graph.edgeEnd(current) - graph.edgeStart(current));
+
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
+                if (ws.isClosed(neighbor) || (current == spurCity && contains(blockedNext, neighbor))) {
+                    continue;
+                }
+                double cost = currentG + graph.getWeight(e);
+                if (cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, cost + heuristic.estimate(neighbor, goal));
+                }
+            }
+        }
+        return new Spur(null, 0, false);
+    }
+
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(Route route) {
+        int[] cities = new int[route.length()];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = route.getCity(i);
+        }
+        return cities;
+    }
+
+    /**
+     * Carreteras de una ruta, como pares (origen, destino) sin sentido
+     */
+    private static Set<Long> roads(Route route) {
+        Set<Long> roads = new HashSet<>();
+        for (int i = 1; i < route.length(); i++) {
+            roads.add(road(route.getCity(i - 1), route.getCity(i)));
+        }
+        return roads;
+    }
+
+    private static long road(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /**
+     * Mayor fracción de la distancia de la ruta que coincide con alguna de las ya devueltas
+     */
+    private double sharedFraction(Route route, List<Set<Long>> resultRoads) {
+        if (route.getCost() <= 0) {
+            return 1;
+        }
+        double worst = 0;
+        for (Set<Long> roads : resultRoads) {
+            double shared = 0;
+            for (int i = 1; i < route.length(); i++) {
+                if (roads.contains(road(route.getCity(i - 1), route.getCity(i)))) {
+                    shared += graph.getDistance(route.getCity(i - 1), route.getCity(i));
+                }
+            }
+            worst = Math.max(worst, shared / route.getCost());
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Modo por lotes (no interactivo): lee consultas de un archivo o de la entrada
+ * estándar y escribe un resultado por línea en CSV o JSON.
+ *
+ * Cada consulta es una línea "origen;destino" o "origen;destino;parada1,parada2,...".
+ * Las líneas vacías y las que empiezan por '#' se ignoran. Las consultas se leen
+ * en bloques y cada bloque se resuelve en paralelo en un ForkJoinPool sobre un
+ * único grafo compartido (inmutable); los resultados se escriben en el orden de
+ * entrada. Al terminar se muestra el rendimiento total por la salida de error.
+ */
+public class BatchRunner {
+    // Consultas leídas y resueltas a la vez; acota la memoria con entradas de cualquier tamaño
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Formato de salida de los resultados
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    private final AStar aStar;
+    private final Graph graph;
+    private final Format format;
+    private final ForkJoinPool pool;
+
+    private final AtomicLong found = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Constructor para la clase BatchRunner
+     *
+     * @param aStar Buscador ya configurado (heurística, motor, caché); se le quita el listener de búsqueda
+     * @param format Formato de salida
+     * @param threads Número de hilos para resolver las consultas
+     */
+    public BatchRunner(AStar aStar, Format format, int threads) {
+        this.aStar = aStar;
+        this.graph = aStar.getGraph();
+        this.format = format;
+        this.pool = new ForkJoinPool(threads);
+        aStar.setSearchListener(null); // Las explicaciones por consola no son seguras entre hilos
+    }
+
+    /**
+     * Resolver todas las consultas de la entrada y escribir sus resultados
+     *
+     * @param input Consultas, una por línea
+     * @param output Destino de los resultados
+     * @return Número de consultas resueltas
+     * @throws IOException Si hay un error de lectura o escritura
+     */
+    public long run(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.CSV) {
+            writer.write("origen,destino,paradas,distancia,ruta,error\n");
+        }
+
+        long total = 0;
+        List<String> block = new ArrayList<>(BLOCK_SIZE);
+        String[] results = new String[BLOCK_SIZE];
+        String line;
+        while (true) {
+            line = reader.readLine();
+            if (line != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    block.add(line);
+                }
+            }
+            if (block.size() == BLOCK_SIZE || (line == null && !block.isEmpty())) {
+                int size = block.size();
+                pool.submit(() -> IntStream.range(0, size).parallel()
+                        .forEach(i -> results[i] = answer(block.get(i)))).join();
+                for (int i = 0; i < size; i++) {
+                    writer.write(results[i]);
+                    writer.write('\n');
+                }
+                total += size;
+                block.clear();
+            }
+            if (line == null) {
+                break;
+            }
+        }
+        writer.flush();
+        return total;
+    }
+
+    /**
+     * Resolver una consulta y darle formato
+     */
+    private String answer(String query) {
+        String[] fields = query.split(";", -1);
+        String origin = fields[0].trim();
+        String destination = fields.length > 1 ? fields[1].trim() : "";
+        List<String> stopNames = new ArrayList<>();
+        if (fields.length > 2) {
+            for (String stop : fields[2].split(",")) {
+                if (!stop.trim().isEmpty()) {
+                    stopNames.add(stop.trim());
+                }
+            }
+        }
+
+        // Resolver los nombres; un nombre desconocido es un error de la consulta, no del lote
+        String error = fields.length < 2 || fields.length > 3 ? "consulta mal formada" : null;
+        int start = graph.findCity(origin);
+        int goal = graph.findCity(destination);
+        int[] stops = new int[stopNames.size()];
+        if (error == null && start < 0) {
+            error = "ciudad desconocida: " + origin;
+        }
+        if (error == null && goal < 0) {
+            error = "ciudad desconocida: " + destination;
+        }
+        for (int i = 0; i < stops.length && error == null; i++) {
+            stops[i] = graph.findCity(stopNames.get(i));
+            if (stops[i] < 0) {
+                error = "ciudad desconocida: " + stopNames.get(i);
+            }
+        }
+
+        Route route = null;
+        if (error != null) {
+            errors.incrementAndGet();
+        } else {
+            route = aStar.findPath(start, goal, stops);
+            (route != null ? found : notFound).incrementAndGet();
+        }
+        return format == Format.CSV
+            ? toCsv(origin, destination, stopNames, route, error)
+            : toJson(graph, origin, destination, stopNames, route, error);
+    }
+
+    private String toCsv(String origin, String destination, List<String> stops, Route route, String error) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(csvField(origin)).append(',').append(csvField(destination)).append(',')
+          .append(csvField(String.join("|", stops))).append(',');
+        if (error != null) {
+            sb.append(",,").append(csvField(error));
+        } else if (route != null) {
+            sb.append(formatCost(route.getCost())).append(',');
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < route.length(); i++) {
+                if (i > 0) {
+                    path.append('|');
+                }
+                path.append(graph.getCityName(route.getCity(i)));
+            }
+            sb.append(csvField(path.toString())).append(',');
+        } else {
+            sb.append(",,");
+        }
+        return sb.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Dar formato JSON al resultado de una consulta (también lo usa RoutingServer)
+     */
+    static String toJson(Graph graph, String origin, String destination, List<String> stops, Route route, String error) {
+        StringBuilder sb = new StringBuilder("{\"origen\":");
+        jsonString(sb, origin);
+        sb.append(",\"destino\":");
+        jsonString(sb, destination);
+        sb.append(",\"paradas\":[");
+        for (int i = 0; i < stops.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            jsonString(sb, stops.get(i));
+        }
+        sb.append(']');
+        if (error != null) {
+            sb.append(",\"error\":");
+            jsonString(sb, error);
+        } else if (route != null) {
+            sb.append(",\"distancia\":").append(formatCost(route.getCost())).append(",\"ruta\":[");
+            for (int i = 0; i < route.length(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                jsonString(sb, graph.getCityName(route.getCity(i)));
+            }
+            sb.append(']');
+        } else {
+            sb.append(",\"distancia\":null,\"ruta\":[]");
+        }
+        return sb.append('}').toString();
+    }
+
+    static void jsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Dar formato a una distancia con un decimal, la misma precisión que printRoute,
+     * para no arrastrar el error de redondeo de las sumas (1340.9999999999995)
+     */
+    static String formatCost(double cost) {
+        double rounded = Math.round(cost * 10) / 10.0;
+        return rounded == Math.rint(rounded) ? String.valueOf((long) rounded) : String.valueOf(rounded);
+    }
+
+    public long getFound() {
+        return found.get();
+    }
+
+    public long getNotFound() {
+        return notFound.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Ejecutar el modo por lotes desde la línea de comandos:
+     *   --batch mapa [consultas|-] [--format csv|json] [--threads N] [--engine astar|bidirectional|ch|delta] [--output archivo]
+     *
+     * @param args Argumentos de la línea de comandos (el primero es --batch)
+     * @return Código de salida del proceso (0 si todo fue bien)
+     */
+    public static int main(String[] args) {
+        String mapFile = null;
+        String queryFile = "-";
+        String outputFile = null;
+        Format format = Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        SearchMode mode = SearchMode.ASTAR;
+
+        try {
+            List<String> positional = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--engine":
+                        mode = parseMode(args[++i]);
+                        break;
+                    case "--output":
+                        outputFile = args[++i];
+                        break;
+                    default:
+                        positional.add(args[i]);
+                }
+            }
+            if (positional.isEmpty() || positional.size() > 2 || threads < 1) {
+                throw new IllegalArgumentException("argumentos inválidos");
+            }
+            mapFile = positional.get(0);
+            if (positional.size() == 2) {
+                queryFile = positional.get(1);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Uso: java GPS --batch <mapa> [consultas|-] [--format csv|json] [--threads N]"
+                + " [--engine astar|bidirectional|ch|delta] [--output archivo]");
+            return 2;
+        }
+
+        try {
+            AStar aStar = RoutingContext.load(mapFile, mode, 0).getAStar();
+
+            BatchRunner runner = new BatchRunner(aStar, format, threads);
+            long startTime = System.nanoTime();
+            long total;
+            // System.out solo se vacía: cerrarlo impediría escribir nada más en la salida estándar
+            try (InputStream in = queryFile.equals("-") ? System.in : new FileInputStream(queryFile)) {
+                if (outputFile == null) {
+                    total = runner.run(in, System.out);
+                    System.out.flush();
+                } else {
+                    try (OutputStream out = new FileOutputStream(outputFile)) {
+                        total = runner.run(in, out);
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.err.printf(Locale.ROOT, "%d consultas (%d con ruta, %d sin ruta, %d con errores) en %.3f s con %d hilos: %.0f consultas/s%n",
+                total, runner.getFound(), runner.getNotFound(), runner.getErrors(), seconds, runner.getThreads(),
+                seconds > 0 ? total / seconds : 0.0);
+            return runner.getErrors() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Error en el modo por lotes: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    static SearchMode parseMode(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "astar":
+                return SearchMode.ASTAR;
+            case "bidirectional":
+                return SearchMode.BIDIRECTIONAL;
+            case "ch":
+                return SearchMode.CONTRACTION_HIERARCHIES;
+            case "delta":
+                return SearchMode.DELTA_STEPPING;
+            default:
+                throw new IllegalArgumentException("motor desconocido: " + name);
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -10,8 +11,7 @@ public class City implements Comparable<City> {
     private double g; // Costo desde el nodo inicial hasta este nodo
     private double h; // Costo heurístico desde este nodo hasta la meta
     private double f; // Costo total (g + h)
-    private City parent;
-    private List<String> path;
+    private City parent; // El camino se reconstruye siguiendo los padres
 
     /**
      * Constructor para la clase City
@@ -23,8 +23,6 @@ public class City implements Comparable<City> {
         this.h = 0;
         this.f = 0;
         this.parent = null;
-        this.path = new ArrayList<>();
-        this.path.add(name);
     }
 
     /**
@@ -40,11 +38,6 @@ public class City implements Comparable<City> {
         this.h = h;
         this.f = g + h;
         this.parent = parent;
-        this.path = new ArrayList<>();
-        if (parent != null) {
-            this.path.addAll(parent.getPath());
-        }
-        this.path.add(name);
     }
 
     // Getters y setters
@@ -80,14 +73,21 @@ public class City implements Comparable<City> {
 
     public void setParent(City parent) {
         this.parent = parent;
-        this.path = new ArrayList<>();
-        if (parent != null) {
-            this.path.addAll(parent.getPath());
-        }
-        this.path.add(this.name);
     }
 
+    /**
+     * Obtener el camino desde el origen hasta esta ciudad.
+     * Se calcula al pedirlo recorriendo los padres, en lugar de copiar la lista
+     * del padre en cada nodo.
+     * 
+     * @return Los nombres de las ciudades del camino, en orden
+     */
     public List<String> getPath() {
+        List<String> path = new ArrayList<>();
+        for (City city = this; city != null; city = city.parent) {
+            path.add(city.name);
+        }
+        Collections.reverse(path);
         return path;
     }
 
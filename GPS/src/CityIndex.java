@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Índice inmutable nombre → índice de ciudad, insensible a mayúsculas.
+ * Se construye una vez al cargar la cartografía como una tabla hash de
+ * direccionamiento abierto (sondeo lineal) con el hash de cada nombre
+ * normalizado, de modo que cada búsqueda por nombre cuesta O(1) en lugar de
+ * recorrer toda la lista. Las claves normalizadas se guardan una vez, en UTF-8
+ * y seguidas en un único buffer (con el desplazamiento de la clave de cada
+ * ciudad), y cuando coincide el hash se comparan byte a byte, sin crear
+ * objetos. Así la tabla son arrays primitivos que se pueden guardar en una
+ * instantánea (MapSnapshot) y proyectar en memoria.
+ */
+public final class CityIndex {
+    private final IntBuffer hashes;     // Hash de la clave de cada ranura
+    private final IntBuffer cities;     // Índice de ciudad de cada ranura, o -1 si está vacía
+    private final IntBuffer keyOffsets; // Inicio de la clave de cada ciudad en keys (N + 1)
+    private final ByteBuffer keys;      // Claves normalizadas en UTF-8, por orden de ciudad
+    private final int mask;
+
+    /**
+     * Constructor para la clase CityIndex
+     *
+     * @param cityNames Lista de nombres de ciudades; si hay nombres repetidos gana el primero
+     */
+    public CityIndex(List<String> cityNames) {
+        int capacity = Integer.highestOneBit(Math.max(4, cityNames.size() * 2 - 1)) << 1;
+        int[] slotHashes = new int[capacity];
+        int[] slotCities = new int[capacity];
+        Arrays.fill(slotCities, -1);
+        byte[][] encoded = new byte[cityNames.size()][];
+        int[] offsets = new int[cityNames.size() + 1];
+        long totalBytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = normalize(cityNames.get(i)).getBytes(StandardCharsets.UTF_8);
+            totalBytes += encoded[i].length;
+            if (totalBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Los nombres de ciudades ocupan más de 2 GB");
+            }
+            offsets[i + 1] = (int) totalBytes;
+        }
+        byte[] keyBytes = new byte[(int) totalBytes];
+        for (int i = 0; i < encoded.length; i++) {
+            System.arraycopy(encoded[i], 0, keyBytes, offsets[i], encoded[i].length);
+        }
+        this.hashes = IntBuffer.wrap(slotHashes);
+        this.cities = IntBuffer.wrap(slotCities);
+        this.keyOffsets = IntBuffer.wrap(offsets);
+        this.keys = ByteBuffer.wrap(keyBytes);
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < encoded.length; i++) {
+            int hash = hash(encoded[i]);
+            int slot = hash & mask;
+            while (slotCities[slot] != -1 && !matches(slot, hash, encoded[i])) {
+                slot = (slot + 1) & mask;
+            }
+            if (slotCities[slot] == -1) {
+                slotHashes[slot] = hash;
+                slotCities[slot] = i;
+            }
+        }
+    }
+
+    private CityIndex(IntBuffer hashes, IntBuffer cities, IntBuffer keyOffsets, ByteBuffer keys) {
+        this.hashes = hashes;
+        this.cities = cities;
+        this.keyOffsets = keyOffsets;
+        this.keys = keys;
+        this.mask = hashes.limit() - 1;
+    }
+
+    /**
+     * Buscar el índice de una ciudad por su nombre, sin distinguir mayúsculas
+     * ni espacios al principio o al final
+     *
+     * @param cityName Nombre de la ciudad a buscar
+     * @return El índice de la ciudad, o -1 si no se encuentra
+     */
+    public int find(String cityName) {
+        if (cityName == null) {
+            return -1;
+        }
+        byte[] key = normalize(cityName).getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int slot = hash & mask;
+        while (cities.get(slot) != -1) {
+            if (matches(slot, hash, key)) {
+                return cities.get(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Comparar la clave de una ranura con la buscada: primero el hash y, si
+     * coincide, los bytes de la clave guardada, leídos directamente del buffer
+     */
+    private boolean matches(int slot, int hash, byte[] key) {
+        if (hashes.get(slot) != hash) {
+            return false;
+        }
+        int city = cities.get(slot);
+        int start = keyOffsets.get(city);
+        if (keyOffsets.get(city + 1) - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (keys.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param cityName Nombre de la ciudad
+     * @return true si la ciudad existe en el índice
+     */
+    public boolean contains(String cityName) {
+        return find(cityName) >= 0;
+    }
+
+    /**
+     * Normalizar un nombre de ciudad para compararlo sin distinguir mayúsculas
+     *
+     * @param cityName Nombre de la ciudad
+     * @return La clave normalizada
+     */
+    public static String normalize(String cityName) {
+        return cityName.trim().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private static int hash(byte[] key) {
+        int hash = Arrays.hashCode(key);
+        // Dispersar los bits altos para que el enmascarado use todo el hash
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Escribir la tabla en una instantánea
+     *
+     * @param out Destino
+     * @throws IOException Si hay un error al escribir
+     */
+    void writeSnapshot(MapSnapshot.Writer out) throws IOException {
+        out.writeInt(hashes.limit());
+        out.writeInts(hashes);
+        out.writeInts(cities);
+        out.writeInt(keys.limit());
+        out.writeInts(keyOffsets);
+        out.writeBytes(keys);
+    }
+
+    /**
+     * Leer una tabla escrita con writeSnapshot, proyectada en memoria
+     *
+     * @param in Origen
+     * @param numCities Número de ciudades del grafo
+     * @return El índice
+     * @throws IOException Si hay un error al leer o la tabla no es válida
+     */
+    static CityIndex readSnapshot(MapSnapshot.Reader in, int numCities) throws IOException {
+        int capacity = in.readInt();
+        if (capacity <= numCities || Integer.bitCount(capacity) != 1) {
+            throw new IOException("Instantánea inválida: índice de nombres de tamaño " + capacity);
+        }
+        IntBuffer slotHashes = in.mapInts(capacity);
+        IntBuffer slotCities = in.mapInts(capacity);
+        int totalBytes = in.readInt();
+        IntBuffer offsets = in.mapInts(numCities + 1);
+        ByteBuffer keyBytes = in.mapBytes(totalBytes);
+        if (offsets.get(0) != 0 || offsets.get(numCities) != totalBytes) {
+            throw new IOException("Instantánea inválida: claves del índice de nombres inconsistentes");
+        }
+        return new CityIndex(slotHashes, slotCities, offsets, keyBytes);
+    }
+}
@@ -0,0 +1,652 @@
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Motor de rutas basado en Contraction Hierarchies (CH).
+ *
+ * En el preprocesado las ciudades se "contraen" una a una, de menos a más
+ * importante (ver Contractor.priority: atajos que añade frente a aristas que
+ * elimina, carreteras originales que representan esos atajos, vecinos ya
+ * contraídos y nivel en la jerarquía). Al contraer una ciudad v, para cada
+ * par u -> v -> w se busca un camino testigo que no pase por v; si no
+ * existe, se añade el atajo u -> w.
+ * El resultado es un grafo hacia arriba (aristas hacia ciudades de mayor rango)
+ * y otro hacia abajo, sobre los que una búsqueda bidireccional que solo sube
+ * de rango encuentra la ruta óptima explorando muy pocas ciudades.
+ * Los atajos guardan su ciudad intermedia para poder desplegarlos de nuevo en
+ * la secuencia real de ciudades.
+ */
+public class ContractionHierarchy {
+    // Máximo de ciudades asentadas en cada búsqueda de testigos. Al simular la
+    // contracción (solo para calcular prioridades) se usa el mismo límite: con uno
+    // menor se cuentan atajos que sobran y el orden empeora
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATION_SETTLE_LIMIT = 500;
+    // Pesos de los términos de la prioridad de contracción (ver Contractor.priority)
+    private static final double EDGE_DIFFERENCE_WEIGHT = 2;
+    private static final double ORIGINAL_EDGES_WEIGHT = 1;
+    private static final double DELETED_NEIGHBORS_WEIGHT = 2;
+    private static final double LEVEL_WEIGHT = 1;
+
+    // Los arrays están en el heap o proyectados desde una instantánea (MapSnapshot)
+    private final int numCities;
+    private final IntBuffer rank; // Orden de contracción de cada ciudad
+
+    // Grafo hacia arriba: para cada u, aristas u -> w con rank[w] > rank[u]
+    private final IntBuffer upOffsets;
+    private final IntBuffer upTargets;
+    private final DoubleBuffer upWeights;
+    private final IntBuffer upMiddles; // Ciudad intermedia del atajo, o -1 si es una carretera real
+
+    // Grafo hacia abajo (invertido): para cada u, aristas x -> u con rank[x] > rank[u]
+    private final IntBuffer downOffsets;
+    private final IntBuffer downSources;
+    private final DoubleBuffer downWeights;
+    private final IntBuffer downMiddles;
+
+    private final int numShortcuts;
+
+    private ContractionHierarchy(int numCities, int[] rank, EdgeArrays up, EdgeArrays down, int numShortcuts) {
+        // offsets() ordena las aristas, así que tiene que ir antes que nodes, weights y middles
+        this(numCities, IntBuffer.wrap(rank),
+             IntBuffer.wrap(up.offsets(numCities)), IntBuffer.wrap(up.nodes), DoubleBuffer.wrap(up.weights), IntBuffer.wrap(up.middles),
+             IntBuffer.wrap(down.offsets(numCities)), IntBuffer.wrap(down.nodes), DoubleBuffer.wrap(down.weights), IntBuffer.wrap(down.middles),
+             numShortcuts);
+    }
+
+    private ContractionHierarchy(int numCities, IntBuffer rank,
+                                 IntBuffer upOffsets, IntBuffer upTargets, DoubleBuffer upWeights, IntBuffer upMiddles,
+                                 IntBuffer downOffsets, IntBuffer downSources, DoubleBuffer downWeights, IntBuffer downMiddles,
+                                 int numShortcuts) {
+        this.numCities = numCities;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+        this.numShortcuts = numShortcuts;
+    }
+
+    /**
+     * Preprocesar un grafo y construir su jerarquía
+     *
+     * @param graph El grafo de carreteras
+     * @return La jerarquía lista para consultas
+     */
+    public static ContractionHierarchy build(Graph graph) {
+        return new Contractor(graph).contractAll();
+    }
+
+    /**
+     * Volver a contraer un grafo con la misma estructura y otras distancias (por
+     * ejemplo tras cambios de tráfico) en el mismo orden que esta jerarquía. Los
+     * atajos se recalculan con búsquedas testigo sobre las nuevas distancias, así
+     * que las rutas siguen siendo óptimas, pero no se vuelve a calcular el orden,
+     * que es la mayor parte del preprocesado.
+     *
+     * @param graph El grafo con las nuevas distancias
+     * @return La nueva jerarquía
+     */
+    public ContractionHierarchy recontract(Graph graph) {
+        if (graph.getNumCities() != numCities) {
+            throw new IllegalArgumentException("La jerarquía no corresponde al mapa");
+        }
+        int[] order = new int[numCities];
+        for (int v = 0; v < numCities; v++) {
+            order[rank.get(v)] = v;
+        }
+        return new Contractor(graph).contractInOrder(order);
+    }
+
+    public int getNumShortcuts() {
+        return numShortcuts;
+    }
+
+    /**
+     * @param city Índice de la ciudad
+     * @return Posición de la ciudad en el orden de contracción
+     */
+    public int getRank(int city) {
+        return rank.get(city);
+    }
+
+    /**
+     * Encontrar la ruta óptima entre dos ciudades con una búsqueda bidireccional
+     * que solo recorre aristas hacia ciudades de mayor rango. La jerarquía no
+     * guarda memoria de búsqueda: los espacios de trabajo son del llamante (por
+     * ejemplo los de AStar), que así controla cuándo se liberan, y con espacios
+     * distintos se pueden hacer consultas en paralelo.
+     *
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param forward Espacio de trabajo de la búsqueda hacia delante
+     * @param backward Espacio de trabajo de la búsqueda hacia atrás, distinto del anterior
+     * @return La ruta con los atajos ya desplegados, o null si no existe una ruta
+     */
+    public Route findPath(int startIndex, int goalIndex, SearchWorkspace forward, SearchWorkspace backward) {
+        if (startIndex == goalIndex) {
+            return new Route(new int[] { startIndex }, 0);
+        }
+        forward.reset();
+        backward.reset();
+        IndexedMinHeap forwardQueue = forward.getOpenSet();
+        IndexedMinHeap backwardQueue = backward.getOpenSet();
+        forward.update(startIndex, 0, -1);
+        forwardQueue.insertOrDecrease(startIndex, 0);
+        backward.update(goalIndex, 0, -1);
+        backwardQueue.insertOrDecrease(goalIndex, 0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        boolean forwardTurn = true;
+        while (true) {
+            boolean forwardActive = !forwardQueue.isEmpty() && forwardQueue.peekKey() < best;
+            boolean backwardActive = !backwardQueue.isEmpty() && backwardQueue.peekKey() < best;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            boolean useForward = forwardActive && (forwardTurn || !backwardActive);
+            forwardTurn = !forwardTurn;
+
+            SearchWorkspace ws = useForward ? forward : backward;
+            SearchWorkspace other = useForward ? backward : forward;
+            IndexedMinHeap queue = ws.getOpenSet();
+            IntBuffer offsets = useForward ? upOffsets : downOffsets;
+            IntBuffer nodes = useForward ? upTargets : downSources;
+            DoubleBuffer weights = useForward ? upWeights : downWeights;
+            // Aristas en sentido contrario, para detectar ciudades "estancadas"
+            IntBuffer reverseOffsets = useForward ? downOffsets : upOffsets;
+            IntBuffer reverseNodes = useForward ? downSources : upTargets;
+            DoubleBuffer reverseWeights = useForward ? downWeights : upWeights;
+
+            int current = queue.poll();
+            double currentG = ws.getG(current);
+            ws.close(current);
+            double total = currentG + other.getG(current);
+            if (total < best) {
+                best = total;
+                meeting = current;
+            }
+
+            // Stall-on-demand: si una ciudad de mayor rango ya alcanzada ofrece un camino
+            // más corto hasta current, su distancia no es óptima y no merece la pena expandirla
+            boolean stalled = false;
+            for (int e = reverseOffsets.get(current); e < reverseOffsets.get(current + 1); e++) {
+                if (ws.getG(reverseNodes.get(e)) + reverseWeights.get(e) < currentG) {
+                    stalled = true;
+                    break;
+                }
+            }
+            if (stalled) {
+                continue;
+            }
+
+            ws.countRelaxedEdges(offsets.get(current + 1) - offsets.get(current));
+            for (int e = offsets.get(current); e < offsets.get(current + 1); e++) {
+                int neighbor = nodes.get(e);
+                double cost = currentG + weights.get(e);
+                if (cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    queue.insertOrDecrease(neighbor, cost);
+                    double through = cost + other.getG(neighbor);
+                    if (through < best) {
+                        best = through;
+                        meeting = neighbor;
+                    }
+                }
+            }
+        }
+
+        if (meeting == -1) {
+            return null;
+        }
+        return new Route(unpackPath(meeting, forward, backward), best);
+    }
+
+    /**
+     * Reconstruir la secuencia completa de ciudades a partir de los dos árboles
+     * de búsqueda, desplegando los atajos
+     */
+    private int[] unpackPath(int meeting, SearchWorkspace forward, SearchWorkspace backward) {
+        int[] upward = forward.extractPath(meeting);
+        IntList path = new IntList();
+        path.add(upward[0]);
+        for (int i = 1; i < upward.length; i++) {
+            unpackEdge(upward[i - 1], upward[i], path);
+        }
+        for (int city = meeting, next = backward.getParent(city); next != -1; city = next, next = backward.getParent(city)) {
+            unpackEdge(city, next, path);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Añadir al camino las ciudades de la arista from -> to (sin incluir from),
+     * desplegando recursivamente los atajos con una pila explícita
+     */
+    private void unpackEdge(int from, int to, IntList path) {
+        IntList stack = new IntList();
+        stack.add(to);
+        stack.add(from);
+        while (stack.size() > 0) {
+            int a = stack.pop();
+            int b = stack.pop();
+            int middle = findMiddle(a, b);
+            if (middle == -1) {
+                path.add(b);
+            } else {
+                // Primero a -> middle y después middle -> b
+                stack.add(b);
+                stack.add(middle);
+                stack.add(middle);
+                stack.add(a);
+            }
+        }
+    }
+
+    private int findMiddle(int from, int to) {
+        if (rank.get(from) < rank.get(to)) {
+            for (int e = upOffsets.get(from); e < upOffsets.get(from + 1); e++) {
+                if (upTargets.get(e) == to) {
+                    return upMiddles.get(e);
+                }
+            }
+        } else {
+            for (int e = downOffsets.get(to); e < downOffsets.get(to + 1); e++) {
+                if (downSources.get(e) == from) {
+                    return downMiddles.get(e);
+                }
+            }
+        }
+        throw new IllegalStateException("Arista inexistente en la jerarquía: " + from + " -> " + to);
+    }
+
+    /**
+     * Escribir la jerarquía en una instantánea
+     *
+     * @param out Destino
+     * @throws IOException Si hay un error al escribir
+     */
+    void writeSnapshot(MapSnapshot.Writer out) throws IOException {
+        out.writeInt(numCities);
+        out.writeInt(numShortcuts);
+        out.writeInt(upTargets.limit());
+        out.writeInt(downSources.limit());
+        out.writeInts(rank);
+        out.writeInts(upOffsets);
+        out.writeInts(upTargets);
+        out.writeDoubles(upWeights);
+        out.writeInts(upMiddles);
+        out.writeInts(downOffsets);
+        out.writeInts(downSources);
+        out.writeDoubles(downWeights);
+        out.writeInts(downMiddles);
+    }
+
+    /**
+     * Leer una jerarquía escrita con writeSnapshot; todos sus arrays quedan proyectados en memoria
+     *
+     * @param in Origen
+     * @param graph El grafo al que corresponde
+     * @return La jerarquía lista para consultas
+     * @throws IOException Si hay un error al leer o no corresponde al grafo
+     */
+    static ContractionHierarchy readSnapshot(MapSnapshot.Reader in, Graph graph) throws IOException {
+        int n = in.readInt();
+        int numShortcuts = in.readInt();
+        int upEdges = in.readInt();
+        int downEdges = in.readInt();
+        if (n != graph.getNumCities()) {
+            throw new IOException("La jerarquía de la instantánea no corresponde al mapa");
+        }
+        return new ContractionHierarchy(n, in.mapInts(n),
+            in.mapInts(n + 1), in.mapInts(upEdges), in.mapDoubles(upEdges), in.mapInts(upEdges),
+            in.mapInts(n + 1), in.mapInts(downEdges), in.mapDoubles(downEdges), in.mapInts(downEdges),
+            numShortcuts);
+    }
+
+    /**
+     * Proceso de contracción: mantiene las listas de adyacencia dinámicas
+     * del grafo que queda por contraer
+     */
+    private static final class Contractor {
+        private final int n;
+        private final EdgeList[] out;
+        private final EdgeList[] in;
+        private final boolean[] contracted;
+        private final int[] deletedNeighbors;
+        // Nivel de cada ciudad: uno más que el mayor de sus vecinos ya contraídos
+        private final int[] level;
+        // Marca por contracción para tratar una sola vez cada vecino (de entrada y de salida)
+        private final int[] seen;
+        private int stamp;
+        // Carreteras originales que representan los atajos de la última llamada a processShortcuts
+        private int shortcutEdges;
+        private final SearchWorkspace witness;
+        // Destinos de la búsqueda de testigos en curso (los marcados con witnessStamp)
+        private final int[] witnessTarget;
+        private int witnessStamp;
+        private final EdgeArrays up = new EdgeArrays();
+        private final EdgeArrays down = new EdgeArrays();
+        private int numShortcuts;
+
+        Contractor(Graph graph) {
+            this.n = graph.getNumCities();
+            this.out = new EdgeList[n];
+            this.in = new EdgeList[n];
+            for (int i = 0; i < n; i++) {
+                out[i] = new EdgeList();
+                in[i] = new EdgeList();
+            }
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.getTarget(e);
+                    // Las carreteras cortadas (distancia infinita) no forman parte de la jerarquía
+                    if (v != u && graph.getWeight(e) < Double.POSITIVE_INFINITY) {
+                        out[u].addOrImprove(v, graph.getWeight(e), -1, 1);
+                        in[v].addOrImprove(u, graph.getWeight(e), -1, 1);
+                    }
+                }
+            }
+            this.contracted = new boolean[n];
+            this.deletedNeighbors = new int[n];
+            this.level = new int[n];
+            this.seen = new int[n];
+            this.witness = new SearchWorkspace(n);
+            this.witnessTarget = new int[n];
+        }
+
+        ContractionHierarchy contractAll() {
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.update(v, priority(v));
+            }
+
+            int[] rank = new int[n];
+            int nextRank = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                // Actualización perezosa: si la prioridad ha empeorado, volver a encolar
+                double current = priority(v);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    queue.update(v, current);
+                    continue;
+                }
+                contract(v);
+                rank[v] = nextRank++;
+
+                // Recalcular la prioridad de los vecinos afectados, una vez por vecino
+                stamp++;
+                for (int i = 0; i < out[v].size; i++) {
+                    updateNeighbor(v, out[v].nodes[i], queue);
+                }
+                for (int i = 0; i < in[v].size; i++) {
+                    updateNeighbor(v, in[v].nodes[i], queue);
+                }
+            }
+            return new ContractionHierarchy(n, rank, up, down, numShortcuts);
+        }
+
+        ContractionHierarchy contractInOrder(int[] order) {
+            int[] rank = new int[n];
+            for (int level = 0; level < n; level++) {
+                contract(order[level]);
+                rank[order[level]] = level;
+            }
+            return new ContractionHierarchy(n, rank, up, down, numShortcuts);
+        }
+
+        private void updateNeighbor(int v, int u, IndexedMinHeap queue) {
+            if (seen[u] == stamp) {
+                return; // Vecino en los dos sentidos: ya actualizado
+            }
+            seen[u] = stamp;
+            deletedNeighbors[u]++;
+            level[u] = Math.max(level[u], level[v] + 1);
+            queue.update(u, priority(u));
+        }
+
+        /**
+         * Prioridad de contracción (menor = antes). Suma:
+         * - la diferencia de aristas (atajos añadidos menos aristas eliminadas), para
+         *   que el grafo restante no se densifique;
+         * - la misma diferencia contando carreteras originales (un atajo representa
+         *   todas las que despliega), para no encadenar atajos cada vez más largos;
+         * - los vecinos ya contraídos y el nivel, para repartir la contracción
+         *   uniformemente por el mapa y mantener baja la profundidad de la jerarquía,
+         *   que es lo que recorren las consultas.
+         */
+        private double priority(int v) {
+            int removedEdges = 0;
+            for (int i = 0; i < out[v].size; i++) {
+                removedEdges += out[v].originalEdges[i];
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                removedEdges += in[v].originalEdges[i];
+            }
+            int shortcuts = processShortcuts(v, true);
+            int edgeDifference = shortcuts - out[v].size - in[v].size;
+            int originalEdgeDifference = shortcutEdges - removedEdges;
+            return EDGE_DIFFERENCE_WEIGHT * edgeDifference + ORIGINAL_EDGES_WEIGHT * originalEdgeDifference
+                + DELETED_NEIGHBORS_WEIGHT * deletedNeighbors[v] + LEVEL_WEIGHT * level[v];
+        }
+
+        private void contract(int v) {
+            // Las aristas restantes de v van a ciudades que se contraerán después
+            for (int i = 0; i < out[v].size; i++) {
+                up.add(v, out[v].nodes[i], out[v].weights[i], out[v].middles[i]);
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                down.add(v, in[v].nodes[i], in[v].weights[i], in[v].middles[i]);
+            }
+
+            processShortcuts(v, false);
+
+            contracted[v] = true;
+            for (int i = 0; i < out[v].size; i++) {
+                in[out[v].nodes[i]].remove(v);
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                out[in[v].nodes[i]].remove(v);
+            }
+        }
+
+        /**
+         * Calcular los atajos necesarios para contraer v
+         *
+         * @param v Ciudad a contraer
+         * @param simulate true para solo contarlos, false para añadirlos al grafo
+         * @return Número de atajos necesarios (y en shortcutEdges, las carreteras originales que representan)
+         */
+        private int processShortcuts(int v, boolean simulate) {
+            int count = 0;
+            shortcutEdges = 0;
+            EdgeList outgoing = out[v];
+            EdgeList incoming = in[v];
+            for (int i = 0; i < incoming.size; i++) {
+                int u = incoming.nodes[i];
+                double inWeight = incoming.weights[i];
+                double maxOut = 0;
+                for (int j = 0; j < outgoing.size; j++) {
+                    if (outgoing.nodes[j] != u) {
+                        maxOut = Math.max(maxOut, outgoing.weights[j]);
+                    }
+                }
+                if (maxOut == 0) {
+                    continue;
+                }
+                witnessStamp++;
+                int targets = 0;
+                for (int j = 0; j < outgoing.size; j++) {
+                    if (outgoing.nodes[j] != u) {
+                        witnessTarget[outgoing.nodes[j]] = witnessStamp;
+                        targets++;
+                    }
+                }
+                witnessSearch(u, v, inWeight + maxOut, targets, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int w = outgoing.nodes[j];
+                    if (w == u) {
+                        continue;
+                    }
+                    double via = inWeight + outgoing.weights[j];
+                    if (witness.getG(w) > via) {
+                        count++;
+                        int edges = incoming.originalEdges[i] + outgoing.originalEdges[j];
+                        shortcutEdges += edges;
+                        if (!simulate) {
+                            out[u].addOrImprove(w, via, v, edges);
+                            in[w].addOrImprove(u, via, v, edges);
+                            numShortcuts++;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Dijkstra limitado desde source que evita la ciudad excluida. Deja en el
+         * espacio de trabajo la mejor distancia conocida a cada ciudad. Termina en
+         * cuanto ha asentado todos los destinos marcados: sus distancias ya no cambian.
+         */
+        private void witnessSearch(int source, int excluded, double maxCost, int targets, int settleLimit) {
+            witness.reset();
+            IndexedMinHeap queue = witness.getOpenSet();
+            witness.update(source, 0, -1);
+            queue.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!queue.isEmpty() && settled < settleLimit) {
+                if (queue.peekKey() > maxCost) {
+                    break;
+                }
+                int current = queue.poll();
+                double currentG = witness.getG(current);
+                settled++;
+                if (witnessTarget[current] == witnessStamp && --targets == 0) {
+                    break;
+                }
+                EdgeList edges = out[current];
+                for (int i = 0; i < edges.size; i++) {
+                    int next = edges.nodes[i];
+                    if (next == excluded) {
+                        continue;
+                    }
+                    double cost = currentG + edges.weights[i];
+                    if (cost < witness.getG(next)) {
+                        witness.update(next, cost, current);
+                        queue.insertOrDecrease(next, cost);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lista de adyacencia dinámica con como mucho una arista por vecino
+     */
+    private static final class EdgeList {
+        int[] nodes = new int[4];
+        double[] weights = new double[4];
+        int[] middles = new int[4];
+        int[] originalEdges = new int[4]; // Carreteras originales que representa la arista
+        int size;
+
+        void addOrImprove(int node, double weight, int middle, int edges) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    if (weight < weights[i]) {
+                        weights[i] = weight;
+                        middles[i] = middle;
+                        originalEdges[i] = edges;
+                    }
+                    return;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+                originalEdges = Arrays.copyOf(originalEdges, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            originalEdges[size] = edges;
+            size++;
+        }
+
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    size--;
+                    nodes[i] = nodes[size];
+                    weights[i] = weights[size];
+                    middles[i] = middles[size];
+                    originalEdges[i] = originalEdges[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Aristas acumuladas durante la contracción, agrupadas después en CSR
+     */
+    private static final class EdgeArrays {
+        int[] owners = new int[16];
+        int[] nodes = new int[16];
+        double[] weights = new double[16];
+        int[] middles = new int[16];
+        int size;
+
+        void add(int owner, int node, double weight, int middle) {
+            if (size == owners.length) {
+                owners = Arrays.copyOf(owners, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            owners[size] = owner;
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        /**
+         * Ordenar las aristas por propietario (ordenación por conteo) y devolver los offsets CSR.
+         * Después de llamarlo, nodes, weights y middles quedan en orden CSR.
+         */
+        int[] offsets(int numCities) {
+            int[] offsets = new int[numCities + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[owners[i] + 1]++;
+            }
+            for (int i = 0; i < numCities; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, numCities);
+            int[] sortedNodes = new int[size];
+            double[] sortedWeights = new double[size];
+            int[] sortedMiddles = new int[size];
+            for (int i = 0; i < size; i++) {
+                int pos = next[owners[i]]++;
+                sortedNodes[pos] = nodes[i];
+                sortedWeights[pos] = weights[i];
+                sortedMiddles[pos] = middles[i];
+            }
+            nodes = sortedNodes;
+            weights = sortedWeights;
+            middles = sortedMiddles;
+            owners = null;
+            return offsets;
+        }
+    }
+}
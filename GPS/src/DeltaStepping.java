@@ -0,0 +1,335 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Caminos mínimos con delta-stepping (Meyer y Sanders): las ciudades se
+ * agrupan en cubetas de anchura delta según su distancia provisional y todas
+ * las de la cubeta más baja se expanden a la vez, repartidas entre los hilos
+ * de un ForkJoinPool. Primero se relajan las carreteras cortas (peso menor o
+ * igual que delta), que pueden volver a meter ciudades en la misma cubeta,
+ * hasta que la cubeta se vacía; después, una sola vez, las largas. Al terminar
+ * una cubeta, todas sus ciudades tienen ya su distancia definitiva.
+ *
+ * Varias tareas pueden mejorar la misma ciudad a la vez: la distancia se lee
+ * sin bloqueo y solo se actualiza, junto con su ciudad anterior, bajo uno de
+ * LOCK_STRIPES cerrojos repartidos por índice de ciudad.
+ *
+ * La memoria de cada búsqueda (distancias, padres y cubetas) es de un hilo y
+ * se reutiliza en sus búsquedas siguientes, como los SearchWorkspace: se
+ * guarda en un {@link WorkspacePool} que se libera con close().
+ *
+ * Solo compensa en mapas muy grandes: en uno pequeño, el coste de repartir
+ * cada fase entre hilos supera al de la búsqueda secuencial entera (ver
+ * {@link #isWorthwhile(Graph, ForkJoinPool)}).
+ */
+public final class DeltaStepping {
+    // Por debajo de este número de ciudades se usa el motor secuencial
+    public static final int MIN_PARALLEL_CITIES = 100_000;
+    // Ciudades de la frontera por tarea; una frontera más pequeña se expande en el hilo que busca
+    private static final int BLOCK_SIZE = 256;
+    private static final int LOCK_STRIPES = 1 << 12;
+    // delta en múltiplos del peso medio de las carreteras
+    private static final double DELTA_FACTOR = 2;
+    // Máximo de cubetas del array circular; si la carretera más larga ocupa más, delta crece
+    private static final int MAX_BUCKET_SLOTS = 1 << 12;
+    private static final int MAX_BUCKET = Integer.MAX_VALUE - 1;
+
+    private final Graph graph;
+    private final double delta;
+    // Cubetas del array circular: todas las distancias pendientes caben en él (ver bucketSlots)
+    private final int bucketSlots;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final WorkspacePool<Search> searches;
+
+    /**
+     * @param graph El grafo de carreteras
+     */
+    public DeltaStepping(Graph graph) {
+        this.graph = graph;
+        double total = 0;
+        double longest = 0;
+        long finite = 0;
+        for (int e = 0; e < graph.getNumEdges(); e++) {
+            double weight = graph.getWeight(e);
+            if (weight != Double.POSITIVE_INFINITY) {
+                total += weight;
+                longest = Math.max(longest, weight);
+                finite++;
+            }
+        }
+        double mean = finite > 0 ? total / finite : 0;
+        // Una ciudad mejorada desde la cubeta b cae como mucho en la cubeta
+        // b + floor(longest / delta) + 1, así que basta con ese número de cubetas más una
+        double width = Math.max(mean > 0 ? mean * DELTA_FACTOR : 1, longest / (MAX_BUCKET_SLOTS - 2));
+        this.delta = width;
+        this.bucketSlots = Integer.highestOneBit((int) (longest / width) + 2) << 1;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.searches = new WorkspacePool<>(Search::new);
+    }
+
+    /**
+     * @param graph El grafo de carreteras
+     * @param pool Pool en el que se harían las búsquedas
+     * @return true si el mapa es bastante grande y el pool tiene más de un hilo
+     */
+    public static boolean isWorthwhile(Graph graph, ForkJoinPool pool) {
+        return graph.getNumCities() >= MIN_PARALLEL_CITIES && pool.getParallelism() > 1;
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * Ruta óptima entre dos ciudades. La búsqueda se detiene en cuanto la
+     * cubeta del destino está terminada.
+     *
+     * @param startIndex Índice de la ciudad de inicio
+     * @param goalIndex Índice de la ciudad de destino
+     * @param pool Pool en el que expandir las cubetas
+     * @param ws Espacio de trabajo del hilo, solo para contar el trabajo hecho
+     * @return La ruta, o null si no existe una ruta
+     */
+    public Route findPath(int startIndex, int goalIndex, ForkJoinPool pool, SearchWorkspace ws) {
+        Search search = searches.get();
+        search.run(startIndex, goalIndex, pool, ws);
+        double cost = search.distance(goalIndex);
+        if (cost == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        IntList reversed = new IntList();
+        for (int city = goalIndex; city != -1; city = search.parents[city]) {
+            reversed.add(city);
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return new Route(path, cost);
+    }
+
+    /**
+     * Distancia mínima desde una ciudad a todas las demás
+     *
+     * @param sourceIndex Índice de la ciudad de origen
+     * @param pool Pool en el que expandir las cubetas
+     * @param ws Espacio de trabajo del hilo, solo para contar el trabajo hecho
+     * @param distances Array de salida (tamaño N) con la distancia a cada ciudad, o infinito
+     */
+    public void computeDistances(int sourceIndex, ForkJoinPool pool, SearchWorkspace ws, double[] distances) {
+        Search search = searches.get();
+        search.run(sourceIndex, -1, pool, ws);
+        pool.submit(() -> IntStream.range(0, distances.length).parallel()
+            .forEach(city -> distances[city] = search.distance(city))).join();
+    }
+
+    /**
+     * Liberar la memoria de búsqueda de todos los hilos. Solo se debe llamar
+     * cuando ningún hilo va a volver a buscar con este motor.
+     */
+    public void close() {
+        searches.close();
+    }
+
+    private int bucketOf(double distance) {
+        return (int) Math.min(distance / delta, MAX_BUCKET);
+    }
+
+    /**
+     * Memoria de las búsquedas de un hilo. Como en SearchWorkspace, un contador
+     * de generación evita limpiar los arrays entre búsquedas: una ciudad solo
+     * tiene distancia si su marca es la de la búsqueda actual. La marca se
+     * escribe después de la distancia, así que una tarea que lee la marca actual
+     * lee también una distancia de esta búsqueda.
+     */
+    private final class Search {
+        private final AtomicLongArray distances = new AtomicLongArray(graph.getNumCities());  // Bits del double
+        private final AtomicIntegerArray reached = new AtomicIntegerArray(graph.getNumCities()); // Generación de la distancia
+        private final int[] parents = new int[graph.getNumCities()];
+        // Cubeta en la que está cada ciudad si queuedGeneration es la actual, o -1 si ya ha salido
+        private final int[] queuedBucket = new int[graph.getNumCities()];
+        private final int[] queuedGeneration = new int[graph.getNumCities()];
+        private final boolean[] settled = new boolean[graph.getNumCities()];
+        // Cubetas en un array circular (cubeta b en b % bucketSlots) y una lista libre para intercambiar
+        private final IntList[] buckets = new IntList[bucketSlots];
+        private IntList spare = new IntList();
+        private int pending; // Entradas en las cubetas, incluidas las de ciudades que ya han cambiado de cubeta
+        private final IntList frontier = new IntList();
+        private final IntList bucketCities = new IntList();
+        private int generation;
+        private ForkJoinPool pool;
+        private SearchWorkspace ws;
+
+        Search() {
+            for (int i = 0; i < bucketSlots; i++) {
+                buckets[i] = new IntList();
+            }
+        }
+
+        double distance(int city) {
+            return reached.get(city) == generation ? Double.longBitsToDouble(distances.get(city)) : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Empezar una búsqueda nueva en O(1), salvo cuando el contador de generación da la vuelta
+         */
+        private void reset() {
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                for (int i = 0; i < reached.length(); i++) {
+                    reached.set(i, 0);
+                }
+                Arrays.fill(queuedGeneration, 0);
+                generation = 1;
+            }
+            if (pending > 0) {
+                // La búsqueda anterior se detuvo en su destino y dejó cubetas sin vaciar
+                for (IntList bucket : buckets) {
+                    bucket.clear();
+                }
+                pending = 0;
+            }
+        }
+
+        /**
+         * @param source Ciudad de origen
+         * @param goal Ciudad en la que parar, o -1 para calcular todas las distancias
+         * @param pool Pool en el que expandir las cubetas
+         * @param ws Espacio de trabajo en el que contar el trabajo hecho
+         */
+        void run(int source, int goal, ForkJoinPool pool, SearchWorkspace ws) {
+            this.pool = pool;
+            this.ws = ws;
+            reset();
+            distances.set(source, Double.doubleToRawLongBits(0.0));
+            reached.set(source, generation);
+            parents[source] = -1;
+            enqueue(source);
+
+            int bucket = 0;
+            while (pending > 0) {
+                while (buckets[bucket & (bucketSlots - 1)].size() == 0) {
+                    bucket++;
+                }
+                int slot = bucket & (bucketSlots - 1);
+                // Carreteras cortas, hasta que no queda ninguna ciudad en la cubeta
+                while (buckets[slot].size() > 0) {
+                    IntList taken = buckets[slot];
+                    buckets[slot] = spare;
+                    spare = taken;
+                    pending -= taken.size();
+                    frontier.clear();
+                    int edges = 0;
+                    for (int i = 0; i < taken.size(); i++) {
+                        int city = taken.get(i);
+                        if (queuedGeneration[city] != generation || queuedBucket[city] != bucket) {
+                            continue; // Ya está en una cubeta anterior
+                        }
+                        queuedBucket[city] = -1;
+                        frontier.add(city);
+                        edges += graph.edgeEnd(city) - graph.edgeStart(city);
+                        if (!settled[city]) {
+                            settled[city] = true;
+                            bucketCities.add(city);
+                        }
+                    }
+                    taken.clear();
+                    ws.countRelaxedEdges(edges);
+                    relax(frontier, true);
+                }
+
+                // Carreteras largas de todas las ciudades de la cubeta, una sola vez
+                ws.countExpandedNodes(bucketCities.size());
+                relax(bucketCities, false);
+                for (int i = 0; i < bucketCities.size(); i++) {
+                    settled[bucketCities.get(i)] = false;
+                }
+                bucketCities.clear();
+
+                // Una cubeta terminada no puede volver a mejorar
+                if (goal >= 0 && distance(goal) != Double.POSITIVE_INFINITY && bucketOf(distance(goal)) <= bucket
+                        && buckets[slot].size() == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Relajar las carreteras cortas o las largas de las ciudades indicadas,
+         * en paralelo si son bastantes, y meter en su cubeta las ciudades mejoradas
+         */
+        private void relax(IntList cities, boolean light) {
+            int count = cities.size();
+            if (count == 0) {
+                return;
+            }
+            if (count <= BLOCK_SIZE) {
+                enqueueAll(relaxBlock(cities, 0, count, light));
+                return;
+            }
+            int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            List<IntList> improved = pool.submit(() -> IntStream.range(0, blocks).parallel()
+                .mapToObj(block -> relaxBlock(cities, block * BLOCK_SIZE, Math.min(count, (block + 1) * BLOCK_SIZE), light))
+                .collect(Collectors.toList())).join();
+            for (IntList list : improved) {
+                enqueueAll(list);
+            }
+        }
+
+        private IntList relaxBlock(IntList cities, int from, int to, boolean light) {
+            IntList improved = new IntList();
+            for (int i = from; i < to; i++) {
+                int city = cities.get(i);
+                double cityDistance = distance(city);
+                for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+                    double weight = graph.getWeight(e);
+                    if ((weight <= delta) == light && improve(graph.getTarget(e), city, cityDistance + weight)) {
+                        improved.add(graph.getTarget(e));
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /**
+         * @return true si la distancia nueva mejora la de la ciudad (y se ha guardado)
+         */
+        private boolean improve(int city, int parent, double distance) {
+            if (!(distance < distance(city))) {
+                return false;
+            }
+            synchronized (locks[city & (LOCK_STRIPES - 1)]) {
+                if (!(distance < distance(city))) {
+                    return false;
+                }
+                distances.set(city, Double.doubleToRawLongBits(distance));
+                reached.set(city, generation);
+                parents[city] = parent;
+            }
+            return true;
+        }
+
+        private void enqueueAll(IntList cities) {
+            for (int i = 0; i < cities.size(); i++) {
+                enqueue(cities.get(i));
+            }
+        }
+
+        private void enqueue(int city) {
+            int bucket = bucketOf(distance(city));
+            if (queuedGeneration[city] != generation || queuedBucket[city] != bucket) {
+                queuedGeneration[city] = generation;
+                queuedBucket[city] = bucket;
+                buckets[bucket & (bucketSlots - 1)].add(city);
+                pending++;
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Tabla de distancias mínimas entre un conjunto de ciudades de origen y otro
+ * de destino, guardada en un único array primitivo por filas (origen × destino).
+ * Se calcula en paralelo: una búsqueda de uno a muchos por cada origen repartidas
+ * en un ForkJoinPool o, para mapas densos y completos, un Floyd–Warshall por bloques.
+ */
+public class DistanceTable {
+    // Tamaño de bloque del Floyd–Warshall (64 × 64 doubles = 32 KB, cabe en caché L1/L2)
+    private static final int BLOCK_SIZE = 64;
+    // Número máximo de ciudades para usar Floyd–Warshall (la tabla ocupa N² doubles)
+    private static final int FLOYD_WARSHALL_MAX_CITIES = 4096;
+    // Número máximo de distancias de una tabla (tamaño máximo de un array en la JVM)
+    public static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private final int[] sources;
+    private final int[] targets;
+    private final double[] distances; // distances[fila * targets.length + columna]
+    private final int[] rowOfCity;    // Fila de cada ciudad, o -1
+    private final int[] columnOfCity; // Columna de cada ciudad, o -1
+
+    private DistanceTable(int numCities, int[] sources, int[] targets, double[] distances) {
+        this.sources = sources;
+        this.targets = targets;
+        this.distances = distances;
+        this.rowOfCity = positions(numCities, sources);
+        this.columnOfCity = positions(numCities, targets);
+    }
+
+    private static int[] positions(int numCities, int[] cities) {
+        int[] positions = new int[numCities];
+        Arrays.fill(positions, -1);
+        for (int i = cities.length - 1; i >= 0; i--) {
+            positions[cities[i]] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Calcular la tabla de distancias entre todas las ciudades. Para mapas densos
+     * (como una matriz de distancias completa) se usa Floyd–Warshall por bloques;
+     * para mapas dispersos, una búsqueda desde cada ciudad.
+     *
+     * @param graph El grafo de carreteras
+     * @return La tabla N × N
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link #MAX_CELLS} distancias
+     */
+    public static DistanceTable allPairs(Graph graph) {
+        int n = graph.getNumCities();
+        checkSize(n, n);
+        int[] all = IntStream.range(0, n).toArray();
+        if (n <= FLOYD_WARSHALL_MAX_CITIES && (long) graph.getNumEdges() * 4 >= (long) n * n) {
+            return new DistanceTable(n, all, all, floydWarshall(graph, ForkJoinPool.commonPool()));
+        }
+        return build(graph, all, all, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calcular la tabla de distancias entre los orígenes y destinos dados
+     *
+     * @param graph El grafo de carreteras
+     * @param sources Índices de las ciudades de origen (filas)
+     * @param targets Índices de las ciudades de destino (columnas)
+     * @return La tabla de distancias
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link #MAX_CELLS} distancias
+     */
+    public static DistanceTable build(Graph graph, int[] sources, int[] targets) {
+        return build(graph, sources, targets, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calcular la tabla de distancias con una búsqueda de uno a muchos por cada
+     * origen, repartidas entre los hilos del pool. Cada búsqueda se detiene en
+     * cuanto ha asentado todos los destinos.
+     *
+     * @param graph El grafo de carreteras
+     * @param sources Índices de las ciudades de origen (filas)
+     * @param targets Índices de las ciudades de destino (columnas)
+     * @param pool Pool de hilos en el que ejecutar las búsquedas
+     * @return La tabla de distancias
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link #MAX_CELLS} distancias
+     */
+    public static DistanceTable build(Graph graph, int[] sources, int[] targets, ForkJoinPool pool) {
+        // Espacios de trabajo solo para esta tabla: se sueltan al terminar
+        WorkspacePool<SearchWorkspace> workspaces = WorkspacePool.forCities(graph.getNumCities());
+        try {
+            return build(graph, sources, targets, pool, workspaces);
+        } finally {
+            workspaces.close();
+        }
+    }
+
+    /**
+     * Igual que {@link #build(Graph, int[], int[], ForkJoinPool)} pero con los
+     * espacios de trabajo por hilo de un buscador (ver AStar.computeDistanceTable),
+     * de forma que las tablas sucesivas no vuelven a crearlos en cada hilo del pool
+     *
+     * @param graph El grafo de carreteras
+     * @param sources Índices de las ciudades de origen (filas)
+     * @param targets Índices de las ciudades de destino (columnas)
+     * @param pool Pool de hilos en el que ejecutar las búsquedas
+     * @param workspaces Espacios de trabajo por hilo para el grafo
+     * @return La tabla de distancias
+     * @throws IllegalArgumentException Si la tabla tendría más de {@link #MAX_CELLS} distancias
+     */
+    static DistanceTable build(Graph graph, int[] sources, int[] targets, ForkJoinPool pool,
+                               WorkspacePool<SearchWorkspace> workspaces) {
+        checkSize(sources.length, targets.length);
+        int n = graph.getNumCities();
+        int[] sourceCopy = sources.clone();
+        int[] targetCopy = targets.clone();
+        double[] distances = new double[(int) ((long) sourceCopy.length * targetCopy.length)];
+        boolean[] isTarget = new boolean[n];
+        int distinctTargets = 0;
+        for (int target : targetCopy) {
+            if (!isTarget[target]) {
+                isTarget[target] = true;
+                distinctTargets++;
+            }
+        }
+        int targetCount = distinctTargets;
+
+        // Un espacio de trabajo por hilo, reutilizado por todas sus búsquedas
+        pool.submit(() -> IntStream.range(0, sourceCopy.length).parallel().forEach(row -> {
+            SearchWorkspace ws = workspaces.get();
+            oneToMany(graph, sourceCopy[row], isTarget, targetCount, ws);
+            int base = (int) ((long) row * targetCopy.length);
+            for (int column = 0; column < targetCopy.length; column++) {
+                distances[base + column] = ws.isClosed(targetCopy[column])
+                        ? ws.getG(targetCopy[column]) : Double.POSITIVE_INFINITY;
+            }
+        })).join();
+
+        return new DistanceTable(n, sourceCopy, targetCopy, distances);
+    }
+
+    /**
+     * Comprobar que la tabla cabe en un array antes de reservarla: el producto
+     * filas × columnas se calcula en long para que no desborde
+     */
+    private static void checkSize(int rows, int columns) {
+        long cells = (long) rows * columns;
+        if (cells > MAX_CELLS) {
+            throw new IllegalArgumentException("La tabla de " + rows + " x " + columns + " distancias supera el máximo de "
+                + MAX_CELLS + "; use menos orígenes o destinos");
+        }
+    }
+
+    /**
+     * Dijkstra desde un origen que termina al asentar todos los destinos.
+     * Las distancias y los padres finales quedan en el espacio de trabajo (ciudades cerradas).
+     */
+    static void oneToMany(Graph graph, int source, boolean[] isTarget, int targetCount, SearchWorkspace ws) {
+        ws.reset();
+        IndexedMinHeap openSet = ws.getOpenSet();
+        ws.update(source, 0, -1);
+        openSet.insertOrDecrease(source, 0);
+        int remaining = targetCount;
+        while (!openSet.isEmpty() && remaining > 0) {
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            ws.close(current);
+            if (isTarget[current]) {
+                remaining--;
+            }
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
+                double cost = currentG + graph.getWeight(e);
+                if (!ws.isClosed(neighbor) && cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Floyd–Warshall por bloques en paralelo. En cada ronda k se actualiza primero
+     * el bloque diagonal, después los bloques de su fila y columna (en paralelo) y
+     * por último el resto de bloques (en paralelo), que ya solo leen bloques fijos.
+     */
+    private static double[] floydWarshall(Graph graph, ForkJoinPool pool) {
+        int n = graph.getNumCities();
+        double[] dist = new double[n * n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            dist[i * n + i] = 0;
+            for (int e = graph.edgeStart(i); e < graph.edgeEnd(i); e++) {
+                int j = graph.getTarget(e);
+                dist[i * n + j] = Math.min(dist[i * n + j], graph.getWeight(e));
+            }
+        }
+
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (int kb = 0; kb < blocks; kb++) {
+            int k = kb;
+            relaxBlock(dist, n, k, k, k);
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(b -> {
+                if (b != k) {
+                    relaxBlock(dist, n, k, b, k); // Fila k
+                    relaxBlock(dist, n, b, k, k); // Columna k
+                }
+            })).join();
+            pool.submit(() -> IntStream.range(0, blocks * blocks).parallel().forEach(index -> {
+                int ib = index / blocks;
+                int jb = index % blocks;
+                if (ib != k && jb != k) {
+                    relaxBlock(dist, n, ib, jb, k);
+                }
+            })).join();
+        }
+        return dist;
+    }
+
+    /**
+     * Actualizar el bloque (ib, jb) usando como intermedias las ciudades del bloque kb
+     */
+    private static void relaxBlock(double[] dist, int n, int ib, int jb, int kb) {
+        int kStart = kb * BLOCK_SIZE;
+        int kEnd = Math.min(n, kStart + BLOCK_SIZE);
+        int iStart = ib * BLOCK_SIZE;
+        int iEnd = Math.min(n, iStart + BLOCK_SIZE);
+        int jStart = jb * BLOCK_SIZE;
+        int jEnd = Math.min(n, jStart + BLOCK_SIZE);
+        for (int k = kStart; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = iStart; i < iEnd; i++) {
+                int iRow = i * n;
+                double ik = dist[iRow + k];
+                if (ik == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int j = jStart; j < jEnd; j++) {
+                    double through = ik + dist[kRow + j];
+                    if (through < dist[iRow + j]) {
+                        dist[iRow + j] = through;
+                    }
+                }
+            }
+        }
+    }
+
+    public int getNumRows() {
+        return sources.length;
+    }
+
+    public int getNumColumns() {
+        return targets.length;
+    }
+
+    /**
+     * @param row Fila de la tabla
+     * @return Índice de la ciudad de origen de esa fila
+     */
+    public int getSource(int row) {
+        return sources[row];
+    }
+
+    /**
+     * @param column Columna de la tabla
+     * @return Índice de la ciudad de destino de esa columna
+     */
+    public int getTarget(int column) {
+        return targets[column];
+    }
+
+    /**
+     * Obtener una distancia por posición en la tabla
+     *
+     * @param row Fila (origen)
+     * @param column Columna (destino)
+     * @return La distancia mínima, o infinito si no existe una ruta
+     */
+    public double get(int row, int column) {
+        return distances[(int) ((long) row * targets.length) + column];
+    }
+
+    /**
+     * Obtener la distancia entre dos ciudades por su índice en el grafo
+     *
+     * @param fromCity Índice de la ciudad de origen (debe ser una fila de la tabla)
+     * @param toCity Índice de la ciudad de destino (debe ser una columna de la tabla)
+     * @return La distancia mínima, o infinito si no existe una ruta
+     * @throws IllegalArgumentException Si alguna ciudad no forma parte de la tabla
+     */
+    public double getDistance(int fromCity, int toCity) {
+        int row = rowOfCity[fromCity];
+        int column = columnOfCity[toCity];
+        if (row < 0 || column < 0) {
+            throw new IllegalArgumentException("La ciudad no forma parte de la tabla de distancias");
+        }
+        return get(row, column);
+    }
+
+    /**
+     * Copiar una fila completa de la tabla
+     *
+     * @param row Fila (origen)
+     * @return Distancias a cada destino, en el orden de las columnas
+     */
+    public double[] getRow(int row) {
+        int base = (int) ((long) row * targets.length);
+        return Arrays.copyOfRange(distances, base, base + targets.length);
+    }
+}
@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lector de archivos de cartografía en formato de lista de aristas:
+ *
+ *   ARISTAS
+ *   Barcelona@41.38740,2.16860
+ *   Madrid@40.41680,-3.70380
+ *   ...
+ *   CARRETERAS
+ *   Barcelona;Madrid;621
+ *   Madrid;Barcelona;630;1
+ *
+ * Tras la cabecera se declaran las ciudades, una por línea y con coordenadas
+ * opcionales, y a partir de la línea CARRETERAS cada línea es una carretera
+ * "origen;destino;distancia[;sentido único]". Las carreteras son de doble
+ * sentido salvo que el cuarto campo sea 1. Las líneas vacías y las que
+ * empiezan por '#' se omiten.
+ *
+ * El archivo ocupa y se lee en un tiempo proporcional al número de
+ * carreteras, no a N². Como en MatrixFileReader, el archivo se proyecta en
+ * memoria y se divide en trozos por saltos de línea: las ciudades se leen en
+ * orden y las carreteras en paralelo. Los nombres de origen y destino se
+ * buscan directamente con sus bytes en una tabla hash, sin crear un String
+ * por carretera.
+ */
+final class EdgeListFileReader {
+    static final String HEADER = "ARISTAS";
+    static final String ROADS_SECTION = "CARRETERAS";
+    private static final byte[] ROADS_SECTION_BYTES = ROADS_SECTION.getBytes(StandardCharsets.UTF_8);
+
+    private EdgeListFileReader() {
+    }
+
+    /**
+     * @param file Archivo a comprobar
+     * @return true si la primera línea del archivo es la cabecera ARISTAS
+     * @throws IOException Si hay un error al leer el archivo
+     */
+    static boolean isEdgeList(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return MappedText.firstLineEquals(channel, channel.size(), HEADER);
+        }
+    }
+
+    /**
+     * Leer un archivo de cartografía en formato de lista de aristas como grafo disperso (CSR)
+     *
+     * @param file Archivo a leer
+     * @return El grafo
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
+     */
+    static Graph readGraph(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String header = MappedText.readFirstLine(channel, size);
+            if (!header.equals(HEADER)) {
+                throw new IOException("Cabecera inválida: se esperaba " + HEADER + " y se encontró '" + header + "'");
+            }
+            long[] bounds = MappedText.split(channel, size, MappedText.skipFirstLine(channel, size));
+
+            // Las ciudades se leen en orden, trozo a trozo, hasta la línea CARRETERAS
+            Cities cities = new Cities();
+            int chunk = 0;
+            byte[] data = null;
+            int roadsStart = -1;
+            while (roadsStart < 0 && chunk < bounds.length - 1) {
+                data = MappedText.load(channel, bounds[chunk], bounds[chunk + 1]);
+                roadsStart = cities.parse(data);
+                chunk++;
+            }
+            if (roadsStart < 0) {
+                throw new IOException("Cartografía inválida: falta la línea " + ROADS_SECTION + " tras las ciudades");
+            }
+            NameTable table = cities.buildTable();
+
+            // Resto del trozo de la línea CARRETERAS y, en paralelo, los trozos siguientes
+            List<Roads> parts = new ArrayList<>();
+            Roads first = new Roads(data, table);
+            first.parse(roadsStart);
+            parts.add(first);
+            parts.addAll(MappedText.parse(channel, bounds, chunk, bytes -> {
+                Roads roads = new Roads(bytes, table);
+                roads.parse(0);
+                return roads;
+            }));
+            return build(cities, parts);
+        }
+    }
+
+    /**
+     * Construir el CSR; las aristas de cada ciudad quedan en el orden del archivo
+     */
+    private static Graph build(Cities cities, List<Roads> parts) {
+        int n = cities.names.size();
+        int m = 0;
+        for (Roads roads : parts) {
+            m += roads.from.size();
+        }
+        int[] offsets = new int[n + 1];
+        for (Roads roads : parts) {
+            for (int i = 0; i < roads.from.size(); i++) {
+                offsets[roads.from.get(i) + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        for (Roads roads : parts) {
+            for (int i = 0; i < roads.from.size(); i++) {
+                int pos = next[roads.from.get(i)]++;
+                targets[pos] = roads.to.get(i);
+                weights[pos] = roads.weights[i];
+            }
+        }
+        boolean withCoordinates = n > 0 && cities.numCoordinates == n;
+        return new Graph(cities.names, offsets, targets, weights,
+            withCoordinates ? Arrays.copyOf(cities.latitudes, n) : null,
+            withCoordinates ? Arrays.copyOf(cities.longitudes, n) : null);
+    }
+
+    /**
+     * Sección de ciudades: nombres, coordenadas y los bytes de cada nombre
+     */
+    private static final class Cities {
+        final List<String> names = new ArrayList<>();
+        double[] latitudes = new double[16];
+        double[] longitudes = new double[16];
+        int numCoordinates;
+        // Bytes UTF-8 de todos los nombres seguidos; el de la ciudad i está en [nameEnds[i - 1], nameEnds[i])
+        byte[] nameBytes = new byte[256];
+        final IntList nameEnds = new IntList();
+
+        /**
+         * Leer ciudades de un trozo
+         *
+         * @return Posición donde empiezan las carreteras, o -1 si el trozo no llega a la línea CARRETERAS
+         */
+        int parse(byte[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int lineEnd = lineEnd(data, pos);
+                int start = trimStart(data, pos, lineEnd);
+                int end = trimEnd(data, start, lineEnd);
+                pos = lineEnd + 1;
+                if (start == end || data[start] == '#') {
+                    continue;
+                }
+                if (Arrays.equals(data, start, end, ROADS_SECTION_BYTES, 0, ROADS_SECTION_BYTES.length)) {
+                    return Math.min(pos, data.length);
+                }
+                addCity(data, start, end);
+            }
+            return -1;
+        }
+
+        private void addCity(byte[] data, int start, int end) throws IOException {
+            int at = start;
+            while (at < end && data[at] != '@') {
+                if (data[at] == ';') {
+                    throw new IOException("Declaración de ciudad inválida (el nombre no puede contener ';'): '"
+                        + MappedText.decode(data, start, end) + "'");
+                }
+                at++;
+            }
+            int nameEnd = trimEnd(data, start, at);
+            if (nameEnd == start) {
+                throw new IOException("Declaración de ciudad sin nombre: '" + MappedText.decode(data, start, end) + "'");
+            }
+            String name = MappedText.decode(data, start, nameEnd);
+            int city = names.size();
+            names.add(name);
+            int used = city == 0 ? 0 : nameEnds.get(city - 1);
+            int length = nameEnd - start;
+            if (used + length > nameBytes.length) {
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, used + length));
+            }
+            System.arraycopy(data, start, nameBytes, used, length);
+            nameEnds.add(used + length);
+
+            if (city == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, city * 2);
+                longitudes = Arrays.copyOf(longitudes, city * 2);
+            }
+            if (at < end) {
+                parseCoordinates(data, at + 1, end, name, city);
+            }
+        }
+
+        private void parseCoordinates(byte[] data, int start, int end, String name, int city) throws IOException {
+            int comma = start;
+            while (comma < end && data[comma] != ',') {
+                comma++;
+            }
+            double latitude;
+            double longitude;
+            try {
+                if (comma == end) {
+                    throw new NumberFormatException();
+                }
+                latitude = MappedText.parseNumber(data, start, comma);
+                longitude = MappedText.parseNumber(data, comma + 1, end);
+            } catch (NumberFormatException e) {
+                throw new IOException("Coordenadas inválidas para " + name + ": " + MappedText.decode(data, start, end));
+            }
+            if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) {
+                throw new IOException("Coordenadas fuera de rango para " + name);
+            }
+            latitudes[city] = latitude;
+            longitudes[city] = longitude;
+            numCoordinates++;
+        }
+
+        NameTable buildTable() throws IOException {
+            return new NameTable(nameBytes, nameEnds, names);
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto de los nombres de ciudad, consultada
+     * con los bytes del archivo. Solo se lee tras construirla, así que la
+     * comparten los hilos que leen las carreteras.
+     */
+    private static final class NameTable {
+        private final byte[] nameBytes;
+        private final IntList nameEnds;
+        private final int[] hashes;
+        private final int[] cities;
+        private final int mask;
+
+        NameTable(byte[] nameBytes, IntList nameEnds, List<String> names) throws IOException {
+            this.nameBytes = nameBytes;
+            this.nameEnds = nameEnds;
+            int n = nameEnds.size();
+            int capacity = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+            this.hashes = new int[capacity];
+            this.cities = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(cities, -1);
+            for (int city = 0; city < n; city++) {
+                int start = start(city);
+                int end = nameEnds.get(city);
+                if (find(nameBytes, start, end) >= 0) {
+                    throw new IOException("Cartografía inválida: la ciudad " + names.get(city) + " está declarada dos veces");
+                }
+                int hash = hash(nameBytes, start, end);
+                int slot = hash & mask;
+                while (cities[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = hash;
+                cities[slot] = city;
+            }
+        }
+
+        /**
+         * @return Índice de la ciudad cuyo nombre son los bytes [start, end), o -1 si no existe
+         */
+        int find(byte[] data, int start, int end) {
+            int hash = hash(data, start, end);
+            for (int slot = hash & mask; cities[slot] >= 0; slot = (slot + 1) & mask) {
+                int city = cities[slot];
+                if (hashes[slot] == hash
+                        && Arrays.equals(nameBytes, start(city), nameEnds.get(city), data, start, end)) {
+                    return city;
+                }
+            }
+            return -1;
+        }
+
+        private int start(int city) {
+            return city == 0 ? 0 : nameEnds.get(city - 1);
+        }
+
+        private static int hash(byte[] data, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + data[i];
+            }
+            return h * 0x9E3779B9 ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Carreteras leídas de un trozo, ya convertidas en aristas dirigidas
+     */
+    private static final class Roads {
+        private final byte[] data;
+        private final NameTable table;
+
+        final IntList from = new IntList();
+        final IntList to = new IntList();
+        double[] weights = new double[16];
+
+        Roads(byte[] data, NameTable table) {
+            this.data = data;
+            this.table = table;
+        }
+
+        void parse(int pos) throws IOException {
+            int[] fieldEnds = new int[4];
+            while (pos < data.length) {
+                int lineEnd = lineEnd(data, pos);
+                int start = trimStart(data, pos, lineEnd);
+                int end = trimEnd(data, start, lineEnd);
+                pos = lineEnd + 1;
+                if (start == end || data[start] == '#') {
+                    continue;
+                }
+
+                // Separar los campos: origen;destino;distancia[;sentido único]
+                int fields = 0;
+                for (int i = start; i < end; i++) {
+                    if (data[i] == ';') {
+                        if (fields == 3) {
+                            throw invalid(start, end, "sobran campos");
+                        }
+                        fieldEnds[fields++] = i;
+                    }
+                }
+                fieldEnds[fields++] = end;
+                if (fields < 3) {
+                    throw invalid(start, end, "se esperaba origen;destino;distancia[;sentido único]");
+                }
+
+                int fromCity = city(start, fieldEnds[0], start, end);
+                int toCity = city(fieldEnds[0] + 1, fieldEnds[1], start, end);
+                if (fromCity == toCity) {
+                    throw invalid(start, end, "empieza y termina en la misma ciudad");
+                }
+                double distance;
+                try {
+                    distance = MappedText.parseNumber(data, fieldEnds[1] + 1, fieldEnds[2]);
+                } catch (NumberFormatException e) {
+                    throw invalid(start, end, "distancia inválida");
+                }
+                if (!(distance > 0) || Double.isInfinite(distance)) {
+                    throw invalid(start, end, "la distancia debe ser positiva");
+                }
+                boolean oneWay = false;
+                if (fields == 4) {
+                    int flagStart = trimStart(data, fieldEnds[2] + 1, fieldEnds[3]);
+                    int flagEnd = trimEnd(data, flagStart, fieldEnds[3]);
+                    if (flagEnd - flagStart == 1 && (data[flagStart] == '0' || data[flagStart] == '1')) {
+                        oneWay = data[flagStart] == '1';
+                    } else if (flagEnd > flagStart) {
+                        throw invalid(start, end, "el sentido único debe ser 0 o 1");
+                    }
+                }
+
+                addEdge(fromCity, toCity, distance);
+                if (!oneWay) {
+                    addEdge(toCity, fromCity, distance);
+                }
+            }
+        }
+
+        private int city(int fieldStart, int fieldEnd, int lineStart, int lineEnd) throws IOException {
+            int start = trimStart(data, fieldStart, fieldEnd);
+            int end = trimEnd(data, start, fieldEnd);
+            int city = table.find(data, start, end);
+            if (city < 0) {
+                throw invalid(lineStart, lineEnd, "la ciudad '" + MappedText.decode(data, start, end) + "' no está declarada");
+            }
+            return city;
+        }
+
+        private void addEdge(int fromCity, int toCity, double distance) {
+            int edge = from.size();
+            if (edge == weights.length) {
+                weights = Arrays.copyOf(weights, edge * 2);
+            }
+            from.add(fromCity);
+            to.add(toCity);
+            weights[edge] = distance;
+        }
+
+        private IOException invalid(int start, int end, String reason) {
+            return new IOException("Carretera inválida '" + MappedText.decode(data, start, end) + "': " + reason);
+        }
+    }
+
+    private static int lineEnd(byte[] data, int pos) {
+        while (pos < data.length && data[pos] != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimStart(byte[] data, int start, int end) {
+        while (start < end && MappedText.isSpace(data[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] data, int start, int end) {
+        while (end > start && MappedText.isSpace(data[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,167 @@
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Listener que explica por consola, paso a paso, cómo avanza el algoritmo A*:
+ * la ciudad extraída en cada iteración, sus vecinos, los valores g, h y f de
+ * cada uno y el estado del conjunto abierto.
+ *
+ * Pensado para mapas pequeños y para aprender el algoritmo: escribe varias
+ * líneas por ciudad y por carretera, así que no debe usarse en producción.
+ * Guarda el estado de la búsqueda en curso, por lo que no es seguro entre hilos.
+ */
+public class ExplainingSearchListener implements SearchListener {
+    private final Graph graph;
+    private final PrintStream out;
+
+    // Estado de la búsqueda en curso, reconstruido a partir de los eventos
+    private final Map<Integer, Double> bestG = new HashMap<>();
+    private final Map<Integer, Double> open = new LinkedHashMap<>(); // Ciudad -> f
+    private final Set<Integer> closed = new HashSet<>();
+    private SearchMode mode;
+    private int start;
+    private int goal;
+    private int iteration;
+
+    /**
+     * Constructor para la clase ExplainingSearchListener
+     *
+     * @param graph El grafo en el que se busca (para los nombres y vecinos de las ciudades)
+     */
+    public ExplainingSearchListener(Graph graph) {
+        this(graph, System.out);
+    }
+
+    /**
+     * @param graph El grafo en el que se busca
+     * @param out Destino de las explicaciones
+     */
+    public ExplainingSearchListener(Graph graph, PrintStream out) {
+        this.graph = graph;
+        this.out = out;
+    }
+
+    private String name(int city) {
+        return graph.getCityName(city);
+    }
+
+    @Override
+    public void searchStarted(int start, int goal, SearchMode mode) {
+        this.start = start;
+        this.goal = goal;
+        this.mode = mode;
+        this.iteration = 0;
+        bestG.clear();
+        open.clear();
+        closed.clear();
+
+        out.println("\n=== EXPLICACIÓN DEL ALGORITMO A* ===");
+        out.println("Buscando ruta desde " + name(start) + " hasta " + name(goal));
+        out.println("Motor de búsqueda: " + mode.getDescription());
+        if (mode != SearchMode.ASTAR) {
+            out.println("(Este motor solo informa del inicio y del resultado de la búsqueda)");
+            return;
+        }
+        out.println("Algoritmo A* utiliza la fórmula f(n) = g(n) + h(n) donde:");
+        out.println("- g(n): costo real acumulado desde el origen hasta el nodo actual");
+        out.println("- h(n): heurística (estimación del costo desde el nodo actual hasta el destino)");
+        out.println("- f(n): costo total estimado del camino que pasa por este nodo");
+    }
+
+    @Override
+    public void nodePopped(int city, double g, double f) {
+        if (iteration == 0) {
+            String startName = name(city);
+            out.println("\nNodo inicial: " + startName);
+            out.println("g(" + startName + ") = " + g + " (costo desde inicio)");
+            out.println("h(" + startName + ") = " + (f - g) + " (heurística hasta destino)");
+            out.println("f(" + startName + ") = " + f + " (costo total estimado)");
+            out.println("\n=== INICIO DE LA BÚSQUEDA ===");
+        } else {
+            printOpenSet();
+            out.println("  Próximo nodo a explorar: " + name(city));
+        }
+
+        iteration++;
+        open.remove(city);
+        closed.add(city);
+        String name = name(city);
+        out.println("\nIteración " + iteration + ":");
+        out.println("Nodo actual: " + name);
+        out.println("g(" + name + ") = " + g + ", h(" + name + ") = " + (f - g) + ", f(" + name + ") = " + f);
+        if (city == goal) {
+            return; // goalReached explica el final
+        }
+
+        out.println("Vecinos de " + name + ": ");
+        for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+            out.println("- " + name(graph.getTarget(e)) + " (distancia: " + graph.getWeight(e) + " km)");
+        }
+        for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+            int neighbor = graph.getTarget(e);
+            if (closed.contains(neighbor)) {
+                out.println("  " + name(neighbor) + " ya fue explorado, omitiendo");
+            }
+        }
+    }
+
+    @Override
+    public void edgeRelaxed(int from, int to, double g, double h) {
+        String name = name(to);
+        out.println("  Evaluando vecino: " + name);
+        out.println("    g(" + name + ") = " + g + " (costo desde inicio)");
+        out.println("    h(" + name + ") = " + h + " (heurística hasta destino)");
+        out.println("    f(" + name + ") = " + (g + h) + " (costo total estimado)");
+        if (g >= bestG.getOrDefault(to, Double.POSITIVE_INFINITY)) {
+            out.println("    Ya existe un camino mejor a " + name + ", manteniendo el existente.");
+        }
+    }
+
+    @Override
+    public void nodeImproved(int city, int parent, double g, double f) {
+        if (parent != -1) {
+            out.println(open.containsKey(city)
+                ? "    ¡Encontrado camino mejor a " + name(city) + "! Actualizando."
+                : "    Añadiendo " + name(city) + " al conjunto abierto.");
+        }
+        bestG.put(city, g);
+        open.put(city, f);
+    }
+
+    @Override
+    public void goalReached(int goal, double cost) {
+        out.println("\n¡DESTINO ALCANZADO!");
+        out.println("Se ha encontrado la ruta óptima desde " + name(start) + " hasta " + name(goal));
+        out.println("El costo total de la ruta es: " + cost + " km");
+        if (mode == SearchMode.ASTAR) {
+            out.println("\nEl algoritmo A* garantiza que esta es la ruta óptima porque:");
+            out.println("1. Explora primero los nodos con menor costo estimado total (f)");
+            out.println("2. Lleva un registro de los nodos ya explorados para evitar ciclos");
+            out.println("3. Utiliza una heurística admisible que nunca sobreestima el costo real");
+        }
+    }
+
+    @Override
+    public void searchFailed(int start, int goal) {
+        if (iteration > 0) {
+            printOpenSet();
+        }
+        out.println("\nNo se encontró ninguna ruta desde " + name(start) + " hasta " + name(goal));
+    }
+
+    private void printOpenSet() {
+        out.println("\nEstado del conjunto abierto después de la iteración " + iteration + ":");
+        if (open.isEmpty()) {
+            out.println("  Conjunto abierto vacío. No hay más nodos para explorar.");
+            return;
+        }
+        for (Map.Entry<Integer, Double> entry : open.entrySet()) {
+            double g = bestG.get(entry.getKey());
+            out.println("  " + name(entry.getKey()) + ": f = " + entry.getValue() + " (g = " + g + ", h = " + (entry.getValue() - g) + ")");
+        }
+    }
+}
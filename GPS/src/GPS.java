@@ -1,21 +1,55 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase principal para la aplicación de búsqueda de rutas GPS.
  * Esta aplicación permite a los usuarios encontrar rutas óptimas entre ciudades usando el algoritmo A*.
  */
 public class GPS {
-    private static List<String> cityNames;
-    private static double[][] distanceMatrix;
-    private static AStar aStar;
+    // Cartografía en uso: cada opción adquiere el contexto actual y lo devuelve al terminar,
+    // así que una cartografía nueva se puede cargar en segundo plano mientras se consulta la anterior
+    private static final LiveMap liveMap = new LiveMap();
+    private static boolean explainSearch = false; // Explicación paso a paso de A*, desactivada por defecto
+    
+    // Rutas que guarda la caché de cada cartografía
+    private static final int CACHE_ENTRIES = 10_000;
     private static Scanner scanner;
     
+    // Por encima de este número de ciudades no se imprime la matriz de distancias
+    private static final int MAX_PRINTED_CITIES = 30;
+    
+    // Número máximo de rutas alternativas que se pueden pedir
+    private static final int MAX_ALTERNATIVES = 10;
+    
     public static void main(String[] args) {
+        // Modo por lotes: java GPS --batch <mapa> [consultas] [opciones]
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRunner.main(args));
+        }
+        // Generador de mapas: java GPS --generate <tipo> <ciudades> <archivo> [opciones]
+        if (args.length > 0 && args[0].equals("--generate")) {
+            System.exit(MapGenerator.main(args));
+        }
+        // Instantánea binaria: java GPS --snapshot <mapa> <archivo> [--landmarks K] [--ch]
+        if (args.length > 0 && args[0].equals("--snapshot")) {
+            System.exit(MapSnapshot.main(args));
+        }
+        // Servicio HTTP: java GPS --serve <mapa> [--port P] [opciones]; sigue en marcha tras volver de main
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int status = RoutingServer.main(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        
         scanner = new Scanner(System.in);
+        SearchMetrics.registerMBeans(liveMap::getSearchMetrics);
         
         System.out.println("Bienvenido al Buscador de Rutas GPS");
         System.out.println("==================================");
@@ -27,7 +61,17 @@ public class GPS {
             System.out.println("2. Encontrar ruta óptima");
             System.out.println("3. Encontrar ruta con ciudad intermedia");
             System.out.println("4. Crear archivo de cartografía de ejemplo");
-            System.out.println("5. Salir");
+            System.out.println("5. Preprocesar landmarks (ALT)");
+            System.out.println("6. Seleccionar motor de búsqueda");
+            System.out.println("7. Calcular matriz de distancias");
+            System.out.println("8. Encontrar ruta con varias paradas");
+            System.out.println("9. " + (explainSearch ? "Desactivar" : "Activar") + " explicación paso a paso");
+            System.out.println("10. Guardar instantánea binaria del mapa");
+            System.out.println("11. Actualizar carreteras (tráfico y cortes)");
+            System.out.println("12. Ver métricas de búsqueda");
+            System.out.println("13. Encontrar rutas alternativas");
+            System.out.println("14. Ciudades alcanzables desde uno o varios orígenes");
+            System.out.println("15. Salir");
             System.out.print("Ingrese su opción: ");
             
             int choice = getIntInput();
@@ -46,6 +90,36 @@ public class GPS {
                     createSampleCartography();
                     break;
                 case 5:
+                    preprocessLandmarks();
+                    break;
+                case 6:
+                    selectSearchMode();
+                    break;
+                case 7:
+                    computeDistanceMatrix();
+                    break;
+                case 8:
+                    findRouteWithStops();
+                    break;
+                case 9:
+                    toggleExplanation();
+                    break;
+                case 10:
+                    saveSnapshot();
+                    break;
+                case 11:
+                    updateRoads();
+                    break;
+                case 12:
+                    printSearchMetrics();
+                    break;
+                case 13:
+                    findAlternativeRoutes();
+                    break;
+                case 14:
+                    findReachableCities();
+                    break;
+                case 15:
                     running = false;
                     break;
                 default:
@@ -58,85 +132,676 @@ public class GPS {
     }
     
     /**
-     * Cargar un archivo de cartografía
+     * Cargar un archivo de cartografía. La primera se carga antes de volver al
+     * menú; las siguientes se cargan y preprocesan en segundo plano, con el
+     * motor y la caché de la actual, y la sustituyen al terminar, mientras se
+     * sigue consultando la anterior.
      */
     private static void loadCartography() {
         System.out.print("\nIngrese el nombre del archivo de cartografía (ej., Espanya.txt): ");
         String filename = scanner.nextLine();
         
+        long startTime = System.nanoTime();
+        boolean explain = explainSearch;
+        if (liveMap.getVersion() == 0) {
+            try {
+                RoutingContext context = openCartography(filename, SearchMode.ASTAR, CACHE_ENTRIES, explain);
+                liveMap.publish(context);
+                printCartography(context, (System.nanoTime() - startTime) / 1_000_000);
+            } catch (IOException e) {
+                System.out.println("Error al cargar la cartografía: " + e.getMessage());
+            }
+            return;
+        }
+        
+        SearchMode mode;
+        int cacheEntries;
+        try (RoutingContext current = liveMap.acquire()) {
+            mode = current.getSearchMode();
+            cacheEntries = current.getCacheEntries();
+        }
+        CompletableFuture<RoutingContext> loading;
         try {
-            Object[] parseResult = MapParser.parseMapFile(filename);
-            cityNames = (List<String>) parseResult[0];
-            distanceMatrix = (double[][]) parseResult[1];
-            aStar = new AStar(cityNames, distanceMatrix);
-            
-            System.out.println("¡Cartografía cargada con éxito!");
-            System.out.println("Ciudades encontradas: " + cityNames.size());
-            System.out.println("Ciudades: " + String.join(", ", cityNames));
-            
-            // Imprimir matriz de distancias para depuración
-            MapParser.printDistanceMatrix(cityNames, distanceMatrix);
-            
-        } catch (IOException e) {
-            System.out.println("Error al cargar la cartografía: " + e.getMessage());
+            loading = liveMap.reload(() -> openCartography(filename, mode, cacheEntries, explain));
+        } catch (IllegalStateException e) {
+            System.out.println("Ya se está cargando otra cartografía; espere a que termine.");
+            return;
+        }
+        System.out.println("Cargando '" + filename + "' en segundo plano; mientras tanto se sigue usando la cartografía actual.");
+        loading.whenComplete((context, e) -> {
+            if (e != null) {
+                System.out.println("\nError al cargar la cartografía, se sigue usando la anterior: " + e.getMessage());
+            } else {
+                // El contexto cargado ya es del LiveMap: se adquiere para no leerlo mientras se libera
+                try (RoutingContext current = liveMap.acquire()) {
+                    System.out.println();
+                    printCartography(current, (System.nanoTime() - startTime) / 1_000_000);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Cargar una cartografía (texto o instantánea binaria) con su preprocesado
+     * 
+     * @param filename Archivo de la cartografía
+     * @param mode Motor de búsqueda
+     * @param cacheEntries Tamaño de la caché de rutas
+     * @param explain true para añadir la explicación paso a paso
+     * @return El contexto, todavía sin publicar
+     * @throws IOException Si hay un error al leer la cartografía
+     */
+    private static RoutingContext openCartography(String filename, SearchMode mode, int cacheEntries,
+                                                  boolean explain) throws IOException {
+        return withExplanation(RoutingContext.load(filename, mode, cacheEntries), explain);
+    }
+    
+    /**
+     * Añadir la explicación paso a paso sobre el grafo del contexto
+     * 
+     * @param context Contexto sin publicar, que se libera si hay que sustituirlo
+     * @param explain true para añadir la explicación paso a paso
+     * @return El contexto con la explicación, o el mismo si no se pide
+     */
+    private static RoutingContext withExplanation(RoutingContext context, boolean explain) {
+        if (!explain) {
+            return context;
+        }
+        try {
+            return context.withSearchListener(new ExplainingSearchListener(context.getGraph()));
+        } finally {
+            context.release();
         }
     }
     
+    /**
+     * Mostrar el resumen de una cartografía recién cargada
+     * 
+     * @param context Contexto de la cartografía
+     * @param elapsedMs Tiempo de carga
+     */
+    private static void printCartography(RoutingContext context, long elapsedMs) {
+        Graph graph = context.getGraph();
+        System.out.println("¡Cartografía '" + context.getSource() + "' cargada con éxito"
+            + (MapSnapshot.isSnapshot(context.getSource()) ? " desde una instantánea binaria" : "")
+            + " en " + elapsedMs + " ms!");
+        System.out.println("Ciudades encontradas: " + graph.getNumCities());
+        System.out.println("Carreteras encontradas: " + graph.getNumEdges());
+        System.out.println(graph.hasCoordinates()
+            ? "Coordenadas disponibles: se usará la heurística de distancia geográfica."
+            : "Sin coordenadas: la búsqueda se comportará como Dijkstra.");
+        if (context.getContractionHierarchy() != null) {
+            System.out.println("Contraction Hierarchies incluidas en la instantánea ("
+                + context.getContractionHierarchy().getNumShortcuts() + " atajos).");
+        }
+        if (context.getLandmarks() != null) {
+            System.out.println("Landmarks cargados: " + context.getLandmarks().size());
+        }
+        
+        // Imprimir matriz de distancias para depuración (solo en mapas pequeños)
+        if (graph.getNumCities() <= MAX_PRINTED_CITIES) {
+            System.out.println("Ciudades: " + String.join(", ", graph.getCityNames()));
+            MapParser.printDistanceMatrix(graph);
+        }
+    }
+    
+    /**
+     * Adquirir la cartografía actual, o avisar si todavía no hay ninguna
+     * 
+     * @return El contexto (hay que devolverlo con release o close), o null
+     */
+    private static RoutingContext acquireCartography() {
+        RoutingContext context = liveMap.acquire();
+        if (context == null) {
+            System.out.println("Por favor, cargue un archivo de cartografía primero.");
+        }
+        return context;
+    }
+    
+    /**
+     * Publicar un contexto derivado del actual, salvo que mientras se preparaba
+     * se haya cargado otra cartografía
+     * 
+     * @param current Contexto del que se ha derivado next
+     * @param next El nuevo contexto
+     * @return true si se ha publicado
+     */
+    private static boolean publishDerived(RoutingContext current, RoutingContext next) {
+        if (liveMap.replace(current, next)) {
+            return true;
+        }
+        System.out.println("La cartografía ha cambiado mientras tanto; no se ha aplicado el cambio.");
+        return false;
+    }
+    
     /**
      * Encontrar una ruta óptima
      * 
      * @param withIntermediate Si se debe incluir una ciudad intermedia
      */
     private static void findRoute(boolean withIntermediate) {
-        if (aStar == null) {
-            System.out.println("Por favor, cargue un archivo de cartografía primero.");
-            return;
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            AStar aStar = context.getAStar();
+            
+            System.out.print("\nIngrese la ciudad de origen: ");
+            String originCity = scanner.nextLine();
+            
+            System.out.print("Ingrese la ciudad de destino: ");
+            String destCity = scanner.nextLine();
+            
+            String intermediateCity = null;
+            if (withIntermediate) {
+                System.out.print("Ingrese la ciudad intermedia (parada obligatoria): ");
+                intermediateCity = scanner.nextLine();
+            }
+            
+            // Validar ciudades
+            boolean validInput = true;
+            if (!aStar.hasCity(originCity)) {
+                System.out.println("La ciudad de origen '" + originCity + "' no se encuentra en la cartografía.");
+                validInput = false;
+            }
+            
+            if (!aStar.hasCity(destCity)) {
+                System.out.println("La ciudad de destino '" + destCity + "' no se encuentra en la cartografía.");
+                validInput = false;
+            }
+            
+            if (withIntermediate && !aStar.hasCity(intermediateCity)) {
+                System.out.println("La ciudad intermedia '" + intermediateCity + "' no se encuentra en la cartografía.");
+                validInput = false;
+            }
+            
+            if (!validInput) {
+                return;
+            }
+            
+            // Encontrar y mostrar ruta
+            City route = aStar.findRoute(originCity, destCity, intermediateCity);
+            aStar.printRoute(route);
+            if (context.getRouteCache() != null) {
+                System.out.println(context.getRouteCache());
+            }
         }
-        
-        System.out.print("\nIngrese la ciudad de origen: ");
-        String originCity = scanner.nextLine();
-        
-        System.out.print("Ingrese la ciudad de destino: ");
-        String destCity = scanner.nextLine();
-        
-        String intermediateCity = null;
-        if (withIntermediate) {
-            System.out.print("Ingrese la ciudad intermedia (parada obligatoria): ");
-            intermediateCity = scanner.nextLine();
+    }
+    
+    /**
+     * Encontrar la ruta óptima pasando por varias paradas obligatorias en cualquier orden
+     */
+    private static void findRouteWithStops() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            AStar aStar = context.getAStar();
+            
+            System.out.print("\nIngrese la ciudad de origen: ");
+            String originCity = scanner.nextLine();
+            
+            System.out.print("Ingrese la ciudad de destino: ");
+            String destCity = scanner.nextLine();
+            
+            System.out.print("Ingrese las paradas obligatorias separadas por comas: ");
+            List<String> stops = new ArrayList<>();
+            for (String stop : scanner.nextLine().split(",")) {
+                if (!stop.trim().isEmpty()) {
+                    stops.add(stop.trim());
+                }
+            }
+            
+            // Validar ciudades
+            boolean validInput = true;
+            if (!aStar.hasCity(originCity)) {
+                System.out.println("La ciudad de origen '" + originCity + "' no se encuentra en la cartografía.");
+                validInput = false;
+            }
+            
+            if (!aStar.hasCity(destCity)) {
+                System.out.println("La ciudad de destino '" + destCity + "' no se encuentra en la cartografía.");
+                validInput = false;
+            }
+            
+            for (String stop : stops) {
+                if (!aStar.hasCity(stop)) {
+                    System.out.println("La parada '" + stop + "' no se encuentra en la cartografía.");
+                    validInput = false;
+                }
+            }
+            
+            if (!validInput) {
+                return;
+            }
+            
+            long startTime = System.nanoTime();
+            City route = aStar.findRoute(originCity, destCity, stops);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            aStar.printRoute(route);
+            System.out.println("Ruta con " + stops.size() + " paradas calculada en " + elapsedMs + " ms.");
         }
-        
-        // Validar ciudades
-        boolean validInput = true;
-        if (!cityNames.contains(originCity)) {
-            System.out.println("La ciudad de origen '" + originCity + "' no se encuentra en la cartografía.");
-            validInput = false;
+    }
+    
+    /**
+     * Cambiar la distancia de algunas carreteras o cortarlas, todo como un único
+     * lote: las búsquedas ven todos los cambios o ninguno
+     */
+    private static void updateRoads() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            
+            System.out.println("\nIngrese los cambios, uno por línea, como origen;destino;distancia[;1]");
+            System.out.println("('cerrada' como distancia corta la carretera; ';1' cambia solo ese sentido).");
+            System.out.println("Línea vacía para terminar:");
+            List<String> lines = new ArrayList<>();
+            String line;
+            while (scanner.hasNextLine() && !(line = scanner.nextLine()).trim().isEmpty()) {
+                lines.add(line);
+            }
+            
+            try {
+                RoadUpdates updates = RoadUpdates.parse(context.getGraph(), lines);
+                if (updates.size() == 0) {
+                    System.out.println("No se ha aplicado ningún cambio.");
+                    return;
+                }
+                long startTime = System.nanoTime();
+                RoadUpdates.Applied applied = updates.apply(context.getGraph());
+                RoutingContext next = withExplanation(context.withRoadUpdates(applied), explainSearch);
+                long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+                if (publishDerived(context, next)) {
+                    System.out.println(updates.size() + " cambios aplicados (" + applied.getChangedEdges()
+                        + " carreteras) en " + elapsedMs + " ms"
+                        + (next.getRouteCache() != null ? "; rutas conservadas en la caché: " + next.getRouteCache().size() : "") + ".");
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("No se ha aplicado ningún cambio: " + e.getMessage());
+            }
         }
-        
-        if (!cityNames.contains(destCity)) {
-            System.out.println("La ciudad de destino '" + destCity + "' no se encuentra en la cartografía.");
-            validInput = false;
+    }
+    
+    /**
+     * Encontrar la ruta óptima y varias alternativas, de menor a mayor distancia
+     */
+    private static void findAlternativeRoutes() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            AStar aStar = context.getAStar();
+            
+            System.out.print("\nIngrese la ciudad de origen: ");
+            String originCity = scanner.nextLine();
+            
+            System.out.print("Ingrese la ciudad de destino: ");
+            String destCity = scanner.nextLine();
+            
+            System.out.print("¿Cuántas rutas quiere ver (2-" + MAX_ALTERNATIVES + ")? ");
+            int k = getIntInput();
+            if (k < 2 || k > MAX_ALTERNATIVES) {
+                System.out.println("Número de rutas inválido.");
+                return;
+            }
+            
+            System.out.print("¿Solo alternativas claramente distintas? (s/n): ");
+            boolean distinct = scanner.nextLine().trim().equalsIgnoreCase("s");
+            
+            List<City> routes = aStar.findAlternativeRoutes(originCity, destCity, k, distinct ? AlternativeRoutes.DISTINCT_MAX_SHARING : 1);
+            if (routes == null) {
+                System.out.println("Alguna de las ciudades no se encuentra en la cartografía.");
+                return;
+            }
+            if (routes.isEmpty()) {
+                aStar.printRoute(null);
+                return;
+            }
+            
+            double best = routes.get(0).getG();
+            for (int i = 0; i < routes.size(); i++) {
+                City route = routes.get(i);
+                System.out.println();
+                if (i == 0) {
+                    System.out.println("=== Ruta 1 (la más corta) ===");
+                } else {
+                    System.out.printf("=== Ruta %d (+%.1f km, +%.1f%%) ===%n", i + 1, route.getG() - best,
+                        best > 0 ? 100 * (route.getG() - best) / best : 0);
+                }
+                aStar.printRoute(route);
+            }
+            if (routes.size() < k) {
+                System.out.println("\nSolo se han encontrado " + routes.size() + " rutas" + (distinct ? " suficientemente distintas." : "."));
+            }
         }
-        
-        if (withIntermediate && !cityNames.contains(intermediateCity)) {
-            System.out.println("La ciudad intermedia '" + intermediateCity + "' no se encuentra en la cartografía.");
-            validInput = false;
+    }
+    
+    /**
+     * Listar las ciudades alcanzables sin superar una distancia desde uno o
+     * varios orígenes (por ejemplo almacenes), calculados en paralelo
+     */
+    private static void findReachableCities() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            Graph graph = context.getGraph();
+            
+            System.out.print("\nIngrese las ciudades de origen separadas por comas: ");
+            String input = scanner.nextLine();
+            if (input.trim().isEmpty()) {
+                System.out.println("Debe indicar al menos una ciudad de origen.");
+                return;
+            }
+            int[] sources = parseCityList(graph, input);
+            if (sources == null) {
+                return;
+            }
+            System.out.print("Distancia máxima (km): ");
+            double budget = getDoubleInput();
+            if (budget < 0) {
+                System.out.println("La distancia máxima no puede ser negativa.");
+                return;
+            }
+            
+            long startTime = System.nanoTime();
+            List<Isochrone> reachable = context.getAStar().findReachable(sources, budget);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            
+            boolean[] covered = new boolean[graph.getNumCities()];
+            int numCovered = 0;
+            for (Isochrone isochrone : reachable) {
+                System.out.println("\n" + graph.getCityName(isochrone.getSource()) + ": " + isochrone.size()
+                    + " ciudades a " + budget + " km o menos");
+                for (int i = 0; i < isochrone.size(); i++) {
+                    if (!covered[isochrone.getCity(i)]) {
+                        covered[isochrone.getCity(i)] = true;
+                        numCovered++;
+                    }
+                    if (isochrone.size() <= MAX_PRINTED_CITIES) {
+                        System.out.println("  " + graph.getCityName(isochrone.getCity(i)) + ": " + isochrone.getCost(i) + " km");
+                    }
+                }
+            }
+            if (reachable.size() > 1) {
+                System.out.println("\nCiudades alcanzables desde algún origen: " + numCovered + " de " + graph.getNumCities());
+            }
+            System.out.println("Calculado en " + elapsedMs + " ms.");
         }
-        
-        if (!validInput) {
-            return;
+    }
+    
+    /**
+     * Mostrar las métricas de las búsquedas hechas con la cartografía cargada
+     */
+    private static void printSearchMetrics() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            
+            System.out.println();
+            System.out.print(context.getSearchMetrics().report());
+        }
+    }
+    
+    /**
+     * Activar o desactivar la explicación paso a paso de cada búsqueda
+     */
+    private static void toggleExplanation() {
+        explainSearch = !explainSearch;
+        try (RoutingContext context = liveMap.acquire()) {
+            if (context != null) {
+                publishDerived(context, context.withSearchListener(
+                    explainSearch ? new ExplainingSearchListener(context.getGraph()) : null));
+            }
+        }
+        System.out.println(explainSearch
+            ? "Explicación paso a paso activada (recomendada solo para mapas pequeños)."
+            : "Explicación paso a paso desactivada.");
+    }
+    
+    /**
+     * Calcular los landmarks (ALT) de la cartografía cargada y guardarlos junto al mapa
+     */
+    private static void preprocessLandmarks() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            Graph graph = context.getGraph();
+            
+            System.out.print("\nIngrese el número de landmarks (ej., 8): ");
+            int count = getIntInput();
+            if (count <= 0) {
+                System.out.println("El número de landmarks debe ser positivo.");
+                return;
+            }
+            
+            long startTime = System.nanoTime();
+            Landmarks landmarks = Landmarks.compute(graph, count);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            publishDerived(context, context.withLandmarks(landmarks));
+            
+            System.out.print("Landmarks elegidos:");
+            for (int i = 0; i < landmarks.size(); i++) {
+                System.out.print(" " + graph.getCityName(landmarks.getLandmark(i)));
+            }
+            System.out.println();
+            System.out.println("Preprocesado completado en " + elapsedMs + " ms.");
+            
+            String landmarksFile = Landmarks.fileFor(context.getSource());
+            try {
+                landmarks.save(landmarksFile);
+                System.out.println("Landmarks guardados en " + landmarksFile);
+            } catch (IOException e) {
+                System.out.println("Error al guardar los landmarks: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Guardar el mapa cargado, con los landmarks y la jerarquía que ya se hayan
+     * calculado, como instantánea binaria que se carga sin volver a leer el texto
+     */
+    private static void saveSnapshot() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            String defaultName = MapSnapshot.fileFor(context.getSource());
+            System.out.print("\nIngrese el nombre del archivo de la instantánea (Enter para " + defaultName + "): ");
+            String filename = scanner.nextLine().trim();
+            if (filename.isEmpty()) {
+                filename = defaultName;
+            }
+            
+            try {
+                long startTime = System.nanoTime();
+                MapSnapshot.write(filename, context.getGraph(), context.getLandmarks(), context.getContractionHierarchy());
+                long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+                System.out.println("Instantánea guardada en " + filename + " en " + elapsedMs + " ms"
+                    + (context.getLandmarks() != null ? ", con landmarks" : "")
+                    + (context.getContractionHierarchy() != null ? ", con Contraction Hierarchies" : "") + ".");
+                System.out.println("Se puede cargar con la opción 1 como cualquier otra cartografía.");
+            } catch (IOException e) {
+                System.out.println("Error al guardar la instantánea: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Seleccionar el motor de búsqueda, preprocesando el grafo si hace falta
+     */
+    private static void selectSearchMode() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            SearchMode[] modes = SearchMode.values();
+            System.out.println("\nMotor actual: " + context.getSearchMode().getDescription());
+            for (int i = 0; i < modes.length; i++) {
+                System.out.println((i + 1) + ". " + modes[i].getDescription());
+            }
+            System.out.print("Ingrese su opción: ");
+            int choice = getIntInput();
+            if (choice < 1 || choice > modes.length) {
+                System.out.println("Opción inválida.");
+                return;
+            }
+            
+            SearchMode mode = modes[choice - 1];
+            ContractionHierarchy hierarchy = context.getContractionHierarchy();
+            if (mode == SearchMode.CONTRACTION_HIERARCHIES && hierarchy == null) {
+                System.out.println("Preprocesando Contraction Hierarchies...");
+                long startTime = System.nanoTime();
+                hierarchy = ContractionHierarchy.build(context.getGraph());
+                long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+                System.out.println("Preprocesado completado en " + elapsedMs + " ms (" + hierarchy.getNumShortcuts() + " atajos).");
+            }
+            RoutingContext derived = context.withSearchMode(mode, hierarchy);
+            boolean parallel = derived.getAStar().usesParallelSearch();
+            if (publishDerived(context, derived)) {
+                System.out.println("Motor seleccionado: " + mode.getDescription());
+                if (mode == SearchMode.DELTA_STEPPING && !parallel) {
+                    System.out.println("Con menos de " + DeltaStepping.MIN_PARALLEL_CITIES
+                        + " ciudades o un solo procesador se buscará con A*.");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Calcular e imprimir la matriz de distancias mínimas entre orígenes y destinos
+     */
+    private static void computeDistanceMatrix() {
+        try (RoutingContext context = acquireCartography()) {
+            if (context == null) {
+                return;
+            }
+            Graph graph = context.getGraph();
+            
+            System.out.print("\nIngrese las ciudades de origen separadas por comas (vacío = todas): ");
+            int[] sources = parseCityList(graph, scanner.nextLine());
+            System.out.print("Ingrese las ciudades de destino separadas por comas (vacío = todas): ");
+            int[] targets = parseCityList(graph, scanner.nextLine());
+            if (sources == null || targets == null) {
+                return;
+            }
+            
+            long startTime = System.nanoTime();
+            DistanceTable table;
+            try {
+                table = sources.length == graph.getNumCities() && targets.length == graph.getNumCities()
+                    ? DistanceTable.allPairs(graph)
+                    : context.getAStar().computeDistanceTable(sources, targets);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            System.out.println("Matriz de " + table.getNumRows() + " x " + table.getNumColumns() + " calculada en " + elapsedMs + " ms.");
+            
+            if (table.getNumRows() > MAX_PRINTED_CITIES || table.getNumColumns() > MAX_PRINTED_CITIES) {
+                return;
+            }
+            System.out.print("\t");
+            for (int column = 0; column < table.getNumColumns(); column++) {
+                System.out.print(graph.getCityName(table.getTarget(column)) + "\t");
+            }
+            System.out.println();
+            for (int row = 0; row < table.getNumRows(); row++) {
+                System.out.print(graph.getCityName(table.getSource(row)) + "\t");
+                for (int column = 0; column < table.getNumColumns(); column++) {
+                    double distance = table.get(row, column);
+                    System.out.print((distance == Double.POSITIVE_INFINITY ? "-" : String.valueOf(distance)) + "\t");
+                }
+                System.out.println();
+            }
+        }
+    }
+    
+    /**
+     * Convertir una lista de nombres separados por comas en índices de ciudades
+     * 
+     * @param graph Grafo de la cartografía
+     * @param input Nombres separados por comas; vacío significa todas las ciudades
+     * @return Los índices de las ciudades, o null si alguna no existe
+     */
+    private static int[] parseCityList(Graph graph, String input) {
+        if (input.trim().isEmpty()) {
+            int[] all = new int[graph.getNumCities()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
         }
+        String[] names = input.split(",");
+        int[] cities = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            cities[i] = graph.findCity(names[i]);
+            if (cities[i] < 0) {
+                System.out.println("La ciudad '" + names[i].trim() + "' no se encuentra en la cartografía.");
+                return null;
+            }
+        }
+        return cities;
+    }
+    
+    /**
+     * Generar un mapa sintético para pruebas de carga
+     * 
+     * @param topology Forma de la red de carreteras
+     * @param filename Nombre del archivo a crear
+     */
+    private static void createSyntheticCartography(MapGenerator.Topology topology, String filename) {
+        System.out.print("Número de ciudades: ");
+        int numCities = getIntInput();
+        System.out.print("Carreteras por ciudad (ej., 4): ");
+        int degree = getIntInput();
+        System.out.print("¿Mapa dirigido, con calles de sentido único? (s/n): ");
+        boolean directed = scanner.nextLine().trim().equalsIgnoreCase("s");
+        System.out.print("¿Formato de matriz en lugar de lista de aristas? (s/n; la matriz admite como máximo "
+            + MapGenerator.MAX_MATRIX_CITIES + " ciudades): ");
+        boolean matrix = scanner.nextLine().trim().equalsIgnoreCase("s");
         
-        // Encontrar y mostrar ruta
-        City route = aStar.findRoute(originCity, destCity, intermediateCity);
-        aStar.printRoute(route);
+        try {
+            long startTime = System.nanoTime();
+            Graph generated = new MapGenerator(topology, numCities)
+                .setDegree(degree)
+                .setDirected(directed)
+                .setFormat(matrix ? MapParser.Format.MATRIX : MapParser.Format.EDGE_LIST)
+                .write(filename);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            System.out.println("¡Archivo '" + filename + "' creado con " + generated.getNumCities() + " ciudades y "
+                + generated.getNumEdges() + " carreteras en " + elapsedMs + " ms!");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error al crear la cartografía: " + e.getMessage());
+        }
     }
     
     /**
      * Crear un archivo de cartografía de ejemplo para España con distancias reales entre ciudades
      */
     private static void createSampleCartography() {
-        System.out.print("\nIngrese el nombre del archivo a crear (ej., Espanya.txt): ");
+        System.out.println("\nTipo de cartografía:");
+        System.out.println("1. España (10 ciudades con distancias reales)");
+        System.out.println("2. Cuadrícula sintética");
+        System.out.println("3. Geométrica aleatoria sintética");
+        System.out.println("4. Red de carreteras sintética");
+        System.out.print("Ingrese su opción: ");
+        int type = getIntInput();
+        if (type < 1 || type > 4) {
+            System.out.println("Opción inválida.");
+            return;
+        }
+        
+        System.out.print("Ingrese el nombre del archivo a crear (ej., Espanya.txt): ");
         String filename = scanner.nextLine();
+        if (type > 1) {
+            createSyntheticCartography(MapGenerator.Topology.values()[type - 2], filename);
+            return;
+        }
         
         try (PrintWriter writer = new PrintWriter(new File(filename))) {
             // Ciudades españolas con distancias reales (en km)
@@ -153,6 +818,20 @@ public class GPS {
                 "Cordoba"
             };
             
+            // Coordenadas aproximadas (latitud, longitud) para la heurística geográfica
+            double[][] coordinates = {
+                {41.3874, 2.1686},   // Barcelona
+                {40.4168, -3.7038},  // Madrid
+                {39.4699, -0.3763},  // Valencia
+                {37.3891, -5.9845},  // Sevilla
+                {41.6488, -0.8891},  // Zaragoza
+                {36.7213, -4.4214},  // Malaga
+                {37.9922, -1.1307},  // Murcia
+                {43.2630, -2.9350},  // Bilbao
+                {38.3452, -0.4810},  // Alicante
+                {37.8882, -4.7794}   // Cordoba
+            };
+            
             // Número de ciudades
             writer.println(cities.length);
             
@@ -184,7 +863,7 @@ public class GPS {
             
             // Escribir cada ciudad y sus distancias
             for (int i = 0; i < cities.length; i++) {
-                writer.print(cities[i]);
+                writer.print(cities[i] + "@" + coordinates[i][0] + "," + coordinates[i][1]);
                 for (int j = 0; j < cities.length; j++) {
                     writer.print(";" + distances[i][j]);
                 }
@@ -218,4 +897,28 @@ public class GPS {
         
         return input;
     }
+    
+    /**
+     * Obtener entrada de número decimal del usuario con validación
+     * 
+     * @return La entrada decimal validada
+     */
+    private static double getDoubleInput() {
+        double input = 0;
+        boolean validInput = false;
+        
+        while (!validInput) {
+            try {
+                input = Double.parseDouble(scanner.nextLine().trim().replace(',', '.'));
+                validInput = !Double.isNaN(input);
+            } catch (NumberFormatException e) {
+                // Se vuelve a pedir
+            }
+            if (!validInput) {
+                System.out.print("Entrada inválida. Por favor ingrese un número: ");
+            }
+        }
+        
+        return input;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,480 @@
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Grafo de carreteras almacenado en formato CSR (Compressed Sparse Row).
+ * Las aristas salientes de la ciudad i ocupan las posiciones
+ * [offsets[i], offsets[i + 1]) de los arrays de destinos y pesos, de modo que
+ * la memoria es O(N + E) y recorrer los vecinos de una ciudad cuesta O(grado).
+ * Los arrays se guardan como IntBuffer/DoubleBuffer: normalmente envuelven
+ * arrays del heap, pero también pueden ser proyecciones en memoria de una
+ * instantánea binaria (MapSnapshot), fuera del heap.
+ */
+public class Graph {
+    private final List<String> cityNames;
+    private final CityIndex cityIndex;
+    private final IntBuffer offsets;   // Tamaño N + 1
+    private final IntBuffer targets;   // Ciudad destino de cada arista
+    private final DoubleBuffer weights; // Distancia (km) de cada arista
+    private final DoubleBuffer latitudes;  // Grados, o null si el mapa no tiene coordenadas
+    private final DoubleBuffer longitudes; // Grados, o null si el mapa no tiene coordenadas
+    private volatile Graph reverse;    // Grafo traspuesto, calculado al pedirlo
+    private volatile Boolean symmetric; // Calculado al pedirlo
+    private volatile Long fingerprint;  // Calculado al pedirlo
+
+    /**
+     * Constructor para la clase Graph
+     *
+     * @param cityNames Lista de nombres de ciudades
+     * @param offsets Inicio de las aristas de cada ciudad (tamaño N + 1)
+     * @param targets Ciudad destino de cada arista
+     * @param weights Distancia de cada arista
+     */
+    public Graph(List<String> cityNames, int[] offsets, int[] targets, double[] weights) {
+        this(cityNames, offsets, targets, weights, null, null);
+    }
+
+    /**
+     * Constructor con coordenadas geográficas
+     *
+     * @param cityNames Lista de nombres de ciudades
+     * @param offsets Inicio de las aristas de cada ciudad (tamaño N + 1)
+     * @param targets Ciudad destino de cada arista
+     * @param weights Distancia de cada arista
+     * @param latitudes Latitud de cada ciudad en grados, o null
+     * @param longitudes Longitud de cada ciudad en grados, o null
+     */
+    public Graph(List<String> cityNames, int[] offsets, int[] targets, double[] weights,
+                 double[] latitudes, double[] longitudes) {
+        this(Collections.unmodifiableList(new ArrayList<>(cityNames)), null, IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+             DoubleBuffer.wrap(weights), latitudes != null ? DoubleBuffer.wrap(latitudes) : null,
+             longitudes != null ? DoubleBuffer.wrap(longitudes) : null);
+    }
+
+    /**
+     * Constructor sobre buffers, que no copia nada: los datos pueden estar
+     * fuera del heap, por ejemplo proyectados desde una instantánea (MapSnapshot)
+     *
+     * @param cityNames Lista inmutable de nombres de ciudades
+     * @param cityIndex Índice de nombres ya construido, o null para construirlo
+     */
+    Graph(List<String> cityNames, CityIndex cityIndex, IntBuffer offsets, IntBuffer targets, DoubleBuffer weights,
+          DoubleBuffer latitudes, DoubleBuffer longitudes) {
+        if (offsets.limit() != cityNames.size() + 1 || targets.limit() != weights.limit()
+                || offsets.get(cityNames.size()) != targets.limit()) {
+            throw new IllegalArgumentException("Estructura CSR inconsistente");
+        }
+        if ((latitudes == null) != (longitudes == null)
+                || (latitudes != null && (latitudes.limit() != cityNames.size() || longitudes.limit() != cityNames.size()))) {
+            throw new IllegalArgumentException("Coordenadas inconsistentes");
+        }
+        this.cityNames = cityNames;
+        this.cityIndex = cityIndex != null ? cityIndex : new CityIndex(cityNames);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Construir un grafo a partir de una matriz de distancias densa.
+     * Solo las distancias positivas se consideran conexiones (0 es la propia ciudad
+     * y -1 indica que no hay conexión directa).
+     *
+     * @param cityNames Lista de nombres de ciudades
+     * @param distanceMatrix Matriz de distancias entre ciudades
+     * @return El grafo equivalente
+     */
+    public static Graph fromMatrix(List<String> cityNames, double[][] distanceMatrix) {
+        Builder builder = new Builder(cityNames.size());
+        for (int i = 0; i < distanceMatrix.length; i++) {
+            for (int j = 0; j < distanceMatrix[i].length; j++) {
+                if (distanceMatrix[i][j] > 0) {
+                    builder.addEdge(i, j, distanceMatrix[i][j]);
+                }
+            }
+        }
+        return builder.build(cityNames);
+    }
+
+    public int getNumCities() {
+        return cityNames.size();
+    }
+
+    public int getNumEdges() {
+        return targets.limit();
+    }
+
+    public List<String> getCityNames() {
+        return cityNames;
+    }
+
+    public String getCityName(int city) {
+        return cityNames.get(city);
+    }
+
+    /**
+     * Buscar el índice de una ciudad por su nombre (sin distinguir mayúsculas) en O(1)
+     *
+     * @param cityName Nombre de la ciudad a buscar
+     * @return El índice de la ciudad, o -1 si no se encuentra
+     */
+    public int findCity(String cityName) {
+        return cityIndex.find(cityName);
+    }
+
+    /**
+     * @param city Índice de la ciudad
+     * @return Posición de la primera arista saliente de la ciudad
+     */
+    public int edgeStart(int city) {
+        return offsets.get(city);
+    }
+
+    /**
+     * @param city Índice de la ciudad
+     * @return Posición siguiente a la última arista saliente de la ciudad
+     */
+    public int edgeEnd(int city) {
+        return offsets.get(city + 1);
+    }
+
+    public int getTarget(int edge) {
+        return targets.get(edge);
+    }
+
+    public double getWeight(int edge) {
+        return weights.get(edge);
+    }
+
+    /**
+     * @return true si todas las ciudades tienen latitud y longitud
+     */
+    public boolean hasCoordinates() {
+        return latitudes != null;
+    }
+
+    public double getLatitude(int city) {
+        return latitudes.get(city);
+    }
+
+    public double getLongitude(int city) {
+        return longitudes.get(city);
+    }
+
+    /**
+     * Obtener la distancia directa entre dos ciudades con la misma convención
+     * que la matriz de distancias: 0 para la propia ciudad y -1 si no hay conexión.
+     * Si existen varias carreteras entre ambas ciudades se devuelve la más corta.
+     *
+     * @param from Índice de la ciudad de origen
+     * @param to Índice de la ciudad de destino
+     * @return La distancia entre las ciudades
+     */
+    public double getDistance(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        double best = -1;
+        for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+            if (getTarget(e) == to && (best < 0 || getWeight(e) < best)) {
+                best = getWeight(e);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Obtener el grafo traspuesto (todas las carreteras invertidas), necesario
+     * para las búsquedas hacia atrás en mapas dirigidos. Se calcula una sola vez.
+     *
+     * @return El grafo traspuesto
+     */
+    public Graph reverse() {
+        Graph result = reverse;
+        if (result == null) {
+            Builder builder = new Builder(getNumCities());
+            for (int from = 0; from < getNumCities(); from++) {
+                for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+                    builder.addEdge(getTarget(e), from, getWeight(e));
+                }
+            }
+            result = builder.build(cityNames, toArray(latitudes), toArray(longitudes));
+            result.reverse = this;
+            reverse = result;
+        }
+        return result;
+    }
+
+    /**
+     * Crear un grafo con las mismas ciudades, carreteras y coordenadas pero otras
+     * distancias. Comparte con este grafo todo salvo los pesos (también la
+     * estructura del traspuesto), así que solo copia O(E) distancias.
+     *
+     * @param newWeights Distancia de cada arista, en el mismo orden (infinito para una carretera cortada)
+     * @return El grafo con las nuevas distancias y su traspuesto ya calculado
+     */
+    Graph withWeights(double[] newWeights) {
+        if (newWeights.length != getNumEdges()) {
+            throw new IllegalArgumentException("Número de distancias incorrecto");
+        }
+        Graph updated = new Graph(cityNames, cityIndex, offsets, targets, DoubleBuffer.wrap(newWeights), latitudes, longitudes);
+        // El traspuesto se construye recorriendo las aristas en orden con una ordenación
+        // por conteo estable: repetir ese recorrido coloca cada peso en su posición
+        Graph oldReverse = reverse();
+        int n = getNumCities();
+        int[] next = new int[n];
+        for (int v = 0; v < n; v++) {
+            next[v] = oldReverse.edgeStart(v);
+        }
+        double[] reverseWeights = new double[newWeights.length];
+        for (int from = 0; from < n; from++) {
+            for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+                reverseWeights[next[getTarget(e)]++] = newWeights[e];
+            }
+        }
+        Graph reverseUpdated = new Graph(cityNames, cityIndex, oldReverse.offsets, oldReverse.targets,
+            DoubleBuffer.wrap(reverseWeights), latitudes, longitudes);
+        updated.reverse = reverseUpdated;
+        reverseUpdated.reverse = updated;
+        return updated;
+    }
+
+    /**
+     * @return Copia de las distancias de todas las aristas, en orden
+     */
+    double[] copyWeights() {
+        return toArray(weights);
+    }
+
+    /**
+     * Comprobar si el mapa es no dirigido: cada carretera u -> v tiene una
+     * carretera v -> u de la misma distancia. Se calcula una sola vez.
+     *
+     * @return true si todas las carreteras son de doble sentido y simétricas
+     */
+    public boolean isSymmetric() {
+        Boolean result = symmetric;
+        if (result == null) {
+            result = Boolean.TRUE;
+            for (int from = 0; from < getNumCities() && result; from++) {
+                for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+                    int to = getTarget(e);
+                    if (getDistance(to, from) != getDistance(from, to)) {
+                        result = Boolean.FALSE;
+                        break;
+                    }
+                }
+            }
+            symmetric = result;
+        }
+        return result;
+    }
+
+    /**
+     * Calcular una huella de la estructura y las distancias del grafo, para
+     * detectar datos de preprocesado que pertenecen a otra versión del mapa.
+     *
+     * @return La huella del grafo
+     */
+    public long fingerprint() {
+        Long result = fingerprint;
+        if (result == null) {
+            result = computeFingerprint();
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    private long computeFingerprint() {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + getNumCities();
+        for (int i = 0; i < offsets.limit(); i++) {
+            hash = 31 * hash + offsets.get(i);
+        }
+        for (int e = 0; e < targets.limit(); e++) {
+            hash = 31 * hash + targets.get(e);
+            hash = 31 * hash + Double.doubleToLongBits(weights.get(e));
+        }
+        return hash;
+    }
+
+    /**
+     * Escribir el grafo en una instantánea: nombres, índice de nombres, CSR,
+     * coordenadas, grafo traspuesto y huella, para que al cargarla no haya
+     * que calcular nada
+     *
+     * @param out Destino
+     * @throws IOException Si hay un error al escribir
+     */
+    void writeSnapshot(MapSnapshot.Writer out) throws IOException {
+        out.writeInt(getNumCities());
+        out.writeInt(getNumEdges());
+        out.writeInt(hasCoordinates() ? 1 : 0);
+        out.writeStrings(cityNames);
+        cityIndex.writeSnapshot(out);
+        out.writeInts(offsets);
+        out.writeInts(targets);
+        out.writeDoubles(weights);
+        if (hasCoordinates()) {
+            out.writeDoubles(latitudes);
+            out.writeDoubles(longitudes);
+        }
+        Graph reverse = reverse();
+        out.writeInts(reverse.offsets);
+        out.writeInts(reverse.targets);
+        out.writeDoubles(reverse.weights);
+        out.writeLong(fingerprint());
+    }
+
+    /**
+     * Leer un grafo escrito con writeSnapshot; todos sus arrays quedan proyectados en memoria
+     *
+     * @param in Origen
+     * @return El grafo, con su traspuesto y su huella ya disponibles
+     * @throws IOException Si hay un error al leer o los datos no son válidos
+     */
+    static Graph readSnapshot(MapSnapshot.Reader in) throws IOException {
+        int n = in.readInt();
+        int m = in.readInt();
+        boolean withCoordinates = in.readInt() != 0;
+        List<String> names = Collections.unmodifiableList(in.mapStrings(n));
+        CityIndex index = CityIndex.readSnapshot(in, n);
+        IntBuffer offsets = in.mapInts(n + 1);
+        IntBuffer targets = in.mapInts(m);
+        DoubleBuffer weights = in.mapDoubles(m);
+        DoubleBuffer latitudes = withCoordinates ? in.mapDoubles(n) : null;
+        DoubleBuffer longitudes = withCoordinates ? in.mapDoubles(n) : null;
+        Graph graph = new Graph(names, index, offsets, targets, weights, latitudes, longitudes);
+        Graph reverse = new Graph(names, index, in.mapInts(n + 1), in.mapInts(m), in.mapDoubles(m), latitudes, longitudes);
+        reverse.reverse = graph;
+        graph.reverse = reverse;
+        graph.fingerprint = in.readLong();
+        return graph;
+    }
+
+    private static double[] toArray(DoubleBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        double[] values = new double[buffer.limit()];
+        buffer.get(0, values);
+        return values;
+    }
+
+    /**
+     * Acumula aristas en cualquier orden y construye el grafo CSR con una
+     * ordenación por conteo, sin necesitar nunca una matriz N×N.
+     */
+    public static class Builder {
+        private int numCities;
+        private int[] from;
+        private int[] to;
+        private double[] weight;
+        private int size;
+        private double[] latitudes = new double[0];
+        private double[] longitudes = new double[0];
+        private int numCoordinates;
+
+        /**
+         * @param expectedCities Número estimado de ciudades
+         */
+        public Builder(int expectedCities) {
+            int capacity = Math.max(16, expectedCities * 4);
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.weight = new double[capacity];
+        }
+
+        /**
+         * Añadir una carretera dirigida
+         *
+         * @param fromCity Índice de la ciudad de origen
+         * @param toCity Índice de la ciudad de destino
+         * @param distance Distancia en km (debe ser positiva)
+         */
+        public void addEdge(int fromCity, int toCity, double distance) {
+            if (fromCity < 0 || toCity < 0) {
+                throw new IllegalArgumentException("Índice de ciudad negativo");
+            }
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = fromCity;
+            to[size] = toCity;
+            weight[size] = distance;
+            size++;
+            numCities = Math.max(numCities, Math.max(fromCity, toCity) + 1);
+        }
+
+        /**
+         * Asignar las coordenadas geográficas de una ciudad
+         *
+         * @param city Índice de la ciudad
+         * @param latitude Latitud en grados
+         * @param longitude Longitud en grados
+         */
+        public void setCoordinates(int city, double latitude, double longitude) {
+            if (city >= latitudes.length) {
+                int capacity = Math.max(16, Math.max(city + 1, latitudes.length * 2));
+                int oldLength = latitudes.length;
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                Arrays.fill(latitudes, oldLength, capacity, Double.NaN);
+            }
+            if (Double.isNaN(latitudes[city])) {
+                numCoordinates++;
+            }
+            latitudes[city] = latitude;
+            longitudes[city] = longitude;
+        }
+
+        /**
+         * Construir el grafo. Las coordenadas solo se conservan si todas las
+         * ciudades las tienen. El orden relativo de las aristas de una misma ciudad
+         * se conserva.
+         *
+         * @param cityNames Lista de nombres de ciudades
+         * @return El grafo CSR
+         */
+        public Graph build(List<String> cityNames) {
+            int n = cityNames.size();
+            if (n > 0 && numCoordinates == n) {
+                return build(cityNames, Arrays.copyOf(latitudes, n), Arrays.copyOf(longitudes, n));
+            }
+            return build(cityNames, null, null);
+        }
+
+        private Graph build(List<String> cityNames, double[] cityLatitudes, double[] cityLongitudes) {
+            int n = cityNames.size();
+            if (numCities > n) {
+                throw new IllegalArgumentException("Hay aristas hacia ciudades inexistentes (índice " + (numCities - 1) + ")");
+            }
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[size];
+            double[] weights = new double[size];
+            for (int i = 0; i < size; i++) {
+                int pos = next[from[i]]++;
+                targets[pos] = to[i];
+                weights[pos] = weight[i];
+            }
+            return new Graph(cityNames, offsets, targets, weights, cityLatitudes, cityLongitudes);
+        }
+    }
+}
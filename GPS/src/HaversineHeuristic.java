@@ -0,0 +1,92 @@
+/**
+ * Heurística basada en la distancia de círculo máximo (fórmula del haversine)
+ * entre las coordenadas de las ciudades.
+ * Como una carretera nunca puede ser más corta que la línea recta sobre la esfera,
+ * la estimación es admisible. Por si el mapa contiene alguna distancia menor que
+ * la geográfica (coordenadas aproximadas), la estimación se escala por el menor
+ * cociente distancia/círculo máximo de todas las carreteras, lo que garantiza
+ * que la heurística sea consistente y A* siga siendo óptimo.
+ */
+public class HaversineHeuristic implements Heuristic {
+    // Radio medio de la Tierra en km
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    
+    private final double[] latitudes;    // Radianes
+    private final double[] longitudes;   // Radianes
+    private final double[] cosLatitudes; // Precalculado para el haversine
+    private final double scale;
+    
+    /**
+     * Constructor para la clase HaversineHeuristic
+     * 
+     * @param graph Grafo con coordenadas
+     */
+    public HaversineHeuristic(Graph graph) {
+        if (!graph.hasCoordinates()) {
+            throw new IllegalArgumentException("La cartografía no tiene coordenadas");
+        }
+        int n = graph.getNumCities();
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        this.cosLatitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = Math.toRadians(graph.getLatitude(i));
+            longitudes[i] = Math.toRadians(graph.getLongitude(i));
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+        }
+        
+        // Buscar la carretera más "corta" respecto a su distancia geográfica
+        double minRatio = 1.0;
+        for (int from = 0; from < n; from++) {
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+                double greatCircle = greatCircleDistance(from, graph.getTarget(e));
+                if (greatCircle > 0) {
+                    minRatio = Math.min(minRatio, graph.getWeight(e) / greatCircle);
+                }
+            }
+        }
+        this.scale = minRatio;
+    }
+    
+    @Override
+    public double estimate(int from, int to) {
+        return scale * greatCircleDistance(from, to);
+    }
+    
+    /**
+     * @return Factor aplicado a la distancia geográfica (1 si todas las carreteras son más largas que la línea recta)
+     */
+    public double getScale() {
+        return scale;
+    }
+    
+    /**
+     * Calcular la distancia de círculo máximo entre dos ciudades
+     * 
+     * @param from Índice de la primera ciudad
+     * @param to Índice de la segunda ciudad
+     * @return La distancia en km
+     */
+    public double greatCircleDistance(int from, int to) {
+        double sinLat = Math.sin((latitudes[to] - latitudes[from]) * 0.5);
+        double sinLon = Math.sin((longitudes[to] - longitudes[from]) * 0.5);
+        double a = sinLat * sinLat + cosLatitudes[from] * cosLatitudes[to] * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+    
+    /**
+     * Calcular la distancia de círculo máximo entre dos puntos
+     * 
+     * @param latitude1 Latitud del primer punto en grados
+     * @param longitude1 Longitud del primer punto en grados
+     * @param latitude2 Latitud del segundo punto en grados
+     * @param longitude2 Longitud del segundo punto en grados
+     * @return La distancia en km
+     */
+    public static double greatCircleDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinLat = Math.sin(Math.toRadians(latitude2 - latitude1) * 0.5);
+        double sinLon = Math.sin(Math.toRadians(longitude2 - longitude1) * 0.5);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Estimación del costo restante entre dos ciudades para el algoritmo A*.
+ * Para que A* siga encontrando la ruta óptima la estimación debe ser una cota
+ * inferior de la distancia real (admisible) y además consistente:
+ * estimate(u, t) <= w(u, v) + estimate(v, t) para cada carretera u -> v.
+ */
+public interface Heuristic {
+    
+    /**
+     * Heurística nula: convierte A* en el algoritmo de Dijkstra
+     */
+    Heuristic ZERO = (from, to) -> 0;
+    
+    /**
+     * Calcular una cota inferior de la distancia por carretera entre dos ciudades
+     * 
+     * @param from Índice de la ciudad de origen
+     * @param to Índice de la ciudad de destino
+     * @return La distancia estimada en km
+     */
+    double estimate(int from, int to);
+    
+    /**
+     * Combinar dos heurísticas tomando el máximo. Si ambas son admisibles y
+     * consistentes, el máximo también lo es y nunca es peor que ninguna de ellas.
+     * 
+     * @param first Primera heurística
+     * @param second Segunda heurística
+     * @return La heurística combinada
+     */
+    static Heuristic max(Heuristic first, Heuristic second) {
+        if (first == ZERO) {
+            return second;
+        }
+        if (second == ZERO) {
+            return first;
+        }
+        return (from, to) -> Math.max(first.estimate(from, to), second.estimate(from, to));
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * Montículo binario de mínimos indexado por número de nodo.
+ * Cada nodo aparece como máximo una vez, y gracias al array de posiciones
+ * se puede reducir su prioridad (decrease-key) en O(log n) sin buscarlo.
+ * No reserva memoria después de su construcción.
+ */
+public class IndexedMinHeap {
+    private final int[] heap;     // Nodos ordenados como montículo
+    private final int[] position; // Posición de cada nodo en el montículo, o -1
+    private final double[] keys;  // Prioridad de cada nodo
+    private int size;
+    private long pushes;    // Nodos insertados desde clearCounters()
+    private long decreases; // Prioridades reducidas (decrease-key) desde clearCounters()
+
+    /**
+     * Constructor para la clase IndexedMinHeap
+     *
+     * @param capacity Número de nodos posibles (índices 0..capacity-1)
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    /**
+     * @param node Nodo presente en el montículo
+     * @return La prioridad actual del nodo
+     */
+    public double getKey(int node) {
+        return keys[node];
+    }
+
+    /**
+     * @param index Posición en el montículo (0..size-1)
+     * @return El nodo en esa posición, sin ningún orden garantizado salvo para la posición 0
+     */
+    public int get(int index) {
+        return heap[index];
+    }
+
+    /**
+     * Insertar un nodo o reducir su prioridad si ya está en el montículo.
+     * Si la nueva prioridad no es menor, no se hace nada.
+     *
+     * @param node El nodo
+     * @param key La nueva prioridad
+     * @return true si el nodo se insertó o su prioridad se redujo
+     */
+    public boolean insertOrDecrease(int node, double key) {
+        int pos = position[node];
+        if (pos < 0) {
+            keys[node] = key;
+            heap[size] = node;
+            position[node] = size;
+            siftUp(size++);
+            pushes++;
+            return true;
+        }
+        if (key < keys[node]) {
+            keys[node] = key;
+            siftUp(pos);
+            decreases++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Insertar un nodo o cambiar su prioridad, tanto si aumenta como si disminuye
+     *
+     * @param node El nodo
+     * @param key La nueva prioridad
+     */
+    public void update(int node, double key) {
+        int pos = position[node];
+        if (pos < 0 || key < keys[node]) {
+            insertOrDecrease(node, key);
+        } else if (key > keys[node]) {
+            keys[node] = key;
+            siftDown(pos);
+        }
+    }
+
+    /**
+     * @return El nodo con menor prioridad (sin extraerlo)
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * @return La menor prioridad del montículo
+     */
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Extraer el nodo con menor prioridad
+     *
+     * @return El nodo extraído
+     */
+    public int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Vaciar el montículo en O(size), dejando listo para una nueva búsqueda
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return Nodos insertados desde la última llamada a clearCounters()
+     */
+    public long getPushes() {
+        return pushes;
+    }
+
+    /**
+     * @return Reducciones de prioridad (decrease-key) desde la última llamada a clearCounters()
+     */
+    public long getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * Poner a cero los contadores de inserciones y decrease-key
+     */
+    public void clearCounters() {
+        pushes = 0;
+        decreases = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parent = heap[parentPos];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[pos] = parent;
+            position[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if (key <= keys[heap[child]]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+
+/**
+ * Lista de enteros primitivos que crece automáticamente, para acumular
+ * índices de ciudades sin crear objetos Integer.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     * @param capacity Capacidad inicial
+     */
+    public IntList(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Extraer el último elemento (uso como pila)
+     *
+     * @return El último elemento
+     */
+    public int pop() {
+        return values[--size];
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
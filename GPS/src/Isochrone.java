@@ -0,0 +1,108 @@
+/**
+ * Ciudades alcanzables desde un origen sin superar una distancia máxima
+ * (isócrona), con la distancia mínima a cada una. Se obtiene con una sola
+ * búsqueda de uno a todos que se detiene al llegar al límite, en lugar de una
+ * búsqueda por cada ciudad candidata. Las ciudades están ordenadas de más
+ * cerca a más lejos; el origen es la primera, a distancia 0.
+ */
+public class Isochrone {
+    private final int source;
+    private final double budget;
+    private final int[] cities;
+    private final double[] costs;
+    private final int[] parents;
+
+    private Isochrone(int source, double budget, int[] cities, double[] costs, int[] parents) {
+        this.source = source;
+        this.budget = budget;
+        this.cities = cities;
+        this.costs = costs;
+        this.parents = parents;
+    }
+
+    /**
+     * Dijkstra desde el origen que solo recorre las ciudades a distancia menor
+     * o igual que el límite: las que lo superan no llegan a entrar en el montículo.
+     *
+     * @param graph El grafo de carreteras
+     * @param source Índice de la ciudad de origen
+     * @param budget Distancia máxima (incluida)
+     * @param ws Espacio de trabajo con capacidad para el grafo
+     * @return Las ciudades alcanzables
+     */
+    public static Isochrone compute(Graph graph, int source, double budget, SearchWorkspace ws) {
+        ws.reset();
+        IndexedMinHeap openSet = ws.getOpenSet();
+        IntList settled = new IntList();
+        if (budget >= 0) {
+            ws.update(source, 0, -1);
+            openSet.insertOrDecrease(source, 0);
+        }
+
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            double currentG = ws.getG(current);
+            ws.close(current);
+            settled.add(current);
+            ws.countRelaxedEdges(graph.edgeEnd(current) - graph.edgeStart(current));
+
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.getTarget(e);
+                double cost = currentG + graph.getWeight(e);
+                if (cost <= budget && !ws.isClosed(neighbor) && cost < ws.getG(neighbor)) {
+                    ws.update(neighbor, cost, current);
+                    openSet.insertOrDecrease(neighbor, cost);
+                }
+            }
+        }
+
+        // Copiar el resultado: el espacio de trabajo se reutiliza en la siguiente búsqueda
+        int[] cities = settled.toArray();
+        double[] costs = new double[cities.length];
+        int[] parents = new int[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            costs[i] = ws.getG(cities[i]);
+            parents[i] = ws.getParent(cities[i]);
+        }
+        return new Isochrone(source, budget, cities, costs, parents);
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return Número de ciudades alcanzables, contando el origen
+     */
+    public int size() {
+        return cities.length;
+    }
+
+    /**
+     * @param index Posición (0..size-1), de más cerca a más lejos
+     * @return El índice de la ciudad
+     */
+    public int getCity(int index) {
+        return cities[index];
+    }
+
+    /**
+     * @param index Posición (0..size-1), de más cerca a más lejos
+     * @return La distancia mínima desde el origen
+     */
+    public double getCost(int index) {
+        return costs[index];
+    }
+
+    /**
+     * @param index Posición (0..size-1), de más cerca a más lejos
+     * @return La ciudad anterior en el camino más corto desde el origen, o -1 para el origen
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+}
@@ -0,0 +1,313 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Heurística ALT (A*, Landmarks y desigualdad Triangular).
+ * En un preprocesado se eligen K ciudades de referencia (landmarks) y se guardan
+ * las distancias desde y hacia cada una de ellas. Por la desigualdad triangular,
+ * para cualquier landmark L:
+ *   d(v, t) >= d(L, t) - d(L, v)   y   d(v, t) >= d(v, L) - d(t, L)
+ * El máximo de estas cotas es una heurística admisible y consistente que funciona
+ * aunque el mapa no tenga coordenadas, e incluso en mapas dirigidos.
+ */
+public class Landmarks implements Heuristic {
+    private static final int FILE_MAGIC = 0x414C5431; // "ALT1"
+
+    private final int[] landmarks;
+    private final int numCities;
+    // Distancias indexadas como [ciudad * K + landmark] para leer juntas las de una ciudad
+    // En el heap o proyectadas desde una instantánea (MapSnapshot)
+    private final DoubleBuffer fromLandmark; // d(L, v)
+    private final DoubleBuffer toLandmark;   // d(v, L)
+    private final long graphFingerprint;
+
+    private Landmarks(int[] landmarks, int numCities, DoubleBuffer fromLandmark, DoubleBuffer toLandmark, long graphFingerprint) {
+        this.landmarks = landmarks;
+        this.numCities = numCities;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        this.graphFingerprint = graphFingerprint;
+    }
+
+    /**
+     * Elegir K landmarks por el método del punto más lejano y calcular sus tablas de distancias.
+     * Cada nuevo landmark es la ciudad más alejada de los ya elegidos, de modo que
+     * quedan repartidos por los extremos del mapa, donde dan mejores cotas.
+     *
+     * @param graph El grafo a preprocesar
+     * @param count Número de landmarks deseado (K)
+     * @return Las tablas de landmarks
+     */
+    public static Landmarks compute(Graph graph, int count) {
+        int n = graph.getNumCities();
+        int k = Math.max(1, Math.min(count, n));
+        int[] chosen = new int[k];
+        double[] fromLandmark = new double[n * k];
+        double[] toLandmark = new double[n * k];
+
+        Graph reverse = graph.reverse();
+        SearchWorkspace ws = new SearchWorkspace(n);
+        double[] distances = new double[n];
+        double[] nearest = new double[n]; // Distancia al landmark más cercano ya elegido
+
+        // El primer landmark es la ciudad más alejada de la ciudad 0
+        AStar.computeDistances(graph, 0, ws, distances);
+        int next = farthest(distances);
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        for (int i = 0; i < k; i++) {
+            chosen[i] = next;
+            AStar.computeDistances(graph, next, ws, distances);
+            for (int v = 0; v < n; v++) {
+                fromLandmark[v * k + i] = distances[v];
+                nearest[v] = Math.min(nearest[v], distances[v]);
+            }
+            AStar.computeDistances(reverse, next, ws, distances);
+            for (int v = 0; v < n; v++) {
+                toLandmark[v * k + i] = distances[v];
+            }
+            // Las ciudades inalcanzables desde todos los landmarks se eligen primero
+            next = farthest(nearest);
+        }
+
+        return new Landmarks(chosen, n, DoubleBuffer.wrap(fromLandmark), DoubleBuffer.wrap(toLandmark), graph.fingerprint());
+    }
+
+    /**
+     * Recalcular las tablas con los mismos landmarks para un grafo con la misma
+     * estructura y otras distancias. Cuesta dos búsquedas de uno a todos por
+     * landmark, que se hacen en paralelo, y se ahorra la elección de landmarks.
+     *
+     * @param graph El grafo con las nuevas distancias
+     * @return Las nuevas tablas
+     */
+    public Landmarks recompute(Graph graph) {
+        int n = graph.getNumCities();
+        if (n != numCities) {
+            throw new IllegalArgumentException("Los landmarks no corresponden al mapa");
+        }
+        int k = landmarks.length;
+        double[] newFromLandmark = new double[n * k];
+        double[] newToLandmark = new double[n * k];
+        Graph reverse = graph.reverse();
+        IntStream.range(0, k).parallel().forEach(i -> {
+            SearchWorkspace ws = new SearchWorkspace(n);
+            double[] distances = new double[n];
+            AStar.computeDistances(graph, landmarks[i], ws, distances);
+            for (int v = 0; v < n; v++) {
+                newFromLandmark[v * k + i] = distances[v];
+            }
+            AStar.computeDistances(reverse, landmarks[i], ws, distances);
+            for (int v = 0; v < n; v++) {
+                newToLandmark[v * k + i] = distances[v];
+            }
+        });
+        return new Landmarks(landmarks, n, DoubleBuffer.wrap(newFromLandmark), DoubleBuffer.wrap(newToLandmark),
+            graph.fingerprint());
+    }
+
+    /**
+     * Usar las mismas tablas para un grafo igual salvo distancias que solo han
+     * aumentado (o carreteras cortadas). Las distancias reales no pueden bajar,
+     * así que las cotas siguen siendo admisibles y consistentes, aunque más flojas.
+     *
+     * @param graph El grafo con las nuevas distancias
+     * @return Las tablas asociadas al nuevo grafo, sin copiarlas
+     */
+    public Landmarks forIncreasedWeights(Graph graph) {
+        if (graph.getNumCities() != numCities) {
+            throw new IllegalArgumentException("Los landmarks no corresponden al mapa");
+        }
+        return new Landmarks(landmarks, numCities, fromLandmark, toLandmark, graph.fingerprint());
+    }
+
+    private static int farthest(double[] distances) {
+        int best = 0;
+        for (int v = 1; v < distances.length; v++) {
+            if (distances[v] > distances[best]) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public double estimate(int from, int to) {
+        int k = landmarks.length;
+        int fromBase = from * k;
+        int toBase = to * k;
+        double best = 0;
+        for (int i = 0; i < k; i++) {
+            // d(L, t) - d(L, v): solo tiene sentido si v es alcanzable desde L
+            double landmarkToFrom = fromLandmark.get(fromBase + i);
+            if (landmarkToFrom != Double.POSITIVE_INFINITY) {
+                double bound = fromLandmark.get(toBase + i) - landmarkToFrom;
+                if (bound > best) {
+                    best = bound;
+                }
+            }
+            // d(v, L) - d(t, L): solo tiene sentido si L es alcanzable desde t
+            double goalToLandmark = toLandmark.get(toBase + i);
+            if (goalToLandmark != Double.POSITIVE_INFINITY) {
+                double bound = toLandmark.get(fromBase + i) - goalToLandmark;
+                if (bound > best) {
+                    best = bound;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Número de landmarks (K)
+     */
+    public int size() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param i Posición del landmark
+     * @return Índice de la ciudad usada como landmark
+     */
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    /**
+     * Obtener el nombre del archivo de landmarks asociado a una cartografía
+     *
+     * @param mapFilename Nombre del archivo de cartografía
+     * @return Nombre del archivo de landmarks (junto al mapa)
+     */
+    public static String fileFor(String mapFilename) {
+        return mapFilename + ".alt";
+    }
+
+    /**
+     * Guardar las tablas en un archivo binario
+     *
+     * @param filename Nombre del archivo
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeLong(graphFingerprint);
+            out.writeInt(numCities);
+            out.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (int i = 0; i < fromLandmark.limit(); i++) {
+                out.writeDouble(fromLandmark.get(i));
+            }
+            for (int i = 0; i < toLandmark.limit(); i++) {
+                out.writeDouble(toLandmark.get(i));
+            }
+        }
+    }
+
+    /**
+     * Cargar las tablas desde un archivo binario, comprobando que se calcularon para este grafo
+     *
+     * @param filename Nombre del archivo
+     * @param graph El grafo al que deben corresponder
+     * @return Las tablas de landmarks
+     * @throws IOException Si hay un error al leer el archivo o no corresponde al grafo
+     */
+    public static Landmarks load(String filename, Graph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("El archivo " + filename + " no contiene landmarks");
+            }
+            long fingerprint = in.readLong();
+            int n = in.readInt();
+            int k = in.readInt();
+            if (fingerprint != graph.fingerprint() || n != graph.getNumCities()) {
+                throw new IOException("Los landmarks de " + filename + " corresponden a otra versión del mapa");
+            }
+            checkCount(n, k);
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = in.readInt();
+            }
+            checkCities(landmarks, n);
+            double[] fromLandmark = new double[n * k];
+            for (int i = 0; i < fromLandmark.length; i++) {
+                fromLandmark[i] = in.readDouble();
+            }
+            double[] toLandmark = new double[n * k];
+            for (int i = 0; i < toLandmark.length; i++) {
+                toLandmark[i] = in.readDouble();
+            }
+            return new Landmarks(landmarks, n, DoubleBuffer.wrap(fromLandmark), DoubleBuffer.wrap(toLandmark), fingerprint);
+        }
+    }
+
+    /**
+     * Escribir las tablas en una instantánea
+     *
+     * @param out Destino
+     * @throws IOException Si hay un error al escribir
+     */
+    void writeSnapshot(MapSnapshot.Writer out) throws IOException {
+        out.writeLong(graphFingerprint);
+        out.writeInt(numCities);
+        out.writeInt(landmarks.length);
+        out.writeInts(IntBuffer.wrap(landmarks));
+        out.writeDoubles(fromLandmark);
+        out.writeDoubles(toLandmark);
+    }
+
+    /**
+     * Leer unas tablas escritas con writeSnapshot; las distancias quedan proyectadas en memoria
+     *
+     * @param in Origen
+     * @param graph El grafo al que deben corresponder
+     * @return Las tablas de landmarks
+     * @throws IOException Si hay un error al leer o no corresponden al grafo
+     */
+    static Landmarks readSnapshot(MapSnapshot.Reader in, Graph graph) throws IOException {
+        long fingerprint = in.readLong();
+        int n = in.readInt();
+        int k = in.readInt();
+        if (fingerprint != graph.fingerprint() || n != graph.getNumCities()) {
+            throw new IOException("Los landmarks de la instantánea no corresponden al mapa");
+        }
+        checkCount(n, k);
+        int[] landmarks = new int[k];
+        in.mapInts(k).get(0, landmarks);
+        checkCities(landmarks, n);
+        return new Landmarks(landmarks, n, in.mapDoubles(n * k), in.mapDoubles(n * k), fingerprint);
+    }
+
+    /**
+     * Comprobar el número de landmarks leído antes de reservar las tablas:
+     * entre 1 y N, y con N × K (calculado en long) dentro del tamaño de un array
+     */
+    private static void checkCount(int n, int k) throws IOException {
+        if (k < 1 || k > n || (long) n * k > Integer.MAX_VALUE) {
+            throw new IOException("Número de landmarks inválido: " + k + " para " + n + " ciudades");
+        }
+    }
+
+    /**
+     * Comprobar que cada landmark leído es una ciudad del mapa
+     */
+    private static void checkCities(int[] landmarks, int n) throws IOException {
+        for (int landmark : landmarks) {
+            if (landmark < 0 || landmark >= n) {
+                throw new IOException("Landmark fuera del mapa: " + landmark);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cartografía en uso, que se puede cambiar sin detener las consultas. El
+ * contexto actual se publica en una referencia atómica: cada consulta lo
+ * adquiere (sin bloqueos), busca y lo devuelve; publicar un contexto nuevo
+ * solo cambia la referencia. Las consultas que ya habían empezado terminan
+ * con el contexto anterior, que se libera cuando devuelve la última.
+ *
+ * Los mapas nuevos se cargan y preprocesan en un hilo propio (reload), así
+ * que mientras tanto se sigue respondiendo con el mapa actual.
+ */
+public final class LiveMap {
+    private final AtomicReference<RoutingContext> current = new AtomicReference<>();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "gps-carga");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Adquirir el contexto actual. Hay que devolverlo con release() (o close())
+     * al terminar la consulta, normalmente con un try-with-resources.
+     *
+     * @return El contexto actual, o null si todavía no se ha publicado ninguno
+     */
+    public RoutingContext acquire() {
+        while (true) {
+            RoutingContext context = current.get();
+            // Si retain falla, el contexto se acaba de sustituir y liberar: se lee el nuevo
+            if (context == null || context.retain()) {
+                return context;
+            }
+        }
+    }
+
+    /**
+     * Publicar un contexto, que pasa a ser el de las consultas nuevas. Su
+     * referencia pasa a ser del LiveMap, que devuelve la del contexto anterior.
+     *
+     * @param next El nuevo contexto, o null para dejar de responder consultas
+     */
+    public void publish(RoutingContext next) {
+        RoutingContext previous = current.getAndSet(next);
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    /**
+     * Publicar un contexto derivado de expected solo si expected sigue siendo
+     * el actual, para no deshacer una recarga que se haya publicado mientras se
+     * preparaba next. Si no se publica, next se libera.
+     *
+     * @param expected Contexto del que se ha derivado next
+     * @param next El nuevo contexto
+     * @return true si se ha publicado
+     */
+    public boolean replace(RoutingContext expected, RoutingContext next) {
+        if (current.compareAndSet(expected, next)) {
+            expected.release();
+            return true;
+        }
+        next.release();
+        return false;
+    }
+
+    /**
+     * Cargar un contexto en segundo plano y publicarlo al terminar. Si la carga
+     * falla, se sigue usando el contexto actual.
+     *
+     * @param task Carga del contexto (por ejemplo RoutingContext.load)
+     * @return El resultado de la carga: el contexto publicado, que para hacer
+     *         consultas hay que adquirir igualmente con acquire()
+     * @throws IllegalStateException Si ya hay otra carga en curso
+     */
+    public CompletableFuture<RoutingContext> reload(Callable<RoutingContext> task) {
+        if (!loading.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una carga de cartografía en curso");
+        }
+        CompletableFuture<RoutingContext> result = new CompletableFuture<>();
+        loader.execute(() -> {
+            RoutingContext next = null;
+            Throwable failure = null;
+            try {
+                next = task.call();
+                publish(next);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            loading.set(false);
+            if (failure == null) {
+                result.complete(next);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return true si hay una carga en segundo plano en curso
+     */
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    /**
+     * @return Versión del contexto actual, o 0 si no hay ninguno
+     */
+    public long getVersion() {
+        RoutingContext context = current.get();
+        return context == null ? 0 : context.getVersion();
+    }
+
+    /**
+     * @return Métricas de búsqueda del contexto actual, o null si no hay ninguno
+     */
+    public SearchMetrics getSearchMetrics() {
+        RoutingContext context = current.get();
+        return context == null ? null : context.getSearchMetrics();
+    }
+
+    /**
+     * Dejar de publicar el contexto actual y detener el hilo de carga
+     */
+    public void close() {
+        loader.shutdown();
+        publish(null);
+    }
+}
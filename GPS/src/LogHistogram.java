@@ -0,0 +1,124 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores no negativos (por ejemplo latencias en nanosegundos)
+ * con cubetas logarítmicas, al estilo de HdrHistogram: cada potencia de dos se
+ * divide en 2^SUB_BITS cubetas del mismo ancho, así que cualquier percentil se
+ * obtiene con un error relativo menor de 1/2^SUB_BITS. Los valores menores de
+ * 2^(SUB_BITS+1) se guardan exactos.
+ *
+ * Registrar un valor solo incrementa contadores atómicos de tamaño fijo: no
+ * crea objetos y se puede llamar desde varios hilos a la vez.
+ */
+public final class LogHistogram {
+    private static final int SUB_BITS = 4; // 16 cubetas por potencia de dos: error < 6,25 %
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BITS + 1) * SUB_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Registrar un valor
+     *
+     * @param value El valor (los negativos cuentan como 0)
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /**
+     * @param bucket Índice de la cubeta
+     * @return El mayor valor que cae en la cubeta
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long subBucket = bucket % SUB_COUNT + SUB_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @return Número de valores registrados
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Media de los valores registrados, o 0 si no hay ninguno
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n > 0 ? (double) sum.sum() / n : 0;
+    }
+
+    /**
+     * @return El mayor valor registrado, o 0 si no hay ninguno
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Valor por debajo del cual (o igual) queda el porcentaje pedido de los
+     * valores registrados. Si se registra a la vez que se consulta, el resultado
+     * puede no incluir los últimos valores.
+     *
+     * @param percentile Porcentaje entre 0 y 100
+     * @return El percentil (el mayor valor de su cubeta, sin pasar del máximo), o 0 si no hay valores
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Vaciar el histograma. Los valores registrados a la vez que se vacía pueden
+     * contarse solo en parte.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
@@ -0,0 +1,606 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generador de mapas sintéticos para pruebas de carga.
+ *
+ * Las ciudades se reparten por un rectángulo del tamaño aproximado de la
+ * península (latitud 36–43,5, longitud -9–3) y cada carretera mide entre un
+ * 0 % y un 50 % más que la línea recta entre sus ciudades, según la topología:
+ * - GRID: cuadrícula con 4 vecinos por ciudad (8 con diagonales si el grado es 8 o más).
+ * - RANDOM_GEOMETRIC: puntos aleatorios unidos con sus K vecinos más cercanos (K = grado).
+ * - ROAD_LIKE: cuadrícula deformada y plana, con carreteras eliminadas al azar hasta
+ *   el grado pedido, una diagonal como máximo por celda y autovías (más rectas)
+ *   cada 8 filas y columnas. Siempre es conexa.
+ * Con la opción dirigida cada sentido tiene su propia distancia y un 10 % de las
+ * carreteras son de sentido único.
+ *
+ * El archivo se escribe por defecto en formato de lista de aristas, sin límite
+ * de ciudades, o a petición en formato de matriz (fila a fila a partir del grafo
+ * disperso, sin crear nunca una matriz N×N en memoria), y se puede volver a
+ * cargar con MapParser.
+ */
+public class MapGenerator {
+    /**
+     * Forma de la red de carreteras generada
+     */
+    public enum Topology {
+        GRID, RANDOM_GEOMETRIC, ROAD_LIKE
+    }
+
+    // Máximo de ciudades al escribir en formato de matriz (el archivo ocupa N² distancias)
+    public static final int MAX_MATRIX_CITIES = 50_000;
+
+    private static final double MIN_LATITUDE = 36.0;
+    private static final double MAX_LATITUDE = 43.5;
+    private static final double MIN_LONGITUDE = -9.0;
+    private static final double MAX_LONGITUDE = 3.0;
+    private static final double ONE_WAY_FRACTION = 0.1;
+    private static final int HIGHWAY_SPACING = 8;
+
+    private final Topology topology;
+    private final int numCities;
+    private int degree = 4;
+    private boolean directed = false;
+    private boolean coordinates = true;
+    private long seed = 1;
+    private MapParser.Format format = MapParser.Format.EDGE_LIST;
+
+    /**
+     * Constructor para la clase MapGenerator
+     *
+     * @param topology Forma de la red de carreteras
+     * @param numCities Número de ciudades
+     */
+    public MapGenerator(Topology topology, int numCities) {
+        if (numCities < 2) {
+            throw new IllegalArgumentException("El mapa debe tener al menos 2 ciudades");
+        }
+        this.topology = topology;
+        this.numCities = numCities;
+    }
+
+    /**
+     * @param degree Número medio de carreteras por ciudad (vecinos en RANDOM_GEOMETRIC)
+     * @return Este generador
+     */
+    public MapGenerator setDegree(int degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("El grado debe ser al menos 1");
+        }
+        this.degree = degree;
+        return this;
+    }
+
+    /**
+     * @param directed true para generar carreteras de sentido único y distancias distintas por sentido
+     * @return Este generador
+     */
+    public MapGenerator setDirected(boolean directed) {
+        this.directed = directed;
+        return this;
+    }
+
+    /**
+     * @param coordinates true para escribir las coordenadas de cada ciudad (Ciudad@Latitud,Longitud)
+     * @return Este generador
+     */
+    public MapGenerator setCoordinates(boolean coordinates) {
+        this.coordinates = coordinates;
+        return this;
+    }
+
+    /**
+     * @param seed Semilla aleatoria; la misma semilla genera siempre el mismo mapa
+     * @return Este generador
+     */
+    public MapGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param format Formato del archivo que crea write (lista de aristas por defecto, o matriz)
+     * @return Este generador
+     */
+    public MapGenerator setFormat(MapParser.Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Generar el mapa en memoria
+     *
+     * @return El grafo generado
+     */
+    public Graph generate() {
+        Random random = new Random(seed);
+        double[] latitudes = new double[numCities];
+        double[] longitudes = new double[numCities];
+        Graph.Builder builder = new Graph.Builder(numCities);
+
+        switch (topology) {
+            case GRID:
+                generateGrid(random, latitudes, longitudes, builder);
+                break;
+            case RANDOM_GEOMETRIC:
+                generateRandomGeometric(random, latitudes, longitudes, builder);
+                break;
+            default:
+                generateRoadLike(random, latitudes, longitudes, builder);
+        }
+
+        if (coordinates) {
+            for (int city = 0; city < numCities; city++) {
+                builder.setCoordinates(city, latitudes[city], longitudes[city]);
+            }
+        }
+        return builder.build(cityNames(numCities));
+    }
+
+    private static List<String> cityNames(int numCities) {
+        List<String> names = new ArrayList<>(numCities);
+        for (int city = 0; city < numCities; city++) {
+            names.add("Ciudad" + city);
+        }
+        return names;
+    }
+
+    /**
+     * Generar el mapa y escribirlo en el formato elegido con setFormat
+     *
+     * @param filename Nombre del archivo a crear
+     * @return El grafo generado
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    public Graph write(String filename) throws IOException {
+        if (format == MapParser.Format.MATRIX && numCities > MAX_MATRIX_CITIES) {
+            throw new IllegalArgumentException("El formato de matriz ocupa N² distancias: como máximo "
+                + MAX_MATRIX_CITIES + " ciudades (use el formato de lista de aristas)");
+        }
+        Graph graph = generate();
+        if (format == MapParser.Format.MATRIX) {
+            writeMatrix(graph, filename);
+        } else {
+            writeEdgeList(graph, filename);
+        }
+        return graph;
+    }
+
+    /**
+     * Escribir un grafo en formato de matriz, una fila cada vez.
+     * Solo se guarda en memoria una fila de distancias.
+     *
+     * @param graph Grafo a escribir
+     * @param filename Nombre del archivo a crear
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    static void writeMatrix(Graph graph, String filename) throws IOException {
+        int n = graph.getNumCities();
+        double[] row = new double[n];
+        Arrays.fill(row, -1);
+        StringBuilder line = new StringBuilder();
+
+        try (Writer writer = newWriter(filename)) {
+            writer.write(Integer.toString(n));
+            writer.write('\n');
+            for (int city = 0; city < n; city++) {
+                line.setLength(0);
+                appendCity(line, graph, city);
+                writer.append(line);
+
+                // Rellenar la fila solo con las carreteras de la ciudad y dejarla limpia al terminar
+                fillShortest(graph, city, row);
+                row[city] = 0;
+                for (int column = 0; column < n; column++) {
+                    double distance = row[column];
+                    if (distance < 0) {
+                        writer.write(";-1");
+                    } else {
+                        line.setLength(0);
+                        line.append(';');
+                        appendDistance(line, distance);
+                        writer.append(line);
+                    }
+                }
+                writer.write('\n');
+                row[city] = -1;
+                for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+                    row[graph.getTarget(e)] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribir un grafo en formato de lista de aristas. Una carretera cuya
+     * distancia (redondeada a décimas) coincide en los dos sentidos se escribe
+     * una sola vez como de doble sentido; el resto, como de sentido único.
+     * Entre dos ciudades se conserva solo la carretera más corta, como en la matriz.
+     *
+     * @param graph Grafo a escribir
+     * @param filename Nombre del archivo a crear
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    static void writeEdgeList(Graph graph, String filename) throws IOException {
+        int n = graph.getNumCities();
+        Graph reverse = graph.reverse();
+        // Distancia más corta de la ciudad actual a cada vecino, y de cada vecino a ella
+        double[] forward = new double[n];
+        double[] backward = new double[n];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        StringBuilder line = new StringBuilder();
+
+        try (Writer writer = newWriter(filename)) {
+            writer.write(EdgeListFileReader.HEADER);
+            writer.write('\n');
+            for (int city = 0; city < n; city++) {
+                line.setLength(0);
+                appendCity(line, graph, city);
+                line.append('\n');
+                writer.append(line);
+            }
+            writer.write(EdgeListFileReader.ROADS_SECTION);
+            writer.write('\n');
+            for (int city = 0; city < n; city++) {
+                fillShortest(graph, city, forward);
+                fillShortest(reverse, city, backward);
+                for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+                    int target = graph.getTarget(e);
+                    double distance = forward[target];
+                    if (distance < 0) {
+                        continue; // Ya escrita (carreteras repetidas)
+                    }
+                    forward[target] = -1;
+                    if (target == city) {
+                        continue;
+                    }
+                    boolean twoWay = Math.round(backward[target] * 10) == Math.round(distance * 10);
+                    if (twoWay && target < city) {
+                        continue; // Ya escrita desde la otra ciudad
+                    }
+                    line.setLength(0);
+                    line.append(graph.getCityName(city)).append(';').append(graph.getCityName(target)).append(';');
+                    appendDistance(line, distance);
+                    line.append(twoWay ? "\n" : ";1\n");
+                    writer.append(line);
+                }
+                for (int e = reverse.edgeStart(city); e < reverse.edgeEnd(city); e++) {
+                    backward[reverse.getTarget(e)] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Guardar en row la carretera más corta de city a cada vecino (row debe estar a -1 en los vecinos)
+     */
+    private static void fillShortest(Graph graph, int city, double[] row) {
+        for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+            int target = graph.getTarget(e);
+            row[target] = row[target] < 0 ? graph.getWeight(e) : Math.min(row[target], graph.getWeight(e));
+        }
+    }
+
+    private static Writer newWriter(String filename) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static void appendCity(StringBuilder sb, Graph graph, int city) {
+        sb.append(graph.getCityName(city));
+        if (graph.hasCoordinates()) {
+            sb.append(String.format(Locale.ROOT, "@%.5f,%.5f", graph.getLatitude(city), graph.getLongitude(city)));
+        }
+    }
+
+    /**
+     * Escribir una distancia redondeada a décimas sin pasar por Double.toString
+     */
+    private static void appendDistance(StringBuilder sb, double distance) {
+        long tenths = Math.round(distance * 10);
+        sb.append(tenths / 10);
+        if (tenths % 10 != 0) {
+            sb.append('.').append(tenths % 10);
+        }
+    }
+
+    private void generateGrid(Random random, double[] latitudes, double[] longitudes, Graph.Builder builder) {
+        int side = (int) Math.ceil(Math.sqrt(numCities));
+        placeOnGrid(side, 0, random, latitudes, longitudes);
+        for (int city = 0; city < numCities; city++) {
+            int column = city % side;
+            addRoadIfExists(city, column + 1 < side ? city + 1 : -1, 1.0, 1.3, random, latitudes, longitudes, builder);
+            addRoadIfExists(city, city + side, 1.0, 1.3, random, latitudes, longitudes, builder);
+            if (degree >= 8) {
+                addRoadIfExists(city, column + 1 < side ? city + side + 1 : -1, 1.0, 1.3, random, latitudes, longitudes, builder);
+                addRoadIfExists(city, column > 0 ? city + side - 1 : -1, 1.0, 1.3, random, latitudes, longitudes, builder);
+            }
+        }
+    }
+
+    /**
+     * Cuadrícula deformada: las filas completas y la primera columna forman una red
+     * conexa; el resto de carreteras verticales y las diagonales se añaden con la
+     * probabilidad necesaria para acercarse al grado medio pedido.
+     */
+    private void generateRoadLike(Random random, double[] latitudes, double[] longitudes, Graph.Builder builder) {
+        int side = (int) Math.ceil(Math.sqrt(numCities));
+        placeOnGrid(side, 0.35, random, latitudes, longitudes);
+        // Grado medio ≈ 2 (filas) + 2 × verticales + 2 × diagonales
+        double verticalProbability = Math.max(0, Math.min(1, (degree - 2) / 2.0));
+        double diagonalProbability = Math.max(0, Math.min(1, (degree - 4) / 2.0));
+        for (int city = 0; city < numCities; city++) {
+            int row = city / side;
+            int column = city % side;
+            boolean highwayRow = row % HIGHWAY_SPACING == 0;
+            boolean highwayColumn = column % HIGHWAY_SPACING == 0;
+            if (column + 1 < side) {
+                addRoadIfExists(city, city + 1, highwayRow ? 1.0 : 1.1, highwayRow ? 1.1 : 1.5, random, latitudes, longitudes, builder);
+            }
+            if (column == 0 || highwayColumn || random.nextDouble() < verticalProbability) {
+                addRoadIfExists(city, city + side, highwayColumn ? 1.0 : 1.1, highwayColumn ? 1.1 : 1.5, random, latitudes, longitudes, builder);
+            }
+            // Una sola diagonal por celda para que el mapa siga siendo plano
+            if (column + 1 < side && random.nextDouble() < diagonalProbability) {
+                if (random.nextBoolean()) {
+                    addRoadIfExists(city, city + side + 1, 1.1, 1.5, random, latitudes, longitudes, builder);
+                } else {
+                    addRoadIfExists(city + 1, city + side, 1.1, 1.5, random, latitudes, longitudes, builder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Colocar las ciudades en una cuadrícula de side columnas, desplazadas al azar
+     * hasta jitter veces la separación entre ciudades
+     */
+    private void placeOnGrid(int side, double jitter, Random random, double[] latitudes, double[] longitudes) {
+        int rows = (numCities + side - 1) / side;
+        double latitudeStep = (MAX_LATITUDE - MIN_LATITUDE) / Math.max(1, rows);
+        double longitudeStep = (MAX_LONGITUDE - MIN_LONGITUDE) / side;
+        for (int city = 0; city < numCities; city++) {
+            double row = city / side + (random.nextDouble() * 2 - 1) * jitter;
+            double column = city % side + (random.nextDouble() * 2 - 1) * jitter;
+            latitudes[city] = MIN_LATITUDE + (row + 0.5) * latitudeStep;
+            longitudes[city] = MIN_LONGITUDE + (column + 0.5) * longitudeStep;
+        }
+    }
+
+    /**
+     * Puntos aleatorios unidos con sus K vecinos más cercanos. Los vecinos se buscan
+     * con una rejilla de celdas (unas 2 ciudades por celda) recorriendo anillos de
+     * celdas cada vez más alejados, en lugar de comparar todos los pares.
+     */
+    private void generateRandomGeometric(Random random, double[] latitudes, double[] longitudes, Graph.Builder builder) {
+        for (int city = 0; city < numCities; city++) {
+            latitudes[city] = MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+            longitudes[city] = MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+        }
+
+        // Proyección plana aproximada (grados de latitud) para buscar vecinos
+        double xScale = Math.cos(Math.toRadians((MIN_LATITUDE + MAX_LATITUDE) / 2));
+        double width = (MAX_LONGITUDE - MIN_LONGITUDE) * xScale;
+        double height = MAX_LATITUDE - MIN_LATITUDE;
+        double cellSize = Math.sqrt(width * height * 2 / numCities);
+        int cellsX = Math.max(1, (int) Math.ceil(width / cellSize));
+        int cellsY = Math.max(1, (int) Math.ceil(height / cellSize));
+        double[] x = new double[numCities];
+        double[] y = new double[numCities];
+        int[] cellOf = new int[numCities];
+        int[] cellStart = new int[cellsX * cellsY + 1];
+        for (int city = 0; city < numCities; city++) {
+            x[city] = (longitudes[city] - MIN_LONGITUDE) * xScale;
+            y[city] = latitudes[city] - MIN_LATITUDE;
+            int cx = Math.min(cellsX - 1, (int) (x[city] / cellSize));
+            int cy = Math.min(cellsY - 1, (int) (y[city] / cellSize));
+            cellOf[city] = cy * cellsX + cx;
+            cellStart[cellOf[city] + 1]++;
+        }
+        for (int cell = 0; cell < cellsX * cellsY; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] cellCities = new int[numCities];
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int city = 0; city < numCities; city++) {
+            cellCities[fill[cellOf[city]]++] = city;
+        }
+
+        int k = Math.min(degree, numCities - 1);
+        int[] nearest = new int[k];
+        double[] nearestDistance = new double[k];
+        long[] pairs = new long[numCities * k];
+        int numPairs = 0;
+        for (int city = 0; city < numCities; city++) {
+            int found = 0;
+            int cx = cellOf[city] % cellsX;
+            int cy = cellOf[city] / cellsX;
+            for (int ring = 0; ring <= Math.max(cellsX, cellsY); ring++) {
+                // Las celdas del anillo siguiente están al menos a ring × cellSize
+                if (found == k && ring > 1 && (ring - 1) * cellSize > nearestDistance[k - 1]) {
+                    break;
+                }
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    for (int gx = cx - ring; gx <= cx + ring; gx++) {
+                        boolean onRing = Math.abs(gx - cx) == ring || Math.abs(gy - cy) == ring;
+                        if (!onRing || gx < 0 || gy < 0 || gx >= cellsX || gy >= cellsY) {
+                            continue;
+                        }
+                        int cell = gy * cellsX + gx;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            int other = cellCities[i];
+                            if (other == city) {
+                                continue;
+                            }
+                            double dx = x[other] - x[city];
+                            double dy = y[other] - y[city];
+                            double distance = Math.sqrt(dx * dx + dy * dy);
+                            if (found < k || distance < nearestDistance[found - 1]) {
+                                // Inserción ordenada en la lista de los K más cercanos
+                                int pos = found < k ? found++ : k - 1;
+                                while (pos > 0 && nearestDistance[pos - 1] > distance) {
+                                    nearest[pos] = nearest[pos - 1];
+                                    nearestDistance[pos] = nearestDistance[pos - 1];
+                                    pos--;
+                                }
+                                nearest[pos] = other;
+                                nearestDistance[pos] = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < found; i++) {
+                int a = Math.min(city, nearest[i]);
+                int b = Math.max(city, nearest[i]);
+                pairs[numPairs++] = (long) a * numCities + b;
+            }
+        }
+
+        // Cada par puede aparecer dos veces (si cada ciudad es vecina de la otra)
+        Arrays.sort(pairs, 0, numPairs);
+        for (int i = 0; i < numPairs; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) {
+                continue;
+            }
+            int a = (int) (pairs[i] / numCities);
+            int b = (int) (pairs[i] % numCities);
+            addRoadIfExists(a, b, 1.0, 1.4, random, latitudes, longitudes, builder);
+        }
+    }
+
+    /**
+     * Añadir la carretera entre a y b (si b es una ciudad válida) con una longitud
+     * entre minFactor y maxFactor veces la línea recta. En mapas dirigidos cada
+     * sentido tiene su propia longitud y algunas carreteras son de sentido único.
+     */
+    private void addRoadIfExists(int a, int b, double minFactor, double maxFactor, Random random,
+                                 double[] latitudes, double[] longitudes, Graph.Builder builder) {
+        if (b < 0 || b >= numCities) {
+            return;
+        }
+        double straight = HaversineHeuristic.greatCircleDistance(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+        double forward = roadLength(straight, minFactor, maxFactor, random);
+        if (!directed) {
+            builder.addEdge(a, b, forward);
+            builder.addEdge(b, a, forward);
+            return;
+        }
+        double backward = roadLength(straight, minFactor, maxFactor, random);
+        if (random.nextDouble() < ONE_WAY_FRACTION) {
+            if (random.nextBoolean()) {
+                builder.addEdge(a, b, forward);
+            } else {
+                builder.addEdge(b, a, backward);
+            }
+        } else {
+            builder.addEdge(a, b, forward);
+            builder.addEdge(b, a, backward);
+        }
+    }
+
+    /**
+     * Longitud de una carretera redondeada a décimas de km (nunca 0, que significa "misma ciudad")
+     */
+    private static double roadLength(double straight, double minFactor, double maxFactor, Random random) {
+        double length = straight * (minFactor + random.nextDouble() * (maxFactor - minFactor));
+        return Math.max(0.1, Math.ceil(length * 10) / 10);
+    }
+
+    /**
+     * Generar un mapa desde la línea de comandos:
+     *   --generate grid|geometric|road ciudades archivo [--degree K] [--directed] [--no-coordinates] [--seed S]
+     *              [--format edges|matrix]
+     *
+     * @param args Argumentos de la línea de comandos (el primero es --generate)
+     * @return Código de salida del proceso (0 si todo fue bien)
+     */
+    public static int main(String[] args) {
+        MapGenerator generator;
+        String filename;
+        try {
+            Topology topology = parseTopology(args[1]);
+            generator = new MapGenerator(topology, Integer.parseInt(args[2]));
+            filename = args[3];
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--degree":
+                        generator.setDegree(Integer.parseInt(args[++i]));
+                        break;
+                    case "--directed":
+                        generator.setDirected(true);
+                        break;
+                    case "--no-coordinates":
+                        generator.setCoordinates(false);
+                        break;
+                    case "--seed":
+                        generator.setSeed(Long.parseLong(args[++i]));
+                        break;
+                    case "--format":
+                        generator.setFormat(parseFormat(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("opción desconocida: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Uso: java GPS --generate grid|geometric|road <ciudades> <archivo>"
+                + " [--degree K] [--directed] [--no-coordinates] [--seed S] [--format edges|matrix]");
+            return 2;
+        }
+
+        try {
+            long startTime = System.nanoTime();
+            Graph graph = generator.write(filename);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            System.err.println("Mapa generado en " + filename + ": " + graph.getNumCities() + " ciudades, "
+                + graph.getNumEdges() + " carreteras, " + elapsedMs + " ms");
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error al generar el mapa: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * @param name grid, geometric o road
+     * @return La topología correspondiente
+     */
+    static Topology parseTopology(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "grid":
+                return Topology.GRID;
+            case "geometric":
+                return Topology.RANDOM_GEOMETRIC;
+            case "road":
+                return Topology.ROAD_LIKE;
+            default:
+                throw new IllegalArgumentException("tipo de mapa desconocido: " + name);
+        }
+    }
+
+    /**
+     * @param name edges o matrix
+     * @return El formato de archivo correspondiente
+     */
+    static MapParser.Format parseFormat(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "matrix":
+                return MapParser.Format.MATRIX;
+            case "edges":
+                return MapParser.Format.EDGE_LIST;
+            default:
+                throw new IllegalArgumentException("formato desconocido: " + name);
+        }
+    }
+}
@@ -1,73 +1,108 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Clase para leer y analizar archivos de cartografía en una matriz de distancias
  * y una lista de nombres de ciudades.
+ *
+ * Se admiten dos formatos de texto, que se distinguen por la primera línea:
+ * - Matriz: el número de ciudades y una fila "Ciudad;d1;...;dN" por ciudad (ver MatrixFileReader).
+ * - Lista de aristas: la cabecera ARISTAS, las ciudades y una línea por carretera (ver EdgeListFileReader).
  */
 public class MapParser {
     
+    /**
+     * Formato de un archivo de cartografía en texto
+     */
+    public enum Format {
+        MATRIX, EDGE_LIST
+    }
+    
+    /**
+     * Detecta el formato de un archivo de cartografía a partir de su primera línea.
+     * 
+     * @param filename El nombre del archivo
+     * @return EDGE_LIST si la primera línea es ARISTAS; MATRIX en otro caso
+     * @throws IOException Si hay un error al leer el archivo
+     */
+    public static Format detectFormat(String filename) throws IOException {
+        return EdgeListFileReader.isEdgeList(Path.of(filename)) ? Format.EDGE_LIST : Format.MATRIX;
+    }
+    
     /**
      * Lee un archivo de cartografía y lo analiza en una matriz de distancias y una lista de nombres de ciudades.
+     * Las distancias se guardan tal como aparecen en el archivo (0 y -1 incluidos).
+     * Un archivo en formato de lista de aristas se convierte a matriz (0 en la
+     * diagonal, -1 sin conexión y la menor distancia si hay varias carreteras).
      * 
      * @param filename El nombre del archivo a leer
      * @return Un array donde el primer elemento es la lista de nombres de ciudades y el segundo es la matriz de distancias
-     * @throws IOException Si hay un error al leer el archivo
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
      */
     public static Object[] parseMapFile(String filename) throws IOException {
-        List<String> cityNames = new ArrayList<>();
-        List<List<Double>> distanceRows = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            // Leer número de ciudades
-            int numCities = Integer.parseInt(reader.readLine().trim());
-            
-            // Leer cada línea de ciudad
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length < 2) {
-                    continue; // Omitir líneas inválidas
-                }
-                
-                // La primera parte es el nombre de la ciudad
-                String cityName = parts[0].trim();
-                cityNames.add(cityName);
-                
-                // Analizar distancias
-                List<Double> distances = new ArrayList<>();
-                for (int i = 1; i < parts.length; i++) {
-                    String distanceStr = parts[i].trim();
-                    
-                    // Manejar nombres de ciudades con distancias en formato CiudadNombre(Distancia)
-                    if (distanceStr.contains("(") && distanceStr.endsWith(")")) {
-                        int openParenIndex = distanceStr.lastIndexOf("(");
-                        int closeParenIndex = distanceStr.length() - 1;
-                        String distanceValue = distanceStr.substring(openParenIndex + 1, closeParenIndex);
-                        distances.add(Double.parseDouble(distanceValue));
-                    } else {
-                        // Si el formato es de distancias directas
-                        distances.add(Double.parseDouble(distanceStr));
-                    }
-                }
-                
-                distanceRows.add(distances);
+        if (detectFormat(filename) == Format.MATRIX) {
+            return MatrixFileReader.readMatrix(Path.of(filename));
+        }
+        Graph graph = EdgeListFileReader.readGraph(Path.of(filename));
+        int n = graph.getNumCities();
+        if (n > MapGenerator.MAX_MATRIX_CITIES) {
+            throw new IOException("El mapa tiene " + n + " ciudades: demasiadas para una matriz de distancias");
+        }
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(matrix[i], -1);
+            matrix[i][i] = 0;
+            for (int e = graph.edgeStart(i); e < graph.edgeEnd(i); e++) {
+                int j = graph.getTarget(e);
+                double distance = graph.getWeight(e);
+                matrix[i][j] = matrix[i][j] < 0 ? distance : Math.min(matrix[i][j], distance);
             }
         }
+        return new Object[] { graph.getCityNames(), matrix };
+    }
+    
+    /**
+     * Lee un archivo de cartografía y construye directamente un grafo disperso (CSR).
+     * Solo se guardan las conexiones existentes, por lo que nunca se reserva
+     * una matriz N×N y la memoria es proporcional al número de carreteras.
+     * El archivo se proyecta en memoria y, si es grande, se lee en paralelo.
+     * El formato (matriz o lista de aristas) se detecta por la primera línea.
+     * 
+     * @param filename El nombre del archivo a leer
+     * @return El grafo con los nombres de ciudades y sus conexiones
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
+     */
+    public static Graph parseGraph(String filename) throws IOException {
+        if (detectFormat(filename) == Format.EDGE_LIST) {
+            return EdgeListFileReader.readGraph(Path.of(filename));
+        }
+        return MatrixFileReader.readGraph(Path.of(filename));
+    }
+    
+    /**
+     * Imprime el grafo en forma de matriz de distancias para propósitos de depuración.
+     * Las conexiones inexistentes se muestran como -1.
+     * 
+     * @param graph El grafo a imprimir
+     */
+    public static void printDistanceMatrix(Graph graph) {
+        System.out.println("Matriz de Distancias:");
         
-        // Convertir List<List<Double>> a double[][]
-        double[][] distanceMatrix = new double[cityNames.size()][cityNames.size()];
-        for (int i = 0; i < distanceRows.size(); i++) {
-            List<Double> row = distanceRows.get(i);
-            for (int j = 0; j < row.size(); j++) {
-                distanceMatrix[i][j] = row.get(j);
-            }
+        System.out.print("\t");
+        for (String city : graph.getCityNames()) {
+            System.out.print(city + "\t");
         }
+        System.out.println();
         
-        return new Object[] { cityNames, distanceMatrix };
+        for (int i = 0; i < graph.getNumCities(); i++) {
+            System.out.print(graph.getCityName(i) + "\t");
+            for (int j = 0; j < graph.getNumCities(); j++) {
+                System.out.print(graph.getDistance(i, j) + "\t");
+            }
+            System.out.println();
+        }
     }
     
     /**
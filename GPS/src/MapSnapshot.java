@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Instantánea binaria de una cartografía: nombres de ciudades, índice de
+ * nombres, grafo CSR (y su traspuesto), coordenadas y, si se calcularon,
+ * landmarks y Contraction Hierarchies.
+ *
+ * Al cargarla no se analiza nada: cada array se proyecta en memoria
+ * (FileChannel.map) y el grafo, los landmarks y la jerarquía leen directamente
+ * de esas proyecciones, fuera del heap de Java. El arranque cuesta lo mismo
+ * para un mapa de 10 ciudades que para uno de millones, y el sistema operativo
+ * carga las páginas del archivo a medida que las consultas las usan.
+ *
+ * Formato (little-endian; cada array empieza en una posición múltiplo de 8):
+ *   int FILE_MAGIC, int VERSION, int secciones (bit 0: landmarks, bit 1: CH)
+ *   grafo (ver Graph.writeSnapshot), [landmarks], [jerarquía]
+ */
+public final class MapSnapshot {
+    private static final int FILE_MAGIC = 0x4750534D; // "GPSM"
+    private static final int VERSION = 2;
+    private static final int HAS_LANDMARKS = 1;
+    private static final int HAS_CONTRACTION_HIERARCHY = 2;
+
+    private final Graph graph;
+    private final Landmarks landmarks;
+    private final ContractionHierarchy contractionHierarchy;
+
+    private MapSnapshot(Graph graph, Landmarks landmarks, ContractionHierarchy contractionHierarchy) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.contractionHierarchy = contractionHierarchy;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return Los landmarks guardados, o null si la instantánea no los tiene
+     */
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * @return La jerarquía guardada, o null si la instantánea no la tiene
+     */
+    public ContractionHierarchy getContractionHierarchy() {
+        return contractionHierarchy;
+    }
+
+    /**
+     * Obtener el nombre de archivo de instantánea propuesto para una cartografía
+     *
+     * @param mapFilename Nombre del archivo de cartografía
+     * @return Nombre de la instantánea (junto al mapa)
+     */
+    public static String fileFor(String mapFilename) {
+        return mapFilename + ".snap";
+    }
+
+    /**
+     * Comprobar si un archivo es una instantánea binaria (por su número mágico)
+     *
+     * @param filename Nombre del archivo
+     * @return true si el archivo empieza como una instantánea
+     */
+    public static boolean isSnapshot(String filename) {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(header, 0) == 4 && header.getInt(0) == FILE_MAGIC;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Guardar una instantánea. Se escribe en un archivo temporal que después
+     * sustituye al destino, así que nunca queda una instantánea a medias. El
+     * temporal se crea con los permisos por defecto (no los restrictivos de
+     * Files.createTempFile) y, si el destino ya existía, recibe los suyos.
+     *
+     * @param filename Nombre del archivo de destino
+     * @param graph El grafo
+     * @param landmarks Landmarks del grafo, o null
+     * @param contractionHierarchy Jerarquía del grafo, o null
+     * @throws IOException Si hay un error al escribir el archivo
+     */
+    public static void write(String filename, Graph graph, Landmarks landmarks,
+                             ContractionHierarchy contractionHierarchy) throws IOException {
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + "." + ProcessHandle.current().pid()
+            + "." + System.nanoTime() + ".tmp");
+        try {
+            try (Writer out = new Writer(FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt((landmarks != null ? HAS_LANDMARKS : 0)
+                    | (contractionHierarchy != null ? HAS_CONTRACTION_HIERARCHY : 0));
+                graph.writeSnapshot(out);
+                if (landmarks != null) {
+                    landmarks.writeSnapshot(out);
+                }
+                if (contractionHierarchy != null) {
+                    contractionHierarchy.writeSnapshot(out);
+                }
+            }
+            copyPermissions(target, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copiar los permisos POSIX de un archivo existente a otro (no hace nada si
+     * el origen no existe o el sistema de archivos no tiene permisos POSIX)
+     */
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (!Files.exists(from) || !Files.getFileStore(to).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            return;
+        }
+        Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+    }
+
+    /**
+     * Cargar una instantánea proyectándola en memoria
+     *
+     * @param filename Nombre del archivo
+     * @return La instantánea
+     * @throws IOException Si hay un error al leer el archivo o no es una instantánea válida
+     */
+    public static MapSnapshot load(String filename) throws IOException {
+        try (Reader in = new Reader(FileChannel.open(Path.of(filename), StandardOpenOption.READ))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("El archivo " + filename + " no es una instantánea de cartografía");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de instantánea no soportada: " + version + " (se esperaba " + VERSION + ")");
+            }
+            int sections = in.readInt();
+            Graph graph = Graph.readSnapshot(in);
+            Landmarks landmarks = (sections & HAS_LANDMARKS) != 0 ? Landmarks.readSnapshot(in, graph) : null;
+            ContractionHierarchy hierarchy = (sections & HAS_CONTRACTION_HIERARCHY) != 0
+                ? ContractionHierarchy.readSnapshot(in, graph) : null;
+            if (in.position() != in.size()) {
+                throw new IOException("La instantánea " + filename + " tiene datos de más");
+            }
+            return new MapSnapshot(graph, landmarks, hierarchy);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Instantánea inválida: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cargar una cartografía en cualquier formato: las instantáneas se
+     * proyectan en memoria y el resto de archivos se leen con MapParser (sin
+     * landmarks ni jerarquía)
+     *
+     * @param filename Nombre del archivo
+     * @return La cartografía cargada
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
+     */
+    public static MapSnapshot loadMap(String filename) throws IOException {
+        if (isSnapshot(filename)) {
+            return load(filename);
+        }
+        return new MapSnapshot(MapParser.parseGraph(filename), null, null);
+    }
+
+    /**
+     * Crear una instantánea desde la línea de comandos:
+     *   --snapshot mapa archivo [--landmarks K] [--ch]
+     *
+     * @param args Argumentos de la línea de comandos (el primero es --snapshot)
+     * @return Código de salida del proceso (0 si todo fue bien)
+     */
+    public static int main(String[] args) {
+        String mapFile;
+        String filename;
+        int landmarkCount = 0;
+        boolean withHierarchy = false;
+        try {
+            mapFile = args[1];
+            filename = args[2];
+            for (int i = 3; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--landmarks":
+                        landmarkCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--ch":
+                        withHierarchy = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("opción desconocida: " + args[i]);
+                }
+            }
+            if (landmarkCount < 0) {
+                throw new IllegalArgumentException("número de landmarks negativo");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Uso: java GPS --snapshot <mapa> <archivo> [--landmarks K] [--ch]");
+            return 2;
+        }
+
+        try {
+            long startTime = System.nanoTime();
+            MapSnapshot map = loadMap(mapFile);
+            Graph graph = map.getGraph();
+            Landmarks landmarks = landmarkCount > 0 ? Landmarks.compute(graph, landmarkCount) : map.getLandmarks();
+            ContractionHierarchy hierarchy = withHierarchy && map.getContractionHierarchy() == null
+                ? ContractionHierarchy.build(graph) : map.getContractionHierarchy();
+            write(filename, graph, landmarks, hierarchy);
+            long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+            System.err.println("Instantánea guardada en " + filename + ": " + graph.getNumCities() + " ciudades, "
+                + graph.getNumEdges() + " carreteras" + (landmarks != null ? ", " + landmarks.size() + " landmarks" : "")
+                + (hierarchy != null ? ", " + hierarchy.getNumShortcuts() + " atajos CH" : "")
+                + ", " + Files.size(Path.of(filename)) + " bytes, " + elapsedMs + " ms");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error al crear la instantánea: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Escritura secuencial de valores y arrays en orden little-endian
+     */
+    static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void writeInts(IntBuffer values) throws IOException {
+            align();
+            for (int i = 0; i < values.limit(); i++) {
+                writeInt(values.get(i));
+            }
+        }
+
+        void writeDoubles(DoubleBuffer values) throws IOException {
+            align();
+            for (int i = 0; i < values.limit(); i++) {
+                ensure(8);
+                buffer.putDouble(values.get(i));
+                position += 8;
+            }
+        }
+
+        void writeBytes(ByteBuffer values) throws IOException {
+            align();
+            for (int i = 0; i < values.limit(); i++) {
+                ensure(1);
+                buffer.put(values.get(i));
+                position++;
+            }
+        }
+
+        /**
+         * Escribir una lista de textos como offsets (int[count + 1]) y bytes UTF-8
+         */
+        void writeStrings(List<String> values) throws IOException {
+            byte[][] encoded = new byte[values.size()][];
+            long total = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+                total += encoded[i].length;
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Los nombres de ciudades ocupan más de 2 GB");
+            }
+            writeInt((int) total);
+            align();
+            int offset = 0;
+            writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                writeInt(offset);
+            }
+            align();
+            for (byte[] bytes : encoded) {
+                for (int i = 0; i < bytes.length; i += buffer.capacity()) {
+                    int length = Math.min(bytes.length - i, buffer.capacity());
+                    ensure(length);
+                    buffer.put(bytes, i, length);
+                    position += length;
+                }
+            }
+        }
+
+        private void align() throws IOException {
+            while (position % 8 != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Lectura secuencial: los valores sueltos se leen y los arrays se proyectan en memoria
+     */
+    static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer scalar = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        long position() {
+            return position;
+        }
+
+        long size() {
+            return size;
+        }
+
+        int readInt() throws IOException {
+            return read(4).getInt(0);
+        }
+
+        long readLong() throws IOException {
+            return read(8).getLong(0);
+        }
+
+        IntBuffer mapInts(int count) throws IOException {
+            return map(count, 4).asIntBuffer();
+        }
+
+        DoubleBuffer mapDoubles(int count) throws IOException {
+            return map(count, 8).asDoubleBuffer();
+        }
+
+        ByteBuffer mapBytes(int count) throws IOException {
+            return map(count, 1);
+        }
+
+        /**
+         * Proyectar una lista de textos escrita con Writer.writeStrings. Cada
+         * get decodifica el texto desde la proyección, sin copias en el heap.
+         */
+        List<String> mapStrings(int count) throws IOException {
+            int totalBytes = readInt();
+            IntBuffer offsets = mapInts(count + 1);
+            ByteBuffer bytes = map(totalBytes, 1);
+            if (offsets.get(0) != 0 || offsets.get(count) != totalBytes) {
+                throw new IOException("Instantánea inválida: tabla de nombres inconsistente");
+            }
+            return new MappedStrings(offsets, bytes);
+        }
+
+        private ByteBuffer read(int bytes) throws IOException {
+            scalar.clear().limit(bytes);
+            while (scalar.hasRemaining()) {
+                if (channel.read(scalar, position + scalar.position()) < 0) {
+                    throw new IOException("Instantánea truncada");
+                }
+            }
+            position += bytes;
+            return scalar;
+        }
+
+        private ByteBuffer map(int count, int elementBytes) throws IOException {
+            if (count < 0) {
+                throw new IOException("Instantánea inválida: tamaño negativo");
+            }
+            position = (position + 7) & ~7L;
+            long bytes = (long) count * elementBytes;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Array de más de 2 GB en la instantánea");
+            }
+            if (position + bytes > size) {
+                throw new IOException("Instantánea truncada");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            position += bytes;
+            return mapped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close(); // Las proyecciones siguen siendo válidas después de cerrar el canal
+        }
+    }
+
+    /**
+     * Lista de solo lectura de textos UTF-8 proyectados en memoria
+     */
+    private static final class MappedStrings extends AbstractList<String> implements RandomAccess {
+        private final IntBuffer offsets;
+        private final ByteBuffer bytes;
+
+        MappedStrings(IntBuffer offsets, ByteBuffer bytes) {
+            this.offsets = offsets;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String get(int index) {
+            int start = offsets.get(index);
+            byte[] text = new byte[offsets.get(index + 1) - start];
+            bytes.get(start, text);
+            return new String(text, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return offsets.limit() - 1;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Utilidades comunes de los lectores de cartografía en texto (MatrixFileReader
+ * y EdgeListFileReader): leer la cabecera, dividir el archivo proyectado en
+ * memoria en trozos que empiezan y terminan en un salto de línea, leer los
+ * trozos en paralelo y convertir números directamente desde los bytes.
+ */
+final class MappedText {
+    // Por debajo de este tamaño por trozo no compensa leer en paralelo
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    // Cada trozo se copia de la proyección a un byte[] (mucho más rápido de recorrer
+    // byte a byte que el MappedByteBuffer); esto acota la memoria temporal por hilo
+    private static final long MAX_CHUNK_BYTES = 16L << 20;
+    private static final int HEADER_WINDOW = 4096;
+
+    // Potencias de 10 exactas en double (hasta 10^22)
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Lectura de un trozo del archivo
+     */
+    interface ChunkParser<T> {
+        T parse(byte[] data) throws IOException;
+    }
+
+    private MappedText() {
+    }
+
+    /**
+     * Leer la primera línea del archivo, sin el BOM de UTF-8 ni espacios
+     *
+     * @param channel Archivo abierto
+     * @param size Tamaño del archivo
+     * @return El texto de la primera línea
+     * @throws IOException Si hay un error al leer o la línea es demasiado larga
+     */
+    static String readFirstLine(FileChannel channel, long size) throws IOException {
+        return StandardCharsets.UTF_8.decode(firstLine(channel, size)).toString().trim();
+    }
+
+    /**
+     * @param channel Archivo abierto
+     * @param size Tamaño del archivo
+     * @return Posición donde empieza la segunda línea (o el tamaño si no la hay)
+     * @throws IOException Si hay un error al leer o la línea es demasiado larga
+     */
+    static long skipFirstLine(FileChannel channel, long size) throws IOException {
+        return Math.min(size, firstLine(channel, size).limit() + 1L);
+    }
+
+    /**
+     * @param channel Archivo abierto
+     * @param size Tamaño del archivo
+     * @param expected Texto esperado
+     * @return true si la primera línea (sin BOM ni espacios) es exactamente expected
+     * @throws IOException Si hay un error al leer
+     */
+    static boolean firstLineEquals(FileChannel channel, long size, String expected) throws IOException {
+        ByteBuffer line = readWindow(channel, size);
+        return line != null && StandardCharsets.UTF_8.decode(line).toString().trim().equals(expected);
+    }
+
+    private static ByteBuffer firstLine(FileChannel channel, long size) throws IOException {
+        ByteBuffer line = readWindow(channel, size);
+        if (line == null) {
+            throw new IOException("Cabecera inválida: la primera línea es demasiado larga");
+        }
+        return line;
+    }
+
+    /**
+     * Leer el principio del archivo y delimitar la primera línea (null si no cabe en la ventana)
+     */
+    private static ByteBuffer readWindow(FileChannel channel, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate((int) Math.min(size, HEADER_WINDOW));
+        channel.read(window, 0);
+        window.flip();
+        int start = window.limit() >= 3 && (window.get(0) & 0xFF) == 0xEF
+                && (window.get(1) & 0xFF) == 0xBB && (window.get(2) & 0xFF) == 0xBF ? 3 : 0; // BOM de UTF-8
+        int end = start;
+        while (end < window.limit() && window.get(end) != '\n') {
+            end++;
+        }
+        if (end == window.limit() && window.limit() < size) {
+            return null;
+        }
+        return window.position(start).limit(end);
+    }
+
+    /**
+     * Calcular los límites de los trozos; cada uno termina justo después de un salto de línea
+     *
+     * @param channel Archivo abierto
+     * @param size Tamaño del archivo
+     * @param start Posición donde empieza la parte a dividir
+     * @return Límites de los trozos (el primero es start y el último size)
+     * @throws IOException Si hay un error al leer o una línea no cabe en un byte[]
+     */
+    static long[] split(FileChannel channel, long size, long start) throws IOException {
+        long bytes = size - start;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int parts = (int) Math.max(1, Math.min(parallelism * 4L, bytes / MIN_CHUNK_BYTES));
+        parts = (int) Math.max(parts, (bytes + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+
+        long[] bounds = new long[parts + 1];
+        bounds[0] = start;
+        int count = 1;
+        ByteBuffer window = ByteBuffer.allocate(HEADER_WINDOW);
+        for (int i = 1; i < parts; i++) {
+            long position = Math.max(bounds[count - 1], start + bytes / parts * i);
+            long lineEnd = -1;
+            while (lineEnd < 0 && position < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                for (int j = 0; j < read && lineEnd < 0; j++) {
+                    if (window.get(j) == '\n') {
+                        lineEnd = position + j + 1;
+                    }
+                }
+                position += Math.max(read, 0);
+            }
+            if (lineEnd < 0 || lineEnd >= size) {
+                break;
+            }
+            bounds[count++] = lineEnd;
+        }
+        bounds[count] = size;
+        for (int i = 0; i < count; i++) {
+            if (bounds[i + 1] - bounds[i] > Integer.MAX_VALUE - 8) {
+                throw new IOException("Cartografía inválida: hay una línea de más de 2 GB");
+            }
+        }
+        return Arrays.copyOf(bounds, count + 1);
+    }
+
+    /**
+     * Proyectar un trozo del archivo y copiarlo a un byte[]
+     *
+     * @param channel Archivo abierto
+     * @param start Inicio del trozo
+     * @param end Fin del trozo (exclusivo)
+     * @return Los bytes del trozo
+     * @throws IOException Si hay un error al leer
+     */
+    static byte[] load(FileChannel channel, long start, long end) throws IOException {
+        int length = (int) (end - start);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        byte[] data = new byte[length];
+        mapped.get(0, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Leer los trozos [bounds[from], bounds[from + 1]), ... en paralelo
+     *
+     * @param channel Archivo abierto
+     * @param bounds Límites de los trozos (ver split)
+     * @param from Primer trozo a leer
+     * @param parser Lectura de cada trozo
+     * @return Los resultados en el orden de los trozos
+     * @throws IOException Si hay un error al leer o el formato es inválido
+     */
+    static <T> List<T> parse(FileChannel channel, long[] bounds, int from, ChunkParser<T> parser) throws IOException {
+        int count = Math.max(0, bounds.length - 1 - from);
+        Object[] results = new Object[count];
+        IntStream indices = IntStream.range(0, count);
+        if (count > 1) {
+            indices = indices.parallel();
+        }
+        try {
+            indices.forEach(i -> {
+                try {
+                    results[i] = parser.parse(load(channel, bounds[from + i], bounds[from + i + 1]));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Leer un número decimal directamente de los bytes. Con 18 cifras
+     * significativas o menos y un exponente pequeño el resultado es exacto
+     * (mantisa entera multiplicada o dividida por una potencia de 10 exacta);
+     * el resto de casos (notación científica, cifras de más, Infinity...) se
+     * delega en Double.parseDouble.
+     *
+     * @throws NumberFormatException Si el texto no es un número
+     */
+    static double parseNumber(byte[] data, int start, int end) {
+        while (start < end && isSpace(data[start])) {
+            start++;
+        }
+        while (end > start && isSpace(data[end - 1])) {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa != 0 || b != '0') {
+                    if (++significant > 18) {
+                        break;
+                    }
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0 && mantissa < (1L << 53) && exponent >= -22) {
+            double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(decode(data, start, end));
+    }
+
+    static boolean isBlank(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isSpace(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String decode(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // Espacios y caracteres de control ASCII (incluido el '\r' de los finales de línea de Windows)
+    static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lector de archivos de cartografía en formato de matriz ("N" en la primera
+ * línea y después "Ciudad[@lat,lon];d1;d2;...").
+ *
+ * El archivo se proyecta en memoria (FileChannel.map) y se divide en trozos
+ * de hasta unos 16 MB que empiezan y terminan en un salto de línea (ver
+ * MappedText). Cada trozo se copia a un byte[] y los números se leen
+ * directamente de los bytes a arrays primitivos, sin crear un String por
+ * celda ni un Double por distancia. Los trozos se leen en paralelo y al final
+ * se unen en orden, así que el resultado es el mismo que leyendo el archivo
+ * de principio a fin.
+ *
+ * Se conservan las reglas del lector original: las celdas pueden ser un número
+ * o "Ciudad(Distancia)", solo las distancias positivas son carreteras (0 es la
+ * propia ciudad y -1 indica que no hay conexión) y las líneas sin ninguna
+ * distancia se omiten.
+ */
+final class MatrixFileReader {
+    private MatrixFileReader() {
+    }
+
+    /**
+     * Leer un archivo de cartografía como grafo disperso (CSR)
+     *
+     * @param file Archivo a leer
+     * @return El grafo
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
+     */
+    static Graph readGraph(Path file) throws IOException {
+        List<Chunk> chunks = read(file, false);
+        int n = 0;
+        int m = 0;
+        int numCoordinates = 0;
+        int maxTarget = -1;
+        for (Chunk chunk : chunks) {
+            n += chunk.names.size();
+            m += chunk.targets.size();
+            numCoordinates += chunk.numCoordinates;
+            maxTarget = Math.max(maxTarget, chunk.maxTarget);
+        }
+        if (maxTarget >= n) {
+            throw new IOException("Cartografía inválida: Hay aristas hacia ciudades inexistentes (índice " + maxTarget + ")");
+        }
+
+        // Las filas de cada trozo ya están en orden, así que las aristas quedan agrupadas por origen
+        List<String> names = new ArrayList<>(n);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        boolean withCoordinates = n > 0 && numCoordinates == n;
+        double[] latitudes = withCoordinates ? new double[n] : null;
+        double[] longitudes = withCoordinates ? new double[n] : null;
+        int city = 0;
+        int edge = 0;
+        for (Chunk chunk : chunks) {
+            int rows = chunk.names.size();
+            names.addAll(chunk.names);
+            for (int row = 0; row < rows; row++) {
+                offsets[city + row + 1] = edge + chunk.rowEnds.get(row);
+            }
+            for (int i = 0; i < chunk.targets.size(); i++) {
+                targets[edge + i] = chunk.targets.get(i);
+            }
+            System.arraycopy(chunk.weights, 0, weights, edge, chunk.targets.size());
+            if (withCoordinates) {
+                System.arraycopy(chunk.latitudes, 0, latitudes, city, rows);
+                System.arraycopy(chunk.longitudes, 0, longitudes, city, rows);
+            }
+            city += rows;
+            edge += chunk.targets.size();
+        }
+        return new Graph(names, offsets, targets, weights, latitudes, longitudes);
+    }
+
+    /**
+     * Leer un archivo de cartografía como matriz densa, con las distancias tal
+     * como aparecen en el archivo (incluidos 0 y -1)
+     *
+     * @param file Archivo a leer
+     * @return Un array con la lista de nombres de ciudades y la matriz de distancias
+     * @throws IOException Si hay un error al leer el archivo o el formato es inválido
+     */
+    static Object[] readMatrix(Path file) throws IOException {
+        List<Chunk> chunks = read(file, true);
+        List<String> names = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            names.addAll(chunk.names);
+        }
+        int n = names.size();
+        double[][] matrix = new double[n][];
+        int city = 0;
+        for (Chunk chunk : chunks) {
+            for (double[] row : chunk.rows) {
+                if (row.length > n) {
+                    throw new IOException("La fila de " + names.get(city) + " tiene " + row.length
+                        + " distancias pero solo hay " + n + " ciudades");
+                }
+                matrix[city++] = row.length == n ? row : Arrays.copyOf(row, n);
+            }
+        }
+        return new Object[] { names, matrix };
+    }
+
+    /**
+     * Proyectar el archivo en memoria, dividirlo en trozos por saltos de línea y leerlos
+     */
+    private static List<Chunk> read(Path file, boolean dense) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = MappedText.split(channel, size, skipHeader(channel, size));
+            return MappedText.parse(channel, bounds, 0, data -> {
+                Chunk chunk = new Chunk(data, dense);
+                chunk.parse();
+                return chunk;
+            });
+        }
+    }
+
+    /**
+     * Leer la primera línea (número de ciudades) y devolver dónde empiezan las filas.
+     * El número solo se valida: el tamaño real del mapa lo dan las filas leídas.
+     */
+    private static long skipHeader(FileChannel channel, long size) throws IOException {
+        String header = MappedText.readFirstLine(channel, size);
+        try {
+            if (Integer.parseInt(header) < 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Cabecera inválida: se esperaba el número de ciudades y se encontró '" + header + "'");
+        }
+        return MappedText.skipFirstLine(channel, size);
+    }
+
+    /**
+     * Filas leídas de un trozo del archivo, en el orden en que aparecen
+     */
+    private static final class Chunk {
+        private final byte[] data;
+        private final boolean dense;
+
+        final List<String> names = new ArrayList<>();
+        // Formato disperso: aristas agrupadas por fila y número acumulado de aristas al final de cada fila
+        final IntList targets = new IntList();
+        double[] weights = new double[16];
+        final IntList rowEnds = new IntList();
+        int maxTarget = -1;
+        double[] latitudes = new double[16];
+        double[] longitudes = new double[16];
+        int numCoordinates;
+        // Formato denso: las distancias de cada fila tal como aparecen
+        final List<double[]> rows = new ArrayList<>();
+        private double[] rowValues = new double[16];
+
+        Chunk(byte[] data, boolean dense) {
+            this.data = data;
+            this.dense = dense;
+        }
+
+        void parse() throws IOException {
+            int limit = data.length;
+            int pos = 0;
+            while (pos < limit) {
+                // Primera celda: nombre de la ciudad con coordenadas opcionales
+                int nameEnd = pos;
+                while (nameEnd < limit && !isCellEnd(data[nameEnd])) {
+                    nameEnd++;
+                }
+                if (nameEnd == limit || data[nameEnd] == '\n') {
+                    pos = nameEnd + 1; // Línea sin distancias: se omite
+                    continue;
+                }
+
+                // Resto de celdas; como con String.split, las celdas vacías solo se admiten al final
+                int cells = 0;
+                boolean emptyCell = false;
+                int cellStart = nameEnd + 1;
+                int cellEnd;
+                while (true) {
+                    cellEnd = cellStart;
+                    while (cellEnd < limit && !isCellEnd(data[cellEnd])) {
+                        cellEnd++;
+                    }
+                    if (cellEnd - cellStart == 2 && data[cellStart] == '-' && data[cellStart + 1] == '1' && !emptyCell) {
+                        addCell(cells++, -1); // "Sin conexión", la celda más frecuente en mapas grandes
+                    } else if (isBlank(cellStart, cellEnd)) {
+                        emptyCell = true;
+                    } else if (emptyCell) {
+                        throw new IOException("Distancia vacía en la fila de " + cityName(pos, nameEnd));
+                    } else {
+                        addCell(cells++, parseDistance(cellStart, cellEnd, pos, nameEnd));
+                    }
+                    if (cellEnd == limit || data[cellEnd] == '\n') {
+                        break;
+                    }
+                    cellStart = cellEnd + 1;
+                }
+
+                if (cells > 0) {
+                    addRow(pos, nameEnd, cells);
+                }
+                pos = cellEnd + 1;
+            }
+        }
+
+        private void addCell(int column, double distance) {
+            if (dense) {
+                if (column == rowValues.length) {
+                    rowValues = Arrays.copyOf(rowValues, column * 2);
+                }
+                rowValues[column] = distance;
+            } else if (distance > 0) {
+                int edge = targets.size();
+                if (edge == weights.length) {
+                    weights = Arrays.copyOf(weights, edge * 2);
+                }
+                targets.add(column);
+                weights[edge] = distance;
+                maxTarget = Math.max(maxTarget, column);
+            }
+        }
+
+        private void addRow(int nameStart, int nameEnd, int cells) throws IOException {
+            int at = nameStart;
+            while (at < nameEnd && data[at] != '@') {
+                at++;
+            }
+            String name = cityName(nameStart, at);
+            int row = names.size();
+            names.add(name);
+            if (dense) {
+                rows.add(Arrays.copyOf(rowValues, cells));
+                return;
+            }
+            rowEnds.add(targets.size());
+            if (row == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, row * 2);
+                longitudes = Arrays.copyOf(longitudes, row * 2);
+            }
+            if (at < nameEnd) {
+                parseCoordinates(at + 1, nameEnd, name, row);
+            }
+        }
+
+        /**
+         * Leer las coordenadas "Latitud,Longitud" que siguen a la '@' del nombre
+         */
+        private void parseCoordinates(int start, int end, String name, int row) throws IOException {
+            int comma = start;
+            while (comma < end && data[comma] != ',') {
+                comma++;
+            }
+            int extra = comma + 1;
+            while (extra < end && data[extra] != ',') {
+                extra++;
+            }
+            if (comma == end || extra < end) {
+                throw new IOException("Coordenadas inválidas para " + name + ": " + decode(start, end));
+            }
+            double latitude;
+            double longitude;
+            try {
+                latitude = parseNumber(start, comma);
+                longitude = parseNumber(comma + 1, end);
+            } catch (NumberFormatException e) {
+                throw new IOException("Coordenadas inválidas para " + name + ": " + decode(start, end));
+            }
+            if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) {
+                throw new IOException("Coordenadas fuera de rango para " + name);
+            }
+            latitudes[row] = latitude;
+            longitudes[row] = longitude;
+            numCoordinates++;
+        }
+
+        /**
+         * Leer una celda de distancia: un número o el formato CiudadNombre(Distancia)
+         */
+        private double parseDistance(int start, int end, int nameStart, int nameEnd) throws IOException {
+            while (start < end && isSpace(data[start])) {
+                start++;
+            }
+            while (end > start && isSpace(data[end - 1])) {
+                end--;
+            }
+            if (data[end - 1] == ')') {
+                int open = end - 1;
+                while (open > start && data[open] != '(') {
+                    open--;
+                }
+                if (data[open] == '(') {
+                    start = open + 1;
+                    end--;
+                }
+            }
+            try {
+                return parseNumber(start, end);
+            } catch (NumberFormatException e) {
+                throw new IOException("Distancia inválida en la fila de " + cityName(nameStart, nameEnd)
+                    + ": '" + decode(start, end) + "'");
+            }
+        }
+
+        private double parseNumber(int start, int end) {
+            return MappedText.parseNumber(data, start, end);
+        }
+
+        private boolean isBlank(int start, int end) {
+            return MappedText.isBlank(data, start, end);
+        }
+
+        private String cityName(int start, int end) {
+            return decode(start, end).trim();
+        }
+
+        private String decode(int start, int end) {
+            return MappedText.decode(data, start, end);
+        }
+
+        private static boolean isCellEnd(byte b) {
+            return b == ';' || b == '\n';
+        }
+
+        private static boolean isSpace(byte b) {
+            return MappedText.isSpace(b);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lote de cambios de distancia en carreteras existentes (tráfico, obras,
+ * cortes). El lote se aplica entero con {@link RoutingContext#withRoadUpdates},
+ * que crea un contexto nuevo: una vez publicado, las consultas ven todos los
+ * cambios del lote o ninguno. No cambia la estructura del mapa: una carretera
+ * cortada pasa a tener distancia infinita y se puede volver a abrir.
+ */
+public final class RoadUpdates {
+    /**
+     * Distancia de una carretera cortada
+     */
+    public static final double CLOSED = Double.POSITIVE_INFINITY;
+
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Cambio pedido sobre las carreteras de una ciudad a otra
+     */
+    private static final class Change {
+        final int from;
+        final int to;
+        final double weight;
+        final boolean oneWay;
+
+        Change(int from, int to, double weight, boolean oneWay) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.oneWay = oneWay;
+        }
+    }
+
+    /**
+     * Cambiar la distancia de una carretera. Si hay varias carreteras entre las
+     * mismas ciudades, cambian todas.
+     *
+     * @param from Índice de la ciudad de origen
+     * @param to Índice de la ciudad de destino
+     * @param weight Nueva distancia (positiva) o {@link #CLOSED}
+     * @param oneWay true para cambiar solo el sentido from -> to; false para los dos sentidos que existan
+     * @return Este lote
+     */
+    public RoadUpdates set(int from, int to, double weight, boolean oneWay) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("La distancia debe ser positiva: " + weight);
+        }
+        changes.add(new Change(from, to, weight, oneWay));
+        return this;
+    }
+
+    /**
+     * Cortar una carretera
+     *
+     * @param from Índice de la ciudad de origen
+     * @param to Índice de la ciudad de destino
+     * @param oneWay true para cortar solo el sentido from -> to
+     * @return Este lote
+     */
+    public RoadUpdates close(int from, int to, boolean oneWay) {
+        return set(from, to, CLOSED, oneWay);
+    }
+
+    /**
+     * @return Número de cambios del lote
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Leer un lote de líneas "origen;destino;distancia[;0|1]", con el mismo
+     * formato que las carreteras de la lista de aristas. La distancia puede ser
+     * "cerrada" para cortar la carretera; un 1 al final cambia solo el sentido
+     * origen -> destino. Se ignoran las líneas vacías y las que empiezan por #.
+     *
+     * @param graph Grafo en el que se buscan las ciudades
+     * @param lines Líneas del lote
+     * @return El lote
+     * @throws IllegalArgumentException Si alguna línea no es válida, indicando cuál
+     */
+    public static RoadUpdates parse(Graph graph, List<String> lines) {
+        RoadUpdates updates = new RoadUpdates();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] fields = line.split(";");
+                if (fields.length < 3 || fields.length > 4) {
+                    throw new IllegalArgumentException("se esperaba origen;destino;distancia[;0|1]");
+                }
+                int from = city(graph, fields[0]);
+                int to = city(graph, fields[1]);
+                String distance = fields[2].trim().toLowerCase(Locale.ROOT);
+                boolean oneWay = fields.length == 4 && fields[3].trim().equals("1");
+                if (fields.length == 4 && !oneWay && !fields[3].trim().equals("0")) {
+                    throw new IllegalArgumentException("el sentido debe ser 0 o 1: " + fields[3].trim());
+                }
+                if (distance.equals("cerrada")) {
+                    updates.close(from, to, oneWay);
+                } else {
+                    updates.set(from, to, parseDistance(fields[2].trim()), oneWay);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Línea " + (i + 1) + " (" + line + "): " + e.getMessage(), e);
+            }
+        }
+        return updates;
+    }
+
+    private static double parseDistance(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("distancia inválida: " + text);
+        }
+    }
+
+    private static int city(Graph graph, String name) {
+        int city = graph.findCity(name);
+        if (city < 0) {
+            throw new IllegalArgumentException("ciudad desconocida: " + name.trim());
+        }
+        return city;
+    }
+
+    /**
+     * Aplicar el lote sobre una copia de las distancias del grafo
+     *
+     * @param graph Grafo actual, que no se modifica
+     * @return El grafo con los cambios y el resumen de qué ha cambiado
+     * @throws IllegalArgumentException Si algún cambio se refiere a una carretera que no existe
+     */
+    Applied apply(Graph graph) {
+        double[] weights = graph.copyWeights();
+        for (Change change : changes) {
+            int updated = setWeight(graph, weights, change.from, change.to, change.weight);
+            if (!change.oneWay) {
+                updated += setWeight(graph, weights, change.to, change.from, change.weight);
+            }
+            if (updated == 0) {
+                throw new IllegalArgumentException("No hay ninguna carretera " + (change.oneWay ? "de " : "entre ")
+                    + graph.getCityName(change.from) + (change.oneWay ? " a " : " y ") + graph.getCityName(change.to));
+            }
+        }
+        return new Applied(graph, weights);
+    }
+
+    private static int setWeight(Graph graph, double[] weights, int from, int to, double weight) {
+        int updated = 0;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.getTarget(e) == to) {
+                weights[e] = weight;
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Resultado de aplicar un lote: el nuevo grafo y qué carreteras han cambiado,
+     * para reparar solo el preprocesado y las rutas afectadas
+     */
+    static final class Applied {
+        private final Graph graph;
+        private final int changedEdges;
+        private final boolean increased;
+        private final boolean decreased;
+        // Pares (origen, destino) cambiados, en los dos sentidos; marked filtra antes de consultar el conjunto
+        private final Set<Long> changedPairs = new HashSet<>();
+        private final boolean[] marked;
+
+        Applied(Graph previous, double[] weights) {
+            int changed = 0;
+            boolean anyIncrease = false;
+            boolean anyDecrease = false;
+            this.marked = new boolean[previous.getNumCities()];
+            for (int from = 0; from < previous.getNumCities(); from++) {
+                for (int e = previous.edgeStart(from); e < previous.edgeEnd(from); e++) {
+                    double before = previous.getWeight(e);
+                    if (weights[e] != before) {
+                        int to = previous.getTarget(e);
+                        changed++;
+                        anyIncrease |= weights[e] > before;
+                        anyDecrease |= weights[e] < before;
+                        changedPairs.add(pair(from, to));
+                        changedPairs.add(pair(to, from));
+                        marked[from] = true;
+                        marked[to] = true;
+                    }
+                }
+            }
+            this.changedEdges = changed;
+            this.increased = anyIncrease;
+            this.decreased = anyDecrease;
+            this.graph = changed > 0 ? previous.withWeights(weights) : previous;
+        }
+
+        private static long pair(int from, int to) {
+            return ((long) from << 32) | (to & 0xFFFFFFFFL);
+        }
+
+        /**
+         * @return El grafo con las nuevas distancias (el mismo si no ha cambiado nada)
+         */
+        Graph getGraph() {
+            return graph;
+        }
+
+        /**
+         * @return Número de aristas cuya distancia ha cambiado
+         */
+        int getChangedEdges() {
+            return changedEdges;
+        }
+
+        /**
+         * @return true si alguna distancia ha aumentado (o alguna carretera se ha cortado)
+         */
+        boolean hasIncreases() {
+            return increased;
+        }
+
+        /**
+         * @return true si alguna distancia ha bajado (o se ha reabierto alguna carretera)
+         */
+        boolean hasDecreases() {
+            return decreased;
+        }
+
+        /**
+         * @param route Ruta calculada antes del cambio
+         * @return true si la ruta pasa por alguna carretera cambiada (en cualquier sentido)
+         */
+        boolean touches(Route route) {
+            for (int i = 1; i < route.length(); i++) {
+                int from = route.getCity(i - 1);
+                int to = route.getCity(i);
+                if (marked[from] && marked[to] && changedPairs.contains(pair(from, to))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Resultado compacto de una búsqueda: la secuencia de índices de ciudades
+ * desde el origen hasta el destino y su coste total.
+ */
+public final class Route {
+    private final int[] cities;
+    private final double cost;
+
+    /**
+     * Constructor para la clase Route
+     *
+     * @param cities Índices de las ciudades del camino, en orden
+     * @param cost Coste total del camino en km
+     */
+    public Route(int[] cities, double cost) {
+        this.cities = cities;
+        this.cost = cost;
+    }
+
+    public int[] getCities() {
+        return cities.clone();
+    }
+
+    public int getCity(int position) {
+        return cities[position];
+    }
+
+    public int length() {
+        return cities.length;
+    }
+
+    public int getStart() {
+        return cities[0];
+    }
+
+    public int getGoal() {
+        return cities[cities.length - 1];
+    }
+
+    public double getCost() {
+        return cost;
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Caché de rutas con expulsión LRU (la menos usada recientemente), limitada
+ * por número de entradas y por memoria aproximada. Las claves son los índices
+ * ya resueltos de (origen, destino, ciudad obligatoria), por lo que nombres
+ * escritos con distintas mayúsculas comparten entrada. También guarda los
+ * resultados sin ruta. Es segura para usar desde varios hilos.
+ */
+public class RouteCache {
+    /**
+     * Valor guardado para las consultas que no tienen ruta
+     */
+    public static final Route NO_ROUTE = new Route(new int[0], Double.POSITIVE_INFINITY);
+    
+    // Coste aproximado en bytes de una entrada sin contar las ciudades de la ruta
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Route> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private boolean symmetric;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong reverseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * Constructor para la clase RouteCache
+     * 
+     * @param maxEntries Número máximo de rutas guardadas
+     * @param maxBytes Memoria máxima aproximada en bytes
+     */
+    public RouteCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Los límites de la caché deben ser positivos");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Buscar una ruta. En mapas no dirigidos, si no está la consulta exacta se
+     * usa la ruta inversa (destino → origen) dada la vuelta.
+     * 
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     * @param via Índice de la ciudad obligatoria, o -1
+     * @return La ruta guardada, {@link #NO_ROUTE} si se sabe que no hay ruta, o null si no está en la caché
+     */
+    public Route get(int start, int goal, int via) {
+        Route reversed;
+        synchronized (this) {
+            Route route = entries.get(new Key(start, goal, via));
+            if (route != null) {
+                hits.incrementAndGet();
+                return route;
+            }
+            reversed = symmetric ? entries.get(new Key(goal, start, via)) : null;
+            if (reversed == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        reverseHits.incrementAndGet();
+        if (reversed == NO_ROUTE) {
+            return NO_ROUTE;
+        }
+        int[] cities = reversed.getCities();
+        for (int i = 0, j = cities.length - 1; i < j; i++, j--) {
+            int tmp = cities[i];
+            cities[i] = cities[j];
+            cities[j] = tmp;
+        }
+        return new Route(cities, reversed.getCost());
+    }
+    
+    /**
+     * Guardar una ruta, expulsando las menos usadas si se superan los límites
+     * 
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     * @param via Índice de la ciudad obligatoria, o -1
+     * @param route La ruta, o null si no existe
+     */
+    public synchronized void put(int start, int goal, int via, Route route) {
+        Route value = route != null ? route : NO_ROUTE;
+        Route previous = entries.put(new Key(start, goal, via), value);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        usedBytes += sizeOf(value);
+        
+        Iterator<Map.Entry<Key, Route>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || usedBytes > maxBytes) && eldest.hasNext()) {
+            usedBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Vaciar la caché, por ejemplo al cargar una cartografía nueva
+     * 
+     * @param symmetricMap true si la nueva cartografía es no dirigida (permite usar rutas inversas)
+     */
+    public synchronized void clear(boolean symmetricMap) {
+        entries.clear();
+        usedBytes = 0;
+        symmetric = symmetricMap;
+    }
+    
+    /**
+     * Copiar a otra caché las rutas que cumplen una condición, conservando su
+     * orden de uso. Sirve para no perder toda la caché cuando cambian algunas
+     * distancias: solo se descartan las rutas afectadas.
+     * 
+     * @param target Caché de destino
+     * @param keep Condición de las rutas que se copian (también se evalúa con {@link #NO_ROUTE})
+     * @return Número de rutas descartadas
+     */
+    public synchronized int copyTo(RouteCache target, Predicate<Route> keep) {
+        int discarded = 0;
+        for (Map.Entry<Key, Route> entry : entries.entrySet()) {
+            Key key = entry.getKey();
+            if (keep.test(entry.getValue())) {
+                target.put(key.start, key.goal, key.via, entry.getValue());
+            } else {
+                discarded++;
+            }
+        }
+        return discarded;
+    }
+    
+    private static long sizeOf(Route route) {
+        return ENTRY_OVERHEAD_BYTES + 4L * route.length();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getReverseHits() {
+        return reverseHits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * @return Proporción de consultas servidas desde la caché (incluidas las inversas)
+     */
+    public double getHitRate() {
+        long served = hits.get() + reverseHits.get();
+        long total = served + misses.get();
+        return total == 0 ? 0 : (double) served / total;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Caché de rutas: %d entradas, %d KB, %d aciertos (%d inversos), %d fallos, %d expulsiones, tasa de acierto %.1f%%",
+            size(), getUsedBytes() / 1024, getHits() + getReverseHits(), getReverseHits(), getMisses(), getEvictions(), getHitRate() * 100);
+    }
+    
+    /**
+     * Clave (origen, destino, ciudad obligatoria)
+     */
+    private static final class Key {
+        private final int start;
+        private final int goal;
+        private final int via;
+        
+        Key(int start, int goal, int via) {
+            this.start = start;
+            this.goal = goal;
+            this.via = via;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return start == other.start && goal == other.goal && via == other.via;
+        }
+        
+        @Override
+        public int hashCode() {
+            return (start * 31 + goal) * 31 + via;
+        }
+    }
+}
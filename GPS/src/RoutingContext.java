@@ -0,0 +1,306 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantánea inmutable de todo lo necesario para responder consultas: el
+ * grafo, su preprocesado (landmarks y Contraction Hierarchies), el motor de
+ * búsqueda, la caché de rutas y un buscador ya configurado con todo ello.
+ * Ningún campo cambia después del constructor; para cambiar algo se crea un
+ * contexto derivado (withLandmarks, withSearchMode...) y se publica en un
+ * {@link LiveMap}, de modo que las consultas en curso terminan con el
+ * contexto con el que empezaron.
+ *
+ * Las métricas de búsqueda son de la carga: los contextos derivados las
+ * comparten y un mapa recién cargado empieza con unas nuevas.
+ *
+ * Cada contexto cuenta sus referencias: la del que lo creó (o lo publicó) y
+ * una por cada consulta que lo ha adquirido. Cuando llega a cero se libera la
+ * memoria de búsqueda de todos los hilos y la caché de rutas. Se puede usar en
+ * un try-with-resources: close() equivale a release().
+ */
+public final class RoutingContext implements AutoCloseable {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final long CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final String source;
+    private final long version;
+    private final Graph graph;
+    private final Landmarks landmarks;
+    private final ContractionHierarchy contractionHierarchy;
+    private final SearchMode searchMode;
+    private final SearchListener searchListener;
+    private final int cacheEntries;
+    private final RouteCache routeCache;
+    private final SearchMetrics searchMetrics;
+    private final AStar aStar;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    /**
+     * Constructor para la clase RoutingContext. El contexto empieza con una
+     * referencia, la de quien lo crea.
+     *
+     * @param source Archivo del que se cargó el mapa (o una descripción), para recargarlo
+     * @param graph Grafo de carreteras
+     * @param landmarks Tablas de landmarks (ALT) del grafo, o null
+     * @param contractionHierarchy Jerarquía del grafo, o null
+     * @param searchMode Motor de búsqueda
+     * @param searchListener Receptor de los eventos de búsqueda (seguro entre hilos si hay varios), o null
+     * @param cacheEntries Rutas que guarda la caché del contexto (0 para no usar caché)
+     * @throws IllegalStateException Si el motor requiere un preprocesado que no se ha hecho
+     */
+    public RoutingContext(String source, Graph graph, Landmarks landmarks, ContractionHierarchy contractionHierarchy,
+                          SearchMode searchMode, SearchListener searchListener, int cacheEntries) {
+        this(source, graph, landmarks, contractionHierarchy, searchMode, searchListener, cacheEntries,
+            new SearchMetrics(source, graph.getCityNames()));
+    }
+
+    private RoutingContext(String source, Graph graph, Landmarks landmarks, ContractionHierarchy contractionHierarchy,
+                           SearchMode searchMode, SearchListener searchListener, int cacheEntries,
+                           SearchMetrics searchMetrics) {
+        this.source = source;
+        this.version = VERSIONS.incrementAndGet();
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.contractionHierarchy = contractionHierarchy;
+        this.searchMode = searchMode;
+        this.searchListener = searchListener;
+        this.cacheEntries = cacheEntries;
+        this.searchMetrics = searchMetrics;
+        this.routeCache = cacheEntries > 0 ? new RouteCache(cacheEntries, CACHE_BYTES) : null;
+        if (routeCache != null) {
+            routeCache.clear(graph.isSymmetric()); // En mapas no dirigidos se aprovechan las rutas inversas
+        }
+
+        AStar configured = new AStar(graph);
+        configured.setLandmarks(landmarks);
+        configured.setContractionHierarchy(contractionHierarchy);
+        configured.setSearchMode(searchMode);
+        configured.setSearchListener(searchListener);
+        configured.setRouteCache(routeCache);
+        configured.setSearchMetrics(searchMetrics);
+        this.aStar = configured;
+    }
+
+    /**
+     * Cargar un mapa (texto o instantánea) con su preprocesado. Los landmarks se
+     * toman de la instantánea o del archivo .alt; las Contraction Hierarchies se
+     * calculan si el motor las necesita y la instantánea no las incluye.
+     *
+     * @param mapFile Archivo del mapa
+     * @param searchMode Motor de búsqueda
+     * @param cacheEntries Rutas que guarda la caché (0 para no usar caché)
+     * @return El contexto, con una referencia para quien lo carga
+     * @throws IOException Si hay un error al leer el mapa
+     */
+    public static RoutingContext load(String mapFile, SearchMode searchMode, int cacheEntries) throws IOException {
+        MapSnapshot map = MapSnapshot.loadMap(mapFile);
+        Graph graph = map.getGraph();
+        Landmarks landmarks = map.getLandmarks();
+        String landmarksFile = Landmarks.fileFor(mapFile);
+        if (landmarks == null && new File(landmarksFile).exists()) {
+            try {
+                landmarks = Landmarks.load(landmarksFile, graph);
+            } catch (IOException e) {
+                System.err.println("No se usarán los landmarks guardados: " + e.getMessage());
+            }
+        }
+        ContractionHierarchy hierarchy = map.getContractionHierarchy();
+        if (searchMode == SearchMode.CONTRACTION_HIERARCHIES && hierarchy == null) {
+            hierarchy = ContractionHierarchy.build(graph);
+        }
+        return new RoutingContext(mapFile, graph, landmarks, hierarchy, searchMode, null, cacheEntries);
+    }
+
+    /**
+     * @param landmarks Nuevas tablas de landmarks, o null
+     * @return Un contexto nuevo (con su propia referencia) igual a este salvo los landmarks
+     */
+    public RoutingContext withLandmarks(Landmarks landmarks) {
+        return derive(landmarks, contractionHierarchy, searchMode, searchListener);
+    }
+
+    /**
+     * @param searchMode Nuevo motor de búsqueda
+     * @param contractionHierarchy Jerarquía del grafo (la actual o una recién calculada), o null
+     * @return Un contexto nuevo (con su propia referencia) igual a este salvo el motor y la jerarquía
+     * @throws IllegalStateException Si el motor requiere una jerarquía y no se ha dado
+     */
+    public RoutingContext withSearchMode(SearchMode searchMode, ContractionHierarchy contractionHierarchy) {
+        return derive(landmarks, contractionHierarchy, searchMode, searchListener);
+    }
+
+    /**
+     * Aplicar un lote de cambios de distancias y reparar solo lo que depende de ellas:
+     * - Landmarks: si las distancias solo han aumentado, las cotas siguen siendo
+     *   válidas y se reutilizan; si alguna ha bajado, se recalculan las tablas con
+     *   los mismos landmarks.
+     * - Contraction Hierarchies: se vuelven a contraer en el mismo orden.
+     * - Caché de rutas: si las distancias solo han aumentado, las rutas que no pasan
+     *   por ninguna carretera cambiada siguen siendo óptimas y se conservan; si
+     *   alguna ha bajado, cualquier ruta podría mejorar y la caché empieza vacía.
+     * Quien llama debe tener adquirido este contexto mientras se aplica el lote.
+     *
+     * @param updates El lote de cambios
+     * @return Un contexto nuevo (con su propia referencia) con las nuevas distancias
+     * @throws IllegalArgumentException Si algún cambio se refiere a una carretera que no existe
+     */
+    public RoutingContext withRoadUpdates(RoadUpdates updates) {
+        return withRoadUpdates(updates.apply(graph));
+    }
+
+    /**
+     * Igual que {@link #withRoadUpdates(RoadUpdates)} con un lote ya aplicado
+     * sobre el grafo de este contexto (para saber antes cuántas carreteras cambian)
+     *
+     * @param applied Resultado de RoadUpdates.apply sobre el grafo de este contexto
+     * @return Un contexto nuevo (con su propia referencia) con las nuevas distancias
+     */
+    RoutingContext withRoadUpdates(RoadUpdates.Applied applied) {
+        Graph updated = applied.getGraph();
+        Landmarks newLandmarks = landmarks;
+        ContractionHierarchy newHierarchy = contractionHierarchy;
+        if (applied.getChangedEdges() > 0) {
+            if (landmarks != null) {
+                newLandmarks = applied.hasDecreases() ? landmarks.recompute(updated) : landmarks.forIncreasedWeights(updated);
+            }
+            if (contractionHierarchy != null) {
+                newHierarchy = contractionHierarchy.recontract(updated);
+            }
+        }
+        RoutingContext next = new RoutingContext(source, updated, newLandmarks, newHierarchy, searchMode, searchListener,
+            cacheEntries, searchMetrics);
+        if (routeCache != null && !applied.hasDecreases()) {
+            routeCache.copyTo(next.routeCache, route -> !applied.touches(route));
+        }
+        return next;
+    }
+
+    /**
+     * @param searchListener Nuevo receptor de los eventos de búsqueda, o null
+     * @return Un contexto nuevo (con su propia referencia) igual a este salvo el listener
+     */
+    public RoutingContext withSearchListener(SearchListener searchListener) {
+        return derive(landmarks, contractionHierarchy, searchMode, searchListener);
+    }
+
+    /**
+     * Contexto sobre el mismo grafo: las rutas de la caché siguen siendo óptimas y se copian
+     */
+    private RoutingContext derive(Landmarks newLandmarks, ContractionHierarchy newHierarchy, SearchMode newMode,
+                                  SearchListener newListener) {
+        RoutingContext next = new RoutingContext(source, graph, newLandmarks, newHierarchy, newMode, newListener,
+            cacheEntries, searchMetrics);
+        if (routeCache != null) {
+            routeCache.copyTo(next.routeCache, route -> true);
+        }
+        return next;
+    }
+
+    /**
+     * Sumar una referencia, salvo que el contexto ya se haya liberado
+     *
+     * @return true si se ha sumado la referencia; false si el contexto ya no se puede usar
+     */
+    boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Devolver una referencia. Al devolver la última se libera la memoria de
+     * búsqueda de todos los hilos y se vacía la caché de rutas.
+     *
+     * @throws IllegalStateException Si se devuelven más referencias de las obtenidas
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            aStar.close();
+            if (routeCache != null) {
+                routeCache.clear(graph.isSymmetric());
+            }
+        } else if (count < 0) {
+            throw new IllegalStateException("El contexto de búsqueda se ha liberado más veces de las adquiridas");
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * @return true si ya no quedan referencias y la memoria de búsqueda se ha liberado
+     */
+    public boolean isReleased() {
+        return references.get() == 0;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Número creciente que distingue este contexto de los anteriores
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    public ContractionHierarchy getContractionHierarchy() {
+        return contractionHierarchy;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public SearchListener getSearchListener() {
+        return searchListener;
+    }
+
+    public int getCacheEntries() {
+        return cacheEntries;
+    }
+
+    /**
+     * @return La caché de rutas del contexto, o null si no tiene
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * @return Métricas de búsqueda de la carga de la que viene este contexto
+     */
+    public SearchMetrics getSearchMetrics() {
+        return searchMetrics;
+    }
+
+    /**
+     * Buscador configurado con el contenido del contexto. No se debe cambiar su
+     * configuración (se vería en las consultas en curso): para eso se crea un
+     * contexto derivado.
+     *
+     * @return El buscador
+     */
+    public AStar getAStar() {
+        return aStar;
+    }
+}
@@ -0,0 +1,770 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Servicio HTTP/JSON de rutas sobre un mapa cargado, con el servidor HTTP del JDK
+ * (com.sun.net.httpserver). Rutas:
+ * - GET /route?from=A&to=B[&via=C,D]: ruta óptima, con el mismo JSON que el modo por lotes.
+ * - GET o POST /matrix?from=A,B[&to=C,D]: matriz de distancias (sin "to", entre los orígenes).
+ * - GET /alternatives?from=A&to=B[&k=3][&distintas=1]: la ruta óptima y alternativas,
+ *   de menor a mayor distancia (con distintas=1, solo claramente distintas).
+ * - GET o POST /reachable?from=A,B&max=50: ciudades a distancia menor o igual que
+ *   max desde cada origen, con su distancia (los orígenes se calculan en paralelo).
+ * - GET /health: comprobación para el balanceador de carga.
+ * - GET /stats: peticiones atendidas, rechazadas y latencias.
+ * - POST /roads?cambios=A;B;12.5,C;D;cerrada: cambiar distancias o cortar carreteras,
+ *   como un único lote (mismo formato que RoadUpdates.parse, separado por comas;
+ *   409 si ya se está aplicando otro lote).
+ * - POST /reload: volver a leer en segundo plano el archivo del mapa (202, o 409
+ *   si ya se está cargando); solo relee el archivo configurado al arrancar.
+ * Las dos rutas que modifican el mapa (/roads y /reload) solo se aceptan desde
+ * la propia máquina (403 en otro caso), salvo con setRemoteUpdates(true).
+ *
+ * La cartografía está en un {@link LiveMap}: cada petición adquiere el contexto
+ * actual y lo devuelve al terminar, así que una recarga no detiene ninguna
+ * consulta y las que están en curso terminan con el mapa anterior.
+ *
+ * Las conexiones atendidas por HTTP/1.1 se mantienen abiertas (keep-alive): todas
+ * las respuestas llevan Content-Length. Cada conexión se atiende en un hilo
+ * virtual si la JVM los tiene (Java 21 o posterior) o en un hilo de plataforma.
+ *
+ * Las búsquedas no se hacen en esos hilos sino en un número fijo de hilos de
+ * trabajo: cada buscador guarda por hilo su memoria de trabajo, de
+ * tamaño proporcional al mapa, y un hilo virtual por petición la crearía de
+ * nuevo en cada consulta. Como máximo se admiten a la vez los hilos de trabajo
+ * más la cola; el resto de peticiones se rechaza de inmediato con 503 y
+ * Retry-After para que el balanceador pruebe otra instancia. Cada respuesta
+ * indica en la cabecera Server-Timing la espera en cola, el cálculo y el total.
+ */
+public class RoutingServer {
+    private static final int DEFAULT_PORT = 8080;
+    // Tamaño máximo de una matriz de distancias (orígenes × destinos) por petición
+    private static final int MAX_MATRIX_CELLS = 1_000_000;
+    // Número máximo de rutas alternativas por petición
+    private static final int MAX_ALTERNATIVES = 10;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final LiveMap liveMap;
+    private final int workerThreads;
+    private final int maxPending;
+    private final ExecutorService workers;
+    private final ForkJoinPool matrixPool;
+    private final Semaphore admission;
+    private boolean accessLog;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private boolean virtualThreads;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder roadUpdates = new LongAdder();
+    // Los lotes de cambios se aplican de uno en uno, cada uno sobre el resultado del anterior
+    private final ReentrantLock roadUpdateLock = new ReentrantLock();
+    private boolean remoteUpdates;
+
+    /**
+     * Constructor para la clase RoutingServer
+     *
+     * @param liveMap Cartografía a servir; sus contextos no deben tener listener de búsqueda,
+     *                porque las explicaciones por consola no son seguras entre hilos
+     * @param workerThreads Número de búsquedas simultáneas
+     * @param queueSize Peticiones que pueden esperar a un hilo de trabajo antes de rechazar con 503
+     */
+    public RoutingServer(LiveMap liveMap, int workerThreads, int queueSize) {
+        if (workerThreads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo de trabajo y una cola no negativa");
+        }
+        this.liveMap = liveMap;
+        this.workerThreads = workerThreads;
+        this.maxPending = workerThreads + queueSize;
+        this.workers = Executors.newFixedThreadPool(workerThreads, namedThreads("gps-busqueda-"));
+        this.matrixPool = new ForkJoinPool(workerThreads);
+        this.admission = new Semaphore(maxPending);
+    }
+
+    /**
+     * @param accessLog true para escribir una línea por petición (método, ruta, estado y tiempo) en la salida de error
+     */
+    public void setAccessLog(boolean accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * @param remoteUpdates true para aceptar /roads y /reload desde cualquier dirección;
+     *                      por defecto solo se aceptan desde la propia máquina
+     */
+    public void setRemoteUpdates(boolean remoteUpdates) {
+        this.remoteUpdates = remoteUpdates;
+    }
+
+    /**
+     * Empezar a atender peticiones
+     *
+     * @param address Dirección y puerto (puerto 0 para uno libre)
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("El servidor ya está en marcha");
+        }
+        server = HttpServer.create(address, 0);
+        handlers = newHandlerExecutor();
+        server.setExecutor(handlers);
+        server.createContext("/route", exchange -> serve(exchange, this::route, true));
+        server.createContext("/matrix", exchange -> serve(exchange, this::matrix, true));
+        server.createContext("/alternatives", exchange -> serve(exchange, this::alternatives, true));
+        server.createContext("/reachable", exchange -> serve(exchange, this::reachable, true));
+        // Sin límite de admisión: son inmediatas y el balanceador debe poder consultarlas siempre
+        server.createContext("/health", exchange -> serve(exchange, this::health, false));
+        server.createContext("/stats", exchange -> serve(exchange, this::stats, false));
+        // Modifican el mapa: solo desde la propia máquina salvo que se permita lo contrario.
+        // Reparar el preprocesado tras un lote de cambios es largo: cuenta para la admisión
+        // y se hace en un hilo de trabajo, no en el que atiende la conexión
+        server.createContext("/reload", exchange -> serveUpdate(exchange, this::reload, false));
+        server.createContext("/roads", exchange -> serveUpdate(exchange, this::roads, true));
+        server.start();
+    }
+
+    /**
+     * Dejar de aceptar peticiones, esperar hasta delaySeconds a las que están en curso y liberar los hilos
+     *
+     * @param delaySeconds Segundos de espera máxima
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            handlers.shutdown();
+            server = null;
+        }
+        workers.shutdown();
+        matrixPool.shutdown();
+    }
+
+    /**
+     * @return Puerto en el que escucha el servidor
+     */
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return true si las conexiones se atienden en hilos virtuales
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Hilos virtuales si la JVM los tiene (se busca el método por reflexión para
+     * seguir compilando con Java 17); si no, hilos de plataforma reutilizables.
+     * Estos hilos solo leen la petición, esperan el resultado y escriben la respuesta.
+     */
+    private ExecutorService newHandlerExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) method.invoke(null);
+            virtualThreads = true;
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            virtualThreads = false;
+            return Executors.newCachedThreadPool(namedThreads("gps-http-"));
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Respuesta de un endpoint
+     */
+    private static final class Response {
+        final int status;
+        final String body;
+        long computeNanos;
+        long waitNanos;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Error de la petición, con el código HTTP que se devuelve
+     */
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Cálculo de un endpoint a partir de los parámetros de la petición, con el
+     * contexto adquirido para esa petición
+     */
+    private interface Endpoint {
+        Response answer(RoutingContext context, String method, Map<String, String> params);
+    }
+
+    /**
+     * Atender una petición: admisión, cálculo en un hilo de trabajo, respuesta y tiempos
+     *
+     * @param limited true si la petición cuenta para el límite de peticiones simultáneas
+     */
+    private void serve(HttpExchange exchange, Endpoint endpoint, boolean limited) throws IOException {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = parameters(exchange);
+            if (!limited) {
+                response = answer(endpoint, method, params);
+            } else if (!admission.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                response = error(503, "servidor saturado, reintente más tarde");
+            } else {
+                try {
+                    response = compute(endpoint, method, params, start);
+                } finally {
+                    admission.release();
+                }
+            }
+        } catch (RequestException e) {
+            response = error(e.status, e.getMessage());
+        }
+        send(exchange, response, start);
+    }
+
+    /**
+     * Atender una petición que modifica el mapa, rechazándola con 403 si llega
+     * desde otra máquina y no se han permitido los cambios remotos
+     */
+    private void serveUpdate(HttpExchange exchange, Endpoint endpoint, boolean limited) throws IOException {
+        if (!remoteUpdates && !exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            send(exchange, error(403, "los cambios del mapa solo se aceptan desde la propia máquina"), System.nanoTime());
+            return;
+        }
+        serve(exchange, endpoint, limited);
+    }
+
+    /**
+     * Resolver la petición en un hilo de trabajo y esperar el resultado
+     */
+    private Response compute(Endpoint endpoint, String method, Map<String, String> params, long start) {
+        Future<Response> future = workers.submit(() -> {
+            long computeStart = System.nanoTime();
+            Response response = answer(endpoint, method, params);
+            response.waitNanos = computeStart - start;
+            response.computeNanos = System.nanoTime() - computeStart;
+            return response;
+        });
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RequestException(503, "el servidor se está deteniendo");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RequestException) {
+                throw (RequestException) cause;
+            }
+            throw new RequestException(500, "error interno: " + cause);
+        }
+    }
+
+    /**
+     * Responder con el contexto actual, adquirido solo mientras dura el cálculo
+     */
+    private Response answer(Endpoint endpoint, String method, Map<String, String> params) {
+        try (RoutingContext context = liveMap.acquire()) {
+            if (context == null) {
+                throw new RequestException(503, "no hay ninguna cartografía cargada");
+            }
+            return endpoint.answer(context, method, params);
+        }
+    }
+
+    /**
+     * Escribir la respuesta con Content-Length (necesario para mantener la conexión) y registrar los tiempos
+     */
+    private void send(HttpExchange exchange, Response response, long start) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        long elapsed = System.nanoTime() - start;
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Server-Timing", String.format(Locale.ROOT,
+            "espera;dur=%.3f, calculo;dur=%.3f, total;dur=%.3f",
+            response.waitNanos / 1e6, response.computeNanos / 1e6, elapsed / 1e6));
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(response.status, body.length);
+            out.write(body);
+        } finally {
+            elapsed = System.nanoTime() - start;
+            requests.increment();
+            if (response.status >= 400 && response.status != 503) {
+                failed.increment();
+            }
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            if (accessLog) {
+                System.err.printf(Locale.ROOT, "%s %s %d %.3f ms%n", exchange.getRequestMethod(),
+                    exchange.getRequestURI(), response.status, elapsed / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Leer los parámetros de la URL y, en un POST, del cuerpo (application/x-www-form-urlencoded)
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        addParameters(params, exchange.getRequestURI().getRawQuery());
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new RequestException(413, "el cuerpo de la petición supera " + MAX_BODY_BYTES + " bytes");
+            }
+            if (exchange.getRequestMethod().equals("POST")) {
+                addParameters(params, new String(body, StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void addParameters(Map<String, String> params, String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = decode(equals < 0 ? pair : pair.substring(0, equals));
+            String value = equals < 0 ? "" : decode(pair.substring(equals + 1));
+            if (!name.isEmpty()) {
+                params.put(name, value.trim());
+            }
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "parámetro mal codificado: " + value);
+        }
+    }
+
+    private static void requireMethod(String method, String... allowed) {
+        for (String candidate : allowed) {
+            if (candidate.equals(method)) {
+                return;
+            }
+        }
+        throw new RequestException(405, "método no permitido: " + method);
+    }
+
+    /**
+     * Resolver una lista de nombres separados por comas
+     */
+    private static int[] cities(Graph graph, List<String> names) {
+        int[] cities = new int[names.size()];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = graph.findCity(names.get(i));
+            if (cities[i] < 0) {
+                throw new RequestException(404, "ciudad desconocida: " + names.get(i));
+            }
+        }
+        return cities;
+    }
+
+    private static List<String> names(String list) {
+        List<String> names = new ArrayList<>();
+        if (list != null) {
+            for (String name : list.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, "falta el parámetro '" + name + "'");
+        }
+        return value;
+    }
+
+    /**
+     * GET /route?from=A&to=B[&via=C,D]
+     */
+    private Response route(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET");
+        String origin = required(params, "from");
+        String destination = required(params, "to");
+        List<String> stopNames = names(params.get("via"));
+        Graph graph = context.getGraph();
+        int start = cities(graph, List.of(origin))[0];
+        int goal = cities(graph, List.of(destination))[0];
+        int[] stops = cities(graph, stopNames);
+        Route route = context.getAStar().findPath(start, goal, stops);
+        return new Response(200, BatchRunner.toJson(graph, origin, destination, stopNames, route, null));
+    }
+
+    /**
+     * GET /alternatives?from=A&to=B[&k=3][&distintas=1]; "rutas" está vacía si no hay ruta
+     */
+    private Response alternatives(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET");
+        String origin = required(params, "from");
+        String destination = required(params, "to");
+        int k;
+        try {
+            k = Integer.parseInt(params.getOrDefault("k", "3"));
+        } catch (NumberFormatException e) {
+            k = 0;
+        }
+        if (k < 1 || k > MAX_ALTERNATIVES) {
+            throw new RequestException(400, "k debe estar entre 1 y " + MAX_ALTERNATIVES);
+        }
+        boolean distinct = "1".equals(params.get("distintas"));
+        Graph graph = context.getGraph();
+        int start = cities(graph, List.of(origin))[0];
+        int goal = cities(graph, List.of(destination))[0];
+        List<Route> routes = context.getAStar().findAlternativePaths(start, goal, k, distinct ? AlternativeRoutes.DISTINCT_MAX_SHARING : 1);
+
+        StringBuilder sb = new StringBuilder("{\"origen\":");
+        BatchRunner.jsonString(sb, origin);
+        sb.append(",\"destino\":");
+        BatchRunner.jsonString(sb, destination);
+        sb.append(",\"rutas\":[");
+        for (int i = 0; i < routes.size(); i++) {
+            Route route = routes.get(i);
+            sb.append(i > 0 ? ",{" : "{").append("\"distancia\":").append(BatchRunner.formatCost(route.getCost()))
+                .append(",\"ruta\":[");
+            for (int j = 0; j < route.length(); j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                BatchRunner.jsonString(sb, graph.getCityName(route.getCity(j)));
+            }
+            sb.append("]}");
+        }
+        return new Response(200, sb.append("]}").toString());
+    }
+
+    /**
+     * GET o POST /matrix?from=A,B[&to=C,D]; las celdas sin ruta son null
+     */
+    private Response matrix(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET", "POST");
+        List<String> sourceNames = names(required(params, "from"));
+        List<String> targetNames = params.containsKey("to") ? names(params.get("to")) : sourceNames;
+        if ((long) sourceNames.size() * targetNames.size() > MAX_MATRIX_CELLS) {
+            throw new RequestException(413, "la matriz supera " + MAX_MATRIX_CELLS + " distancias");
+        }
+        Graph graph = context.getGraph();
+        int[] sources = cities(graph, sourceNames);
+        int[] targets = cities(graph, targetNames);
+        DistanceTable table = context.getAStar().computeDistanceTable(sources, targets, matrixPool);
+
+        StringBuilder sb = new StringBuilder("{\"origenes\":");
+        jsonArray(sb, sourceNames);
+        sb.append(",\"destinos\":");
+        jsonArray(sb, targetNames);
+        sb.append(",\"distancias\":[");
+        for (int row = 0; row < sources.length; row++) {
+            sb.append(row > 0 ? ",[" : "[");
+            for (int column = 0; column < targets.length; column++) {
+                if (column > 0) {
+                    sb.append(',');
+                }
+                double distance = table.get(row, column);
+                sb.append(Double.isInfinite(distance) ? "null" : BatchRunner.formatCost(distance));
+            }
+            sb.append(']');
+        }
+        return new Response(200, sb.append("]}").toString());
+    }
+
+    /**
+     * GET o POST /reachable?from=A,B&max=50; las ciudades de cada origen van de
+     * más cerca a más lejos
+     */
+    private Response reachable(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET", "POST");
+        List<String> sourceNames = names(required(params, "from"));
+        double budget;
+        try {
+            budget = Double.parseDouble(required(params, "max"));
+        } catch (NumberFormatException e) {
+            budget = Double.NaN;
+        }
+        if (!(budget >= 0) || Double.isInfinite(budget)) {
+            throw new RequestException(400, "max debe ser una distancia finita no negativa");
+        }
+        Graph graph = context.getGraph();
+        int[] sources = cities(graph, sourceNames);
+        List<Isochrone> reachable = context.getAStar().findReachable(sources, budget, matrixPool);
+        long total = 0;
+        for (Isochrone isochrone : reachable) {
+            total += isochrone.size();
+        }
+        if (total > MAX_MATRIX_CELLS) {
+            throw new RequestException(413, "el resultado supera " + MAX_MATRIX_CELLS + " distancias");
+        }
+
+        StringBuilder sb = new StringBuilder("{\"max\":").append(BatchRunner.formatCost(budget)).append(",\"origenes\":[");
+        for (int i = 0; i < sources.length; i++) {
+            Isochrone isochrone = reachable.get(i);
+            sb.append(i > 0 ? ",{" : "{").append("\"origen\":");
+            BatchRunner.jsonString(sb, sourceNames.get(i));
+            sb.append(",\"ciudades\":[");
+            for (int j = 0; j < isochrone.size(); j++) {
+                sb.append(j > 0 ? ",{" : "{").append("\"ciudad\":");
+                BatchRunner.jsonString(sb, graph.getCityName(isochrone.getCity(j)));
+                sb.append(",\"distancia\":").append(BatchRunner.formatCost(isochrone.getCost(j))).append('}');
+            }
+            sb.append("]}");
+        }
+        return new Response(200, sb.append("]}").toString());
+    }
+
+    private static void jsonArray(StringBuilder sb, List<String> values) {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            BatchRunner.jsonString(sb, values.get(i));
+        }
+        sb.append(']');
+    }
+
+    /**
+     * GET /health
+     */
+    private Response health(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET");
+        return new Response(200, "{\"estado\":\"ok\",\"ciudades\":" + context.getGraph().getNumCities()
+            + ",\"version\":" + context.getVersion() + "}");
+    }
+
+    /**
+     * GET /stats
+     */
+    private Response stats(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "GET");
+        long count = requests.sum();
+        return new Response(200, String.format(Locale.ROOT,
+            "{\"peticiones\":%d,\"rechazadas\":%d,\"errores\":%d,\"en_curso\":%d,\"hilos_de_trabajo\":%d,"
+                + "\"latencia_media_ms\":%.3f,\"latencia_max_ms\":%.3f,\"hilos_virtuales\":%b,"
+                + "\"version\":%d,\"recargas\":%d,\"recargando\":%b,\"lotes_de_carreteras\":%d}",
+            count, rejected.sum(), failed.sum(), maxPending - admission.availablePermits(), workerThreads,
+            count > 0 ? totalNanos.sum() / 1e6 / count : 0.0, maxNanos.get() / 1e6, virtualThreads,
+            context.getVersion(), reloads.sum(), liveMap.isLoading(), roadUpdates.sum()));
+    }
+
+    /**
+     * POST /reload: cargar de nuevo el archivo del contexto actual, con el mismo
+     * motor y caché, y publicarlo al terminar. Las consultas siguen con el mapa
+     * actual mientras tanto.
+     */
+    private Response reload(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "POST");
+        String source = context.getSource();
+        SearchMode mode = context.getSearchMode();
+        int cacheEntries = context.getCacheEntries();
+        long startTime = System.nanoTime();
+        try {
+            liveMap.reload(() -> RoutingContext.load(source, mode, cacheEntries)).whenComplete((loaded, e) -> {
+                if (e != null) {
+                    System.err.println("Error al recargar la cartografía, se sigue usando la anterior: " + e.getMessage());
+                    return;
+                }
+                reloads.increment();
+                try (RoutingContext current = liveMap.acquire()) {
+                    System.err.printf(Locale.ROOT, "Cartografía %s recargada (versión %d, %d ciudades) en %d ms%n",
+                        source, current.getVersion(), current.getGraph().getNumCities(),
+                        (System.nanoTime() - startTime) / 1_000_000);
+                }
+            });
+        } catch (IllegalStateException e) {
+            throw new RequestException(409, "ya hay una recarga en curso");
+        }
+        return new Response(202, "{\"estado\":\"recargando\",\"version\":" + context.getVersion() + "}");
+    }
+
+    /**
+     * POST /roads?cambios=A;B;distancia[;1],C;D;cerrada: aplicar un lote de cambios
+     * de distancias y publicarlo cuando las estructuras afectadas están reparadas.
+     * Se trabaja sobre el contexto más reciente, no sobre el adquirido al recibir la
+     * petición, para que un lote nunca deshaga otro que se acaba de publicar. Si ya
+     * se está aplicando otro lote, se responde 409 en lugar de esperar.
+     */
+    private Response roads(RoutingContext context, String method, Map<String, String> params) {
+        requireMethod(method, "POST");
+        List<String> lines = names(required(params, "cambios"));
+        if (!roadUpdateLock.tryLock()) {
+            throw new RequestException(409, "ya se está aplicando otro lote de cambios; repita la petición");
+        }
+        try (RoutingContext current = liveMap.acquire()) {
+            long startTime = System.nanoTime();
+            RoadUpdates updates;
+            RoadUpdates.Applied applied;
+            try {
+                updates = RoadUpdates.parse(current.getGraph(), lines);
+                applied = updates.apply(current.getGraph());
+            } catch (IllegalArgumentException e) {
+                throw new RequestException(400, e.getMessage());
+            }
+            RoutingContext next = current.withRoadUpdates(applied);
+            if (!liveMap.replace(current, next)) {
+                throw new RequestException(409, "la cartografía se ha recargado mientras tanto; repita la petición");
+            }
+            roadUpdates.increment();
+            return new Response(200, String.format(Locale.ROOT,
+                "{\"version\":%d,\"cambios\":%d,\"carreteras_cambiadas\":%d,\"rutas_en_cache\":%d,\"ms\":%d}",
+                next.getVersion(), updates.size(), applied.getChangedEdges(),
+                next.getRouteCache() != null ? next.getRouteCache().size() : 0, (System.nanoTime() - startTime) / 1_000_000));
+        } finally {
+            roadUpdateLock.unlock();
+        }
+    }
+
+    private static Response error(int status, String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        BatchRunner.jsonString(sb, message);
+        return new Response(status, sb.append('}').toString());
+    }
+
+    /**
+     * Arrancar el servidor desde la línea de comandos:
+     *   --serve mapa [--port P] [--host H] [--threads N] [--queue Q] [--engine astar|bidirectional|ch|delta]
+     *                [--cache N] [--keep-alive S] [--access-log] [--remote-updates]
+     * No espera a que el servidor termine: sus hilos mantienen vivo el proceso.
+     *
+     * @param args Argumentos de la línea de comandos (el primero es --serve)
+     * @return Código de salida del proceso si no se pudo arrancar (0 si está en marcha)
+     */
+    public static int main(String[] args) {
+        String mapFile;
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        int cacheEntries = 10_000;
+        boolean accessLog = false;
+        boolean remoteUpdates = false;
+        SearchMode mode = SearchMode.ASTAR;
+        try {
+            List<String> positional = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--host":
+                        host = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--queue":
+                        queue = Integer.parseInt(args[++i]);
+                        break;
+                    case "--engine":
+                        mode = BatchRunner.parseMode(args[++i]);
+                        break;
+                    case "--cache":
+                        cacheEntries = Integer.parseInt(args[++i]);
+                        break;
+                    case "--keep-alive":
+                        // Segundos que una conexión sin peticiones se mantiene abierta (se lee al crear el servidor)
+                        System.setProperty("sun.net.httpserver.idleInterval", Integer.toString(Integer.parseInt(args[++i])));
+                        break;
+                    case "--access-log":
+                        accessLog = true;
+                        break;
+                    case "--remote-updates":
+                        remoteUpdates = true;
+                        break;
+                    default:
+                        positional.add(args[i]);
+                }
+            }
+            if (positional.size() != 1 || threads < 1 || port < 0 || cacheEntries < 0) {
+                throw new IllegalArgumentException("argumentos inválidos");
+            }
+            mapFile = positional.get(0);
+        } catch (RuntimeException e) {
+            System.err.println("Uso: java GPS --serve <mapa> [--port P] [--host H] [--threads N] [--queue Q]"
+                + " [--engine astar|bidirectional|ch|delta] [--cache N] [--keep-alive S] [--access-log]"
+                + " [--remote-updates]");
+            return 2;
+        }
+
+        try {
+            long startTime = System.nanoTime();
+            RoutingContext context = RoutingContext.load(mapFile, mode, cacheEntries);
+            int numCities = context.getGraph().getNumCities();
+            LiveMap liveMap = new LiveMap();
+            liveMap.publish(context);
+            SearchMetrics.registerMBeans(liveMap::getSearchMetrics);
+            RoutingServer routingServer = new RoutingServer(liveMap, threads, queue >= 0 ? queue : threads * 16);
+            routingServer.setAccessLog(accessLog);
+            routingServer.setRemoteUpdates(remoteUpdates);
+            routingServer.start(new InetSocketAddress(host, port));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> routingServer.stop(2)));
+            System.err.printf(Locale.ROOT, "Servidor de rutas en http://%s:%d (%d ciudades, %d hilos de trabajo, hilos %s) en %d ms%n",
+                host, routingServer.getPort(), numCities, threads,
+                routingServer.usesVirtualThreads() ? "virtuales" : "de plataforma",
+                (System.nanoTime() - startTime) / 1_000_000);
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error al arrancar el servidor: " + e.getMessage());
+            return 1;
+        }
+    }
+}
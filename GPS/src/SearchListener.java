@@ -0,0 +1,73 @@
+/**
+ * Observador de los eventos de una búsqueda de rutas, para trazas, explicaciones
+ * paso a paso o estadísticas. Todos los métodos tienen una implementación vacía,
+ * así que basta con sobrescribir los que interesen.
+ *
+ * Sin listener asignado la búsqueda solo comprueba una referencia nula por evento:
+ * no crea objetos ni construye cadenas. Los eventos de ciudades y aristas
+ * (nodePopped, edgeRelaxed, nodeImproved) solo los emite el motor A*
+ * unidireccional; el inicio y el resultado los emiten todos los motores.
+ */
+public interface SearchListener {
+
+    /**
+     * Comienza una búsqueda entre dos ciudades
+     *
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     * @param mode Motor de búsqueda que la resuelve
+     */
+    default void searchStarted(int start, int goal, SearchMode mode) {
+    }
+
+    /**
+     * Se extrae del conjunto abierto la ciudad con menor f
+     *
+     * @param city Índice de la ciudad
+     * @param g Costo desde el origen
+     * @param f Costo total estimado (g + h)
+     */
+    default void nodePopped(int city, double g, double f) {
+    }
+
+    /**
+     * Se evalúa una carretera hacia una ciudad que aún no está cerrada
+     *
+     * @param from Índice de la ciudad actual
+     * @param to Índice del vecino
+     * @param g Costo desde el origen hasta el vecino pasando por la ciudad actual
+     * @param h Heurística desde el vecino hasta el destino
+     */
+    default void edgeRelaxed(int from, int to, double g, double h) {
+    }
+
+    /**
+     * Se encuentra un camino mejor hasta una ciudad (o el primero) y se
+     * añade o actualiza en el conjunto abierto
+     *
+     * @param city Índice de la ciudad
+     * @param parent Índice de la ciudad anterior en el camino, o -1 para el origen
+     * @param g Nuevo costo desde el origen
+     * @param f Nuevo costo total estimado
+     */
+    default void nodeImproved(int city, int parent, double g, double f) {
+    }
+
+    /**
+     * La búsqueda termina con una ruta
+     *
+     * @param goal Índice de la ciudad de destino
+     * @param cost Costo total de la ruta
+     */
+    default void goalReached(int goal, double cost) {
+    }
+
+    /**
+     * La búsqueda termina sin encontrar ninguna ruta
+     *
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     */
+    default void searchFailed(int start, int goal) {
+    }
+}
@@ -0,0 +1,451 @@
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de las búsquedas hechas con una cartografía cargada, separadas por
+ * motor: número de consultas, trabajo de cada una (ciudades expandidas, aristas
+ * examinadas, inserciones y decrease-key del montículo) e histograma de
+ * latencias. Los contextos derivados de una misma carga (otro motor, landmarks,
+ * cambios de tráfico) comparten las métricas; al cargar otro mapa empiezan de cero.
+ *
+ * Registrar una búsqueda no crea objetos ni bloquea, así que las métricas están
+ * siempre activas. Se pueden consultar como texto (report) o por JMX
+ * (registerMBeans), por ejemplo con jconsole.
+ */
+public final class SearchMetrics {
+    private static final SearchMetrics EMPTY = new SearchMetrics("", List.of());
+
+    private final String source;
+    private final List<String> cityNames;
+    private final long loadedAt = System.currentTimeMillis();
+    private final Map<SearchMode, Engine> engines = new EnumMap<>(SearchMode.class);
+
+    /**
+     * Constructor para la clase SearchMetrics
+     *
+     * @param source Archivo del mapa (o una descripción)
+     * @param cityNames Nombres de las ciudades, para mostrar la consulta más lenta
+     */
+    public SearchMetrics(String source, List<String> cityNames) {
+        this.source = source;
+        this.cityNames = cityNames;
+        for (SearchMode mode : SearchMode.values()) {
+            engines.put(mode, new Engine());
+        }
+    }
+
+    /**
+     * Métricas de un motor de búsqueda
+     */
+    public static final class Engine {
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder noRoute = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder expandedNodes = new LongAdder();
+        private final LongAdder relaxedEdges = new LongAdder();
+        private final LongAdder heapPushes = new LongAdder();
+        private final LongAdder decreaseKeys = new LongAdder();
+        private final LogHistogram latency = new LogHistogram();
+        // Consulta más lenta: se lee sin bloqueo y solo se bloquea para sustituirla
+        private volatile long slowestNanos = -1;
+        private int slowestStart = -1;
+        private int slowestGoal = -1;
+
+        private Engine() {
+        }
+
+        private void record(int start, int goal, long nanos, boolean found, SearchWorkspace forward, SearchWorkspace backward) {
+            queries.increment();
+            if (!found) {
+                noRoute.increment();
+            }
+            long expanded = forward.getExpandedNodes();
+            long relaxed = forward.getRelaxedEdges();
+            long pushes = forward.getOpenSet().getPushes();
+            long decreases = forward.getOpenSet().getDecreases();
+            if (backward != null) {
+                expanded += backward.getExpandedNodes();
+                relaxed += backward.getRelaxedEdges();
+                pushes += backward.getOpenSet().getPushes();
+                decreases += backward.getOpenSet().getDecreases();
+            }
+            expandedNodes.add(expanded);
+            relaxedEdges.add(relaxed);
+            heapPushes.add(pushes);
+            decreaseKeys.add(decreases);
+            latency.record(nanos);
+            if (nanos > slowestNanos) {
+                synchronized (this) {
+                    if (nanos > slowestNanos) {
+                        slowestStart = start;
+                        slowestGoal = goal;
+                        slowestNanos = nanos;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Búsquedas hechas (las rutas con ciudad intermedia cuentan una por tramo)
+         */
+        public long getQueries() {
+            return queries.sum();
+        }
+
+        /**
+         * @return Búsquedas que no han encontrado ruta
+         */
+        public long getNoRoute() {
+            return noRoute.sum();
+        }
+
+        /**
+         * @return Consultas respondidas desde la caché de rutas, sin buscar
+         */
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+
+        public long getExpandedNodes() {
+            return expandedNodes.sum();
+        }
+
+        public long getRelaxedEdges() {
+            return relaxedEdges.sum();
+        }
+
+        public long getHeapPushes() {
+            return heapPushes.sum();
+        }
+
+        public long getDecreaseKeys() {
+            return decreaseKeys.sum();
+        }
+
+        /**
+         * @return Histograma de latencias de las búsquedas, en nanosegundos
+         */
+        public LogHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return Duración de la búsqueda más lenta en nanosegundos, o -1 si no hay ninguna
+         */
+        public long getSlowestNanos() {
+            return slowestNanos;
+        }
+
+        /**
+         * @return Origen y destino de la búsqueda más lenta, o null si no hay ninguna
+         */
+        public synchronized int[] getSlowestQuery() {
+            return slowestNanos < 0 ? null : new int[] { slowestStart, slowestGoal };
+        }
+
+        /**
+         * Poner a cero las métricas del motor
+         */
+        public void reset() {
+            queries.reset();
+            noRoute.reset();
+            cacheHits.reset();
+            expandedNodes.reset();
+            relaxedEdges.reset();
+            heapPushes.reset();
+            decreaseKeys.reset();
+            latency.reset();
+            synchronized (this) {
+                slowestNanos = -1;
+                slowestStart = -1;
+                slowestGoal = -1;
+            }
+        }
+    }
+
+    /**
+     * Registrar una búsqueda. Los contadores de trabajo se leen de los espacios
+     * de trabajo, que se deben haber puesto a cero justo antes de buscar.
+     *
+     * @param mode Motor con el que se ha buscado
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     * @param nanos Duración de la búsqueda
+     * @param found true si se ha encontrado ruta
+     * @param forward Espacio de trabajo de la búsqueda (o de la búsqueda hacia delante)
+     * @param backward Espacio de trabajo de la búsqueda hacia atrás, o null si no se ha usado
+     */
+    void recordSearch(SearchMode mode, int start, int goal, long nanos, boolean found,
+                      SearchWorkspace forward, SearchWorkspace backward) {
+        engines.get(mode).record(start, goal, nanos, found, forward, backward);
+    }
+
+    /**
+     * Registrar una consulta respondida desde la caché de rutas
+     *
+     * @param mode Motor configurado cuando se hizo la consulta
+     */
+    void recordCacheHit(SearchMode mode) {
+        engines.get(mode).cacheHits.increment();
+    }
+
+    /**
+     * @param mode Motor de búsqueda
+     * @return Las métricas del motor
+     */
+    public Engine getEngine(SearchMode mode) {
+        return engines.get(mode);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Momento de la carga (milisegundos desde 1970)
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Poner a cero las métricas de todos los motores
+     */
+    public void reset() {
+        for (Engine engine : engines.values()) {
+            engine.reset();
+        }
+    }
+
+    /**
+     * Informe en texto, una línea por motor usado, con latencias en milisegundos
+     * y el trabajo medio por búsqueda
+     *
+     * @return El informe
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Métricas de búsqueda de ").append(source).append(" (cargado a las ")
+            .append(new SimpleDateFormat("HH:mm:ss").format(new Date(loadedAt))).append(")\n");
+        boolean any = false;
+        for (Engine engine : engines.values()) {
+            any |= engine.getQueries() > 0 || engine.getCacheHits() > 0;
+        }
+        if (!any) {
+            return sb.append("Todavía no se ha hecho ninguna búsqueda.\n").toString();
+        }
+        sb.append(String.format(Locale.ROOT, "%-24s %9s %8s %8s %9s %9s %9s %9s %9s %9s %10s %10s %10s %10s%n",
+            "Motor", "búsquedas", "caché", "sin ruta", "media ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms",
+            "nodos", "aristas", "inserc.", "decr.-key"));
+        for (Map.Entry<SearchMode, Engine> entry : engines.entrySet()) {
+            Engine engine = entry.getValue();
+            long queries = engine.getQueries();
+            if (queries == 0 && engine.getCacheHits() == 0) {
+                continue;
+            }
+            LogHistogram latency = engine.getLatency();
+            double perQuery = Math.max(1, queries);
+            sb.append(String.format(Locale.ROOT, "%-24s %9d %8d %8d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f %10.1f %10.1f %10.1f %10.1f%n",
+                entry.getKey(), queries, engine.getCacheHits(), engine.getNoRoute(), latency.getMean() / 1e6,
+                latency.getPercentile(50) / 1e6, latency.getPercentile(90) / 1e6, latency.getPercentile(99) / 1e6,
+                latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6,
+                engine.getExpandedNodes() / perQuery, engine.getRelaxedEdges() / perQuery,
+                engine.getHeapPushes() / perQuery, engine.getDecreaseKeys() / perQuery));
+        }
+        sb.append("(nodos, aristas, inserciones y decrease-key: media por búsqueda)\n");
+        for (Map.Entry<SearchMode, Engine> entry : engines.entrySet()) {
+            String slowest = describeSlowest(entry.getValue());
+            if (slowest != null) {
+                sb.append("Búsqueda más lenta con ").append(entry.getKey()).append(": ").append(slowest).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private String describeSlowest(Engine engine) {
+        int[] query;
+        long nanos;
+        synchronized (engine) {
+            query = engine.getSlowestQuery();
+            nanos = engine.getSlowestNanos();
+        }
+        if (query == null) {
+            return null;
+        }
+        return String.format(Locale.ROOT, "%s -> %s (%.3f ms)", cityName(query[0]), cityName(query[1]), nanos / 1e6);
+    }
+
+    private String cityName(int city) {
+        return city >= 0 && city < cityNames.size() ? cityNames.get(city) : "#" + city;
+    }
+
+    /**
+     * Vista JMX de las métricas de un motor en la cartografía en uso
+     */
+    public interface EngineMXBean {
+        String getSource();
+
+        long getQueries();
+
+        long getNoRoute();
+
+        long getCacheHits();
+
+        long getExpandedNodes();
+
+        long getRelaxedEdges();
+
+        long getHeapPushes();
+
+        long getDecreaseKeys();
+
+        double getMeanLatencyMs();
+
+        double getP50LatencyMs();
+
+        double getP90LatencyMs();
+
+        double getP99LatencyMs();
+
+        double getP999LatencyMs();
+
+        double getMaxLatencyMs();
+
+        String getSlowestQuery();
+
+        void reset();
+    }
+
+    /**
+     * Registrar en el servidor de MBeans de la plataforma un MBean por motor
+     * (GPS:type=Busquedas,motor=...) que muestra las métricas de la cartografía
+     * en uso en cada momento. Si ya estaban registrados se sustituyen.
+     *
+     * @param current Métricas de la cartografía en uso, o null si no hay ninguna
+     */
+    public static void registerMBeans(Supplier<SearchMetrics> current) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (SearchMode mode : SearchMode.values()) {
+                ObjectName name = new ObjectName("GPS:type=Busquedas,motor=" + mode.name());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(new EngineBean(current, mode), name);
+            }
+        } catch (JMException e) {
+            System.err.println("No se han podido registrar las métricas en JMX: " + e.getMessage());
+        }
+    }
+
+    private static final class EngineBean implements EngineMXBean {
+        private final Supplier<SearchMetrics> current;
+        private final SearchMode mode;
+
+        EngineBean(Supplier<SearchMetrics> current, SearchMode mode) {
+            this.current = current;
+            this.mode = mode;
+        }
+
+        private SearchMetrics metrics() {
+            SearchMetrics metrics = current.get();
+            return metrics != null ? metrics : EMPTY;
+        }
+
+        private Engine engine() {
+            return metrics().getEngine(mode);
+        }
+
+        @Override
+        public String getSource() {
+            return metrics().getSource();
+        }
+
+        @Override
+        public long getQueries() {
+            return engine().getQueries();
+        }
+
+        @Override
+        public long getNoRoute() {
+            return engine().getNoRoute();
+        }
+
+        @Override
+        public long getCacheHits() {
+            return engine().getCacheHits();
+        }
+
+        @Override
+        public long getExpandedNodes() {
+            return engine().getExpandedNodes();
+        }
+
+        @Override
+        public long getRelaxedEdges() {
+            return engine().getRelaxedEdges();
+        }
+
+        @Override
+        public long getHeapPushes() {
+            return engine().getHeapPushes();
+        }
+
+        @Override
+        public long getDecreaseKeys() {
+            return engine().getDecreaseKeys();
+        }
+
+        @Override
+        public double getMeanLatencyMs() {
+            return engine().getLatency().getMean() / 1e6;
+        }
+
+        @Override
+        public double getP50LatencyMs() {
+            return engine().getLatency().getPercentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP90LatencyMs() {
+            return engine().getLatency().getPercentile(90) / 1e6;
+        }
+
+        @Override
+        public double getP99LatencyMs() {
+            return engine().getLatency().getPercentile(99) / 1e6;
+        }
+
+        @Override
+        public double getP999LatencyMs() {
+            return engine().getLatency().getPercentile(99.9) / 1e6;
+        }
+
+        @Override
+        public double getMaxLatencyMs() {
+            return engine().getLatency().getMax() / 1e6;
+        }
+
+        @Override
+        public String getSlowestQuery() {
+            SearchMetrics metrics = metrics();
+            String slowest = metrics.describeSlowest(metrics.getEngine(mode));
+            return slowest != null ? slowest : "";
+        }
+
+        @Override
+        public void reset() {
+            engine().reset();
+        }
+    }
+}
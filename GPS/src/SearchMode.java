@@ -0,0 +1,19 @@
+/**
+ * Motores de búsqueda disponibles detrás de {@link AStar#findRoute(String, String, String)}.
+ */
+public enum SearchMode {
+    ASTAR("A* (búsqueda unidireccional)"),
+    BIDIRECTIONAL("A* bidireccional (desde el origen y desde el destino a la vez)"),
+    CONTRACTION_HIERARCHIES("Contraction Hierarchies (requiere preprocesado)"),
+    DELTA_STEPPING("Delta-stepping en paralelo (mapas muy grandes; en los pequeños, A*)");
+    
+    private final String description;
+    
+    SearchMode(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Memoria de trabajo reutilizable para las búsquedas sobre un grafo:
+ * costes g, padres y conjunto cerrado en arrays primitivos indexados por ciudad.
+ * Un contador de generación evita reinicializar los arrays entre búsquedas,
+ * de modo que preparar una búsqueda nueva cuesta O(1).
+ * También cuenta el trabajo hecho (ciudades expandidas, aristas examinadas y
+ * operaciones del montículo) para las métricas de búsqueda.
+ */
+public class SearchWorkspace {
+    private final double[] g;
+    private final int[] parent;
+    private final int[] visited; // Generación en la que se asignó g[i]
+    private final int[] closed;  // Generación en la que se cerró el nodo i
+    private final IndexedMinHeap openSet;
+    private int generation;
+    private long expandedNodes; // Ciudades cerradas desde clearCounters()
+    private long relaxedEdges;  // Aristas examinadas desde clearCounters()
+
+    /**
+     * Constructor para la clase SearchWorkspace
+     *
+     * @param numCities Número de ciudades del grafo
+     */
+    public SearchWorkspace(int numCities) {
+        this.g = new double[numCities];
+        this.parent = new int[numCities];
+        this.visited = new int[numCities];
+        this.closed = new int[numCities];
+        this.openSet = new IndexedMinHeap(numCities);
+    }
+
+    /**
+     * Preparar el espacio de trabajo para una nueva búsqueda
+     */
+    public void reset() {
+        openSet.clear();
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    public int capacity() {
+        return g.length;
+    }
+
+    public IndexedMinHeap getOpenSet() {
+        return openSet;
+    }
+
+    /**
+     * @param city Índice de la ciudad
+     * @return El coste conocido desde el origen, o infinito si no se ha alcanzado
+     */
+    public double getG(int city) {
+        return visited[city] == generation ? g[city] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param city Índice de la ciudad
+     * @return El padre de la ciudad en el árbol de búsqueda, o -1
+     */
+    public int getParent(int city) {
+        return visited[city] == generation ? parent[city] : -1;
+    }
+
+    /**
+     * Registrar un nuevo mejor camino hasta una ciudad
+     *
+     * @param city Índice de la ciudad
+     * @param cost Coste desde el origen
+     * @param parentCity Ciudad anterior en el camino, o -1 para el origen
+     */
+    public void update(int city, double cost, int parentCity) {
+        g[city] = cost;
+        parent[city] = parentCity;
+        visited[city] = generation;
+    }
+
+    public boolean isClosed(int city) {
+        return closed[city] == generation;
+    }
+
+    public void close(int city) {
+        closed[city] = generation;
+        expandedNodes++;
+    }
+
+    /**
+     * Contar las aristas examinadas al expandir una ciudad
+     *
+     * @param edges Número de aristas
+     */
+    public void countRelaxedEdges(int edges) {
+        relaxedEdges += edges;
+    }
+
+    /**
+     * Contar ciudades expandidas por un motor que no las cierra en este espacio
+     * de trabajo (por ejemplo {@link DeltaStepping})
+     *
+     * @param cities Número de ciudades
+     */
+    public void countExpandedNodes(int cities) {
+        expandedNodes += cities;
+    }
+
+    /**
+     * @return Ciudades expandidas (cerradas) desde la última llamada a clearCounters()
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * @return Aristas examinadas desde la última llamada a clearCounters()
+     */
+    public long getRelaxedEdges() {
+        return relaxedEdges;
+    }
+
+    /**
+     * Poner a cero los contadores de trabajo, también los del montículo. No
+     * hace falta para buscar: solo para medir una búsqueda concreta.
+     */
+    public void clearCounters() {
+        expandedNodes = 0;
+        relaxedEdges = 0;
+        openSet.clearCounters();
+    }
+
+    /**
+     * Reconstruir el camino desde el origen siguiendo los padres
+     *
+     * @param goal Ciudad final del camino
+     * @return Los índices de las ciudades desde el origen hasta la meta
+     */
+    public int[] extractPath(int goal) {
+        int length = 0;
+        for (int city = goal; city != -1; city = getParent(city)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int city = goal; city != -1; city = getParent(city)) {
+            path[--length] = city;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Rutas con varias paradas obligatorias en el orden que minimiza el costo total.
+ * Primero se calcula la tabla de costos entre paradas con una búsqueda de uno a
+ * muchos por parada (en paralelo), guardando también el camino de cada tramo.
+ * Después se resuelve el orden: de forma exacta con la programación dinámica de
+ * Held–Karp para pocas paradas, o con inserción más cercana y mejora 2-opt para
+ * muchas. La ruta final se obtiene uniendo los caminos de los tramos elegidos.
+ */
+public class WaypointRouter {
+    // Número máximo de paradas para el algoritmo exacto (2^13 × 13 estados)
+    private static final int EXACT_MAX_STOPS = 13;
+
+    private final Graph graph;
+    private final WorkspacePool<SearchWorkspace> workspaces;
+
+    /**
+     * Constructor para la clase WaypointRouter
+     * 
+     * @param graph El grafo de carreteras
+     */
+    public WaypointRouter(Graph graph) {
+        this(graph, WorkspacePool.forCities(graph.getNumCities()));
+    }
+
+    /**
+     * Constructor con los espacios de trabajo por hilo de un buscador, que se
+     * liberan con él (ver AStar.close)
+     * 
+     * @param graph El grafo de carreteras
+     * @param workspaces Espacios de trabajo por hilo para el grafo
+     */
+    WaypointRouter(Graph graph, WorkspacePool<SearchWorkspace> workspaces) {
+        this.graph = graph;
+        this.workspaces = workspaces;
+    }
+
+    /**
+     * Encontrar la ruta más corta desde el origen hasta el destino pasando por
+     * todas las paradas en cualquier orden
+     * 
+     * @param start Índice de la ciudad de origen
+     * @param goal Índice de la ciudad de destino
+     * @param stops Índices de las paradas obligatorias (se ignoran repetidas y las iguales a origen o destino)
+     * @return La ruta completa, o null si no existe ninguna ruta que pase por todas las paradas
+     */
+    public Route findRoute(int start, int goal, int[] stops) {
+        int[] waypoints = waypoints(start, goal, stops);
+        int k = waypoints.length - 2; // Número de paradas intermedias
+
+        double[][] cost = new double[k + 2][k + 2];
+        int[][][] legs = new int[k + 2][k + 2][];
+        computeLegs(waypoints, cost, legs);
+
+        int[] order = k <= EXACT_MAX_STOPS ? solveExact(cost, k) : solveHeuristic(cost, k);
+        if (order == null) {
+            return null;
+        }
+
+        // Unir los caminos de los tramos (sin repetir la ciudad de unión)
+        IntList path = new IntList();
+        path.add(start);
+        double total = 0;
+        for (int i = 0; i + 1 < order.length; i++) {
+            int[] leg = legs[order[i]][order[i + 1]];
+            for (int j = 1; j < leg.length; j++) {
+                path.add(leg[j]);
+            }
+            total += cost[order[i]][order[i + 1]];
+        }
+        return new Route(path.toArray(), total);
+    }
+
+    /**
+     * Construir la lista [origen, paradas..., destino] sin paradas repetidas
+     */
+    private static int[] waypoints(int start, int goal, int[] stops) {
+        IntList list = new IntList(stops.length + 2);
+        list.add(start);
+        for (int stop : stops) {
+            boolean repeated = stop == start || stop == goal;
+            for (int i = 1; i < list.size() && !repeated; i++) {
+                repeated = list.get(i) == stop;
+            }
+            if (!repeated) {
+                list.add(stop);
+            }
+        }
+        list.add(goal);
+        return list.toArray();
+    }
+
+    /**
+     * Calcular el costo y el camino de cada tramo con una búsqueda de uno a muchos
+     * desde el origen y cada parada (no hacen falta búsquedas desde el destino)
+     */
+    private void computeLegs(int[] waypoints, double[][] cost, int[][][] legs) {
+        int n = graph.getNumCities();
+        int last = waypoints.length - 1;
+        boolean[] isTarget = new boolean[n];
+        for (int i = 1; i <= last; i++) {
+            isTarget[waypoints[i]] = true;
+        }
+        for (double[] row : cost) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+
+        ForkJoinPool.commonPool().submit(() -> IntStream.range(0, last).parallel().forEach(from -> {
+            SearchWorkspace ws = workspaces.get();
+            DistanceTable.oneToMany(graph, waypoints[from], isTarget, last, ws);
+            for (int to = 1; to <= last; to++) {
+                if (to != from && ws.isClosed(waypoints[to])) {
+                    cost[from][to] = ws.getG(waypoints[to]);
+                    legs[from][to] = ws.extractPath(waypoints[to]);
+                }
+            }
+        })).join();
+    }
+
+    /**
+     * Orden óptimo con Held–Karp: best[mask][j] es el costo mínimo de salir del origen,
+     * visitar exactamente las paradas de mask y terminar en la parada j
+     * 
+     * @return El orden de visita como posiciones en la tabla (0 = origen, k + 1 = destino), o null
+     */
+    private static int[] solveExact(double[][] cost, int k) {
+        int goal = k + 1;
+        if (k == 0) {
+            return cost[0][goal] == Double.POSITIVE_INFINITY ? null : new int[] { 0, goal };
+        }
+        int full = (1 << k) - 1;
+        double[] best = new double[(full + 1) * k];
+        int[] previous = new int[(full + 1) * k];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < k; j++) {
+            best[(1 << j) * k + j] = cost[0][j + 1];
+            previous[(1 << j) * k + j] = -1;
+        }
+        for (int mask = 1; mask <= full; mask++) {
+            for (int j = 0; j < k; j++) {
+                double current = best[mask * k + j];
+                if ((mask & (1 << j)) == 0 || current == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int next = 0; next < k; next++) {
+                    if ((mask & (1 << next)) != 0) {
+                        continue;
+                    }
+                    int nextMask = mask | (1 << next);
+                    double candidate = current + cost[j + 1][next + 1];
+                    if (candidate < best[nextMask * k + next]) {
+                        best[nextMask * k + next] = candidate;
+                        previous[nextMask * k + next] = j;
+                    }
+                }
+            }
+        }
+
+        int lastStop = -1;
+        double total = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            double candidate = best[full * k + j] + cost[j + 1][goal];
+            if (candidate < total) {
+                total = candidate;
+                lastStop = j;
+            }
+        }
+        if (lastStop == -1) {
+            return null;
+        }
+
+        int[] order = new int[k + 2];
+        order[k + 1] = goal;
+        int mask = full;
+        for (int position = k, j = lastStop; position >= 1; position--) {
+            order[position] = j + 1;
+            int prior = previous[mask * k + j];
+            mask &= ~(1 << j);
+            j = prior;
+        }
+        order[0] = 0;
+        return order;
+    }
+
+    /**
+     * Orden aproximado para muchas paradas: inserción más cercana seguida de 2-opt.
+     * Los costos de cada tramo pueden ser asimétricos, así que cada inversión de
+     * 2-opt se evalúa recalculando el costo del segmento invertido.
+     * 
+     * @return El orden de visita como posiciones en la tabla, o null
+     */
+    private static int[] solveHeuristic(double[][] cost, int k) {
+        int goal = k + 1;
+        IntList tour = new IntList(k + 2);
+        tour.add(0);
+        tour.add(goal);
+        boolean[] inserted = new boolean[k + 2];
+
+        for (int step = 0; step < k; step++) {
+            // Parada más cercana a cualquier ciudad del recorrido actual
+            int nearest = -1;
+            double nearestCost = Double.POSITIVE_INFINITY;
+            for (int stop = 1; stop <= k; stop++) {
+                if (inserted[stop]) {
+                    continue;
+                }
+                for (int i = 0; i < tour.size(); i++) {
+                    double c = Math.min(cost[tour.get(i)][stop], cost[stop][tour.get(i)]);
+                    if (nearest == -1 || c < nearestCost) {
+                        nearest = stop;
+                        nearestCost = c;
+                    }
+                }
+            }
+            // Insertarla donde menos aumente el costo
+            int bestPosition = 1;
+            double bestIncrease = Double.POSITIVE_INFINITY;
+            for (int i = 0; i + 1 < tour.size(); i++) {
+                int a = tour.get(i);
+                int b = tour.get(i + 1);
+                double increase = cost[a][nearest] + cost[nearest][b] - cost[a][b];
+                if (Double.isNaN(increase)) {
+                    increase = Double.POSITIVE_INFINITY;
+                }
+                if (increase < bestIncrease || i == 0 && bestIncrease == Double.POSITIVE_INFINITY) {
+                    bestIncrease = increase;
+                    bestPosition = i + 1;
+                }
+            }
+            int[] current = tour.toArray();
+            tour.clear();
+            for (int i = 0; i < current.length; i++) {
+                if (i == bestPosition) {
+                    tour.add(nearest);
+                }
+                tour.add(current[i]);
+            }
+            inserted[nearest] = true;
+        }
+
+        int[] order = tour.toArray();
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < order.length - 2; i++) {
+                for (int j = i + 1; j < order.length - 1; j++) {
+                    double before = segmentCost(cost, order, i - 1, j + 1, false);
+                    double after = segmentCost(cost, order, i - 1, j + 1, true);
+                    if (after < before) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int tmp = order[a];
+                            order[a] = order[b];
+                            order[b] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        return segmentCost(cost, order, 0, order.length - 1, false) == Double.POSITIVE_INFINITY ? null : order;
+    }
+
+    /**
+     * Costo del tramo de order entre las posiciones from y to, opcionalmente con
+     * las posiciones interiores (from + 1 .. to - 1) invertidas
+     */
+    private static double segmentCost(double[][] cost, int[] order, int from, int to, boolean reversed) {
+        double total = 0;
+        int previous = order[from];
+        for (int p = from + 1; p <= to; p++) {
+            int position = reversed && p < to ? from + to - p : p;
+            total += cost[previous][order[position]];
+            previous = order[position];
+        }
+        return total;
+    }
+}
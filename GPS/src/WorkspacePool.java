@@ -0,0 +1,71 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Un espacio de trabajo de búsqueda por hilo, como un ThreadLocal, pero que se
+ * puede liberar de una vez. Con un ThreadLocal normal, los arrays de tamaño N
+ * que crea cada hilo de un pool siguen vivos mientras el hilo exista aunque el
+ * buscador ya no se use (por ejemplo tras cambiar de cartografía); close()
+ * los suelta en todos los hilos.
+ *
+ * @param <T> Tipo del espacio de trabajo (SearchWorkspace, o el de un motor
+ *            con su propia memoria, como DeltaStepping)
+ */
+final class WorkspacePool<T> {
+    private final Supplier<T> factory;
+    // Cada hilo guarda su espacio en un array de un elemento que también está en holders
+    private final ThreadLocal<Object[]> local;
+    private final Queue<Object[]> holders = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * @param factory Crea el espacio de trabajo de un hilo la primera vez que lo pide
+     */
+    WorkspacePool(Supplier<T> factory) {
+        this.factory = factory;
+        this.local = ThreadLocal.withInitial(() -> {
+            Object[] holder = new Object[1];
+            holders.add(holder);
+            return holder;
+        });
+    }
+
+    /**
+     * @param numCities Número de ciudades del grafo
+     * @return Un pool de espacios de trabajo de búsqueda para un grafo de ese tamaño
+     */
+    static WorkspacePool<SearchWorkspace> forCities(int numCities) {
+        return new WorkspacePool<>(() -> new SearchWorkspace(numCities));
+    }
+
+    /**
+     * @return El espacio de trabajo del hilo actual, creándolo la primera vez
+     * @throws IllegalStateException Si el pool ya se ha cerrado
+     */
+    @SuppressWarnings("unchecked")
+    T get() {
+        Object[] holder = local.get();
+        T ws = (T) holder[0];
+        if (ws == null) {
+            if (closed) {
+                throw new IllegalStateException("El buscador ya se ha cerrado");
+            }
+            ws = factory.get();
+            holder[0] = ws;
+        }
+        return ws;
+    }
+
+    /**
+     * Soltar los espacios de trabajo de todos los hilos. Solo se debe llamar
+     * cuando ningún hilo está buscando ni va a volver a buscar con este pool.
+     */
+    void close() {
+        closed = true;
+        Object[] holder;
+        while ((holder = holders.poll()) != null) {
+            holder[0] = null;
+        }
+    }
+}
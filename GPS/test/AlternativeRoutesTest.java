@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rutas alternativas: con el algoritmo de Yen, las k rutas sin ciclos más cortas
+ * (comparadas con una enumeración exhaustiva en mapas pequeños); con el método de
+ * penalización, la primera es la óptima de Dijkstra y las demás no son más cortas
+ */
+class AlternativeRoutesTest {
+    @Test
+    void yenMatchesExhaustiveSearch() {
+        Random random = new Random(11);
+        for (int t = 0; t < 200; t++) {
+            Graph graph = smallGraph(random, 5 + random.nextInt(5), random.nextBoolean());
+            AStar aStar = new AStar(graph);
+            int n = graph.getNumCities();
+            int start = random.nextInt(n);
+            int goal = random.nextInt(n);
+            if (start == goal) {
+                continue;
+            }
+            List<Double> expected = new ArrayList<>();
+            boolean[] visited = new boolean[n];
+            visited[start] = true;
+            enumerate(graph, start, goal, visited, 0, expected);
+            Collections.sort(expected);
+
+            int k = 1 + random.nextInt(6);
+            List<Route> routes = aStar.findAlternativePaths(start, goal, k, 1.0);
+            assertEquals(Math.min(k, expected.size()), routes.size());
+            Set<List<Integer>> distinct = new HashSet<>();
+            for (int i = 0; i < routes.size(); i++) {
+                Route route = routes.get(i);
+                assertLoopless(graph, start, goal, route);
+                assertEquals(expected.get(i), route.getCost(), TestMaps.tolerance(route.getCost()));
+                assertTrue(distinct.add(cities(route)), "ruta repetida");
+            }
+        }
+    }
+
+    @Test
+    void penaltyStartsWithOptimalRoute() {
+        Graph graph = TestMaps.roads(5_000, false, 4);
+        AStar aStar = new AStar(graph);
+        int n = graph.getNumCities();
+        Random random = new Random(4);
+        for (int q = 0; q < 20; q++) {
+            int start = random.nextInt(n);
+            int goal = random.nextInt(n);
+            double[] expected = TestMaps.dijkstra(graph, start);
+            List<Route> routes = aStar.findAlternativePaths(start, goal, 3, 0.7);
+            assertTrue(!routes.isEmpty() && routes.size() <= 3);
+            TestMaps.assertOptimal(graph, start, goal, expected[goal], routes.get(0));
+            for (int i = 0; i < routes.size(); i++) {
+                assertLoopless(graph, start, goal, routes.get(i));
+                if (i > 0) {
+                    assertTrue(routes.get(i).getCost() >= routes.get(i - 1).getCost(), "rutas desordenadas");
+                }
+            }
+        }
+    }
+
+    private static void assertLoopless(Graph graph, int start, int goal, Route route) {
+        assertEquals(start, route.getCity(0));
+        assertEquals(goal, route.getCity(route.length() - 1));
+        assertEquals(route.length(), new HashSet<>(cities(route)).size(), "la ruta tiene un ciclo");
+        assertEquals(TestMaps.walk(graph, route), route.getCost(), TestMaps.tolerance(route.getCost()));
+    }
+
+    private static List<Integer> cities(Route route) {
+        List<Integer> cities = new ArrayList<>();
+        for (int i = 0; i < route.length(); i++) {
+            cities.add(route.getCity(i));
+        }
+        return cities;
+    }
+
+    /**
+     * Costos de todos los caminos sin ciclos entre dos ciudades
+     */
+    private static void enumerate(Graph graph, int city, int goal, boolean[] visited, double cost, List<Double> costs) {
+        if (city == goal) {
+            costs.add(cost);
+            return;
+        }
+        for (int e = graph.edgeStart(city); e < graph.edgeEnd(city); e++) {
+            int next = graph.getTarget(e);
+            if (!visited[next]) {
+                visited[next] = true;
+                enumerate(graph, next, goal, visited, cost + graph.getWeight(e), costs);
+                visited[next] = false;
+            }
+        }
+    }
+
+    /**
+     * Mapa pequeño con distancias enteras de 1 a 5, para que haya empates
+     */
+    private static Graph smallGraph(Random random, int n, boolean directed) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            names.add("C" + i);
+        }
+        Graph.Builder builder = new Graph.Builder(n);
+        for (int u = 0; u < n; u++) {
+            for (int v = directed ? 0 : u + 1; v < n; v++) {
+                if (u != v && random.nextInt(3) == 0) {
+                    double distance = 1 + random.nextInt(5);
+                    builder.addEdge(u, v, distance);
+                    if (!directed) {
+                        builder.addEdge(v, u, distance);
+                    }
+                }
+            }
+        }
+        return builder.build(names);
+    }
+}
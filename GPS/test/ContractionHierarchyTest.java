@@ -0,0 +1,51 @@
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las consultas sobre Contraction Hierarchies deben dar el mismo costo que Dijkstra
+ */
+class ContractionHierarchyTest {
+    @Test
+    void undirectedMatchesDijkstra() {
+        check(TestMaps.roads(3_000, false, 1));
+    }
+
+    @Test
+    void directedMatchesDijkstra() {
+        check(TestMaps.roads(3_000, true, 2));
+    }
+
+    @Test
+    void recontractMatchesDijkstraOnNewWeights() {
+        Graph graph = TestMaps.roads(3_000, true, 3);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        double[] weights = graph.copyWeights();
+        Random random = new Random(3);
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] *= 0.5 + random.nextDouble() * 2;
+        }
+        Graph changed = graph.withWeights(weights);
+        check(changed, hierarchy.recontract(changed));
+    }
+
+    private static void check(Graph graph) {
+        check(graph, ContractionHierarchy.build(graph));
+    }
+
+    private static void check(Graph graph, ContractionHierarchy hierarchy) {
+        int n = graph.getNumCities();
+        SearchWorkspace forward = new SearchWorkspace(n);
+        SearchWorkspace backward = new SearchWorkspace(n);
+        Random random = new Random(n);
+        for (int q = 0; q < 20; q++) {
+            int start = random.nextInt(n);
+            double[] expected = TestMaps.dijkstra(graph, start);
+            for (int i = 0; i < 10; i++) {
+                int goal = random.nextInt(n);
+                TestMaps.assertOptimal(graph, start, goal, expected[goal],
+                    hierarchy.findPath(start, goal, forward, backward));
+            }
+        }
+    }
+}
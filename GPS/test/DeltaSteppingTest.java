@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Delta-stepping en paralelo debe dar las mismas distancias y rutas que Dijkstra,
+ * también con carreteras cortadas y distancias muy dispares
+ */
+class DeltaSteppingTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void undirectedMatchesDijkstra() {
+        check(TestMaps.roads(20_000, false, 5));
+    }
+
+    @Test
+    void directedMatchesDijkstra() {
+        check(TestMaps.roads(20_000, true, 6));
+    }
+
+    @Test
+    void closedRoadsAndOutliersMatchDijkstra() {
+        Graph graph = TestMaps.roads(20_000, false, 7);
+        double[] weights = graph.copyWeights();
+        Random random = new Random(7);
+        for (int e = 0; e < weights.length; e++) {
+            int draw = random.nextInt(100);
+            if (draw < 5) {
+                weights[e] = RoadUpdates.CLOSED;
+            } else if (draw < 7) {
+                weights[e] *= 1_000;
+            }
+        }
+        check(graph.withWeights(weights));
+    }
+
+    private static void check(Graph graph) {
+        int n = graph.getNumCities();
+        DeltaStepping deltaStepping = new DeltaStepping(graph);
+        SearchWorkspace ws = new SearchWorkspace(n);
+        double[] distances = new double[n];
+        Random random = new Random(n);
+        try {
+            for (int q = 0; q < 5; q++) {
+                int start = random.nextInt(n);
+                double[] expected = TestMaps.dijkstra(graph, start);
+                deltaStepping.computeDistances(start, pool, ws, distances);
+                for (int city = 0; city < n; city++) {
+                    assertEquals(expected[city], distances[city], TestMaps.tolerance(expected[city]));
+                }
+                for (int i = 0; i < 20; i++) {
+                    int goal = random.nextInt(n);
+                    TestMaps.assertOptimal(graph, start, goal, expected[goal],
+                        deltaStepping.findPath(start, goal, pool, ws));
+                }
+            }
+        } finally {
+            deltaStepping.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Una instantánea binaria debe cargar el mismo mapa que se guardó: mismas
+ * ciudades y carreteras, y las mismas rutas con cada motor de búsqueda
+ */
+class MapSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsMapAndRoutes() throws IOException {
+        Graph graph = TestMaps.roads(5_000, true, 8);
+        Landmarks landmarks = Landmarks.compute(graph, 8);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        String file = dir.resolve("mapa.snap").toString();
+        MapSnapshot.write(file, graph, landmarks, hierarchy);
+
+        MapSnapshot snapshot = MapSnapshot.load(file);
+        Graph loaded = snapshot.getGraph();
+        assertNotNull(snapshot.getLandmarks());
+        assertNotNull(snapshot.getContractionHierarchy());
+        assertEquals(graph.fingerprint(), loaded.fingerprint());
+        assertEquals(graph.getNumCities(), loaded.getNumCities());
+        assertEquals(graph.getNumEdges(), loaded.getNumEdges());
+        for (int city = 0; city < graph.getNumCities(); city++) {
+            String name = graph.getCityName(city);
+            assertEquals(name, loaded.getCityName(city));
+            assertEquals(city, loaded.findCity(name.toUpperCase(Locale.ROOT)));
+            assertEquals(graph.edgeStart(city), loaded.edgeStart(city));
+        }
+        for (int e = 0; e < graph.getNumEdges(); e++) {
+            assertEquals(graph.getTarget(e), loaded.getTarget(e));
+            assertEquals(graph.getWeight(e), loaded.getWeight(e));
+        }
+        assertEquals(-1, loaded.findCity("Ciudad inexistente"));
+
+        Random random = new Random(8);
+        int n = graph.getNumCities();
+        for (SearchMode mode : SearchMode.values()) {
+            AStar original = searcher(graph, landmarks, hierarchy, mode);
+            AStar mapped = searcher(loaded, snapshot.getLandmarks(), snapshot.getContractionHierarchy(), mode);
+            for (int q = 0; q < 10; q++) {
+                int start = random.nextInt(n);
+                double[] expected = TestMaps.dijkstra(graph, start);
+                for (int i = 0; i < 5; i++) {
+                    int goal = random.nextInt(n);
+                    Route route = mapped.findPath(start, goal);
+                    TestMaps.assertOptimal(graph, start, goal, expected[goal], route);
+                    // Con los mismos datos, el mismo motor elige el mismo camino entre los empatados
+                    Route before = original.findPath(start, goal);
+                    if (route != null) {
+                        assertArrayEquals(before.getCities(), route.getCities(), mode.toString());
+                    }
+                }
+            }
+            original.close();
+            mapped.close();
+        }
+    }
+
+    private static AStar searcher(Graph graph, Landmarks landmarks, ContractionHierarchy hierarchy, SearchMode mode) {
+        AStar aStar = new AStar(graph);
+        aStar.setLandmarks(landmarks);
+        aStar.setContractionHierarchy(hierarchy);
+        aStar.setSearchMode(mode);
+        return aStar;
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tras aplicar un lote de cambios de carreteras, cada motor (con sus landmarks,
+ * su jerarquía recontraída y la caché conservada) debe dar el mismo costo que
+ * Dijkstra sobre el grafo actualizado
+ */
+class RoadUpdatesTest {
+    @Test
+    void increasesAndClosuresMatchDijkstra() {
+        check(false, false);
+        check(true, false);
+    }
+
+    @Test
+    void decreasesMatchDijkstra() {
+        check(false, true);
+        check(true, true);
+    }
+
+    private static void check(boolean directed, boolean decreases) {
+        Graph graph = TestMaps.roads(5_000, directed, 9);
+        int n = graph.getNumCities();
+        RoutingContext context = new RoutingContext("prueba", graph, Landmarks.compute(graph, 8),
+            ContractionHierarchy.build(graph), SearchMode.ASTAR, null, 1_000);
+        Random random = new Random(directed ? 10 : 9);
+        int[][] queries = new int[100][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new int[] { random.nextInt(n), random.nextInt(n) };
+            context.getAStar().findPath(queries[i][0], queries[i][1]); // Llenar la caché
+        }
+
+        for (int round = 0; round < 3; round++) {
+            RoadUpdates updates = randomUpdates(context.getGraph(), random, decreases);
+            RoutingContext next = context.withRoadUpdates(updates);
+            context.release();
+            context = next;
+
+            Graph updated = context.getGraph();
+            RoutingContext bidirectional = context.withSearchMode(SearchMode.BIDIRECTIONAL, context.getContractionHierarchy());
+            RoutingContext hierarchy = context.withSearchMode(SearchMode.CONTRACTION_HIERARCHIES,
+                context.getContractionHierarchy());
+            for (int[] query : queries) {
+                double[] expected = TestMaps.dijkstra(updated, query[0]);
+                for (RoutingContext c : new RoutingContext[] { context, bidirectional, hierarchy }) {
+                    TestMaps.assertOptimal(updated, query[0], query[1], expected[query[1]],
+                        c.getAStar().findPath(query[0], query[1]));
+                }
+            }
+            bidirectional.release();
+            hierarchy.release();
+        }
+        context.release();
+    }
+
+    /**
+     * Cambiar 200 carreteras al azar: alargarlas o cortarlas, o acortarlas y reabrirlas
+     */
+    private static RoadUpdates randomUpdates(Graph graph, Random random, boolean decreases) {
+        RoadUpdates updates = new RoadUpdates();
+        int n = graph.getNumCities();
+        int changes = 0;
+        while (changes < 200) {
+            int from = random.nextInt(n);
+            if (graph.edgeStart(from) == graph.edgeEnd(from)) {
+                continue;
+            }
+            int e = graph.edgeStart(from) + random.nextInt(graph.edgeEnd(from) - graph.edgeStart(from));
+            int to = graph.getTarget(e);
+            double weight = graph.getWeight(e);
+            boolean oneWay = random.nextBoolean();
+            if (decreases) {
+                updates.set(from, to, weight == RoadUpdates.CLOSED ? 5 + random.nextDouble() * 10 : Math.max(0.1, weight / 2), oneWay);
+            } else if (random.nextInt(4) == 0) {
+                updates.close(from, to, oneWay);
+            } else {
+                updates.set(from, to, weight == RoadUpdates.CLOSED ? 100 : weight * (1 + random.nextDouble() * 3), oneWay);
+            }
+            changes++;
+        }
+        return updates;
+    }
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Utilidades comunes de las pruebas: mapas generados y la comprobación de una
+ * ruta contra las distancias de Dijkstra sin heurística ni preprocesado
+ */
+final class TestMaps {
+    private TestMaps() {
+    }
+
+    /**
+     * Generar una red de carreteras reproducible
+     */
+    static Graph roads(int numCities, boolean directed, long seed) {
+        return new MapGenerator(MapGenerator.Topology.ROAD_LIKE, numCities)
+            .setSeed(seed)
+            .setDirected(directed)
+            .generate();
+    }
+
+    /**
+     * Distancias de Dijkstra desde una ciudad a todas las demás
+     */
+    static double[] dijkstra(Graph graph, int source) {
+        double[] distances = new double[graph.getNumCities()];
+        AStar.computeDistances(graph, source, new SearchWorkspace(graph.getNumCities()), distances);
+        return distances;
+    }
+
+    /**
+     * Comprobar que la ruta existe si y solo si Dijkstra llega al destino, que va
+     * del origen al destino por carreteras del mapa y que su costo es el óptimo
+     */
+    static void assertOptimal(Graph graph, int start, int goal, double expected, Route route) {
+        String query = graph.getCityName(start) + " -> " + graph.getCityName(goal);
+        if (expected == Double.POSITIVE_INFINITY) {
+            assertNull(route, query);
+            return;
+        }
+        assertNotNull(route, query);
+        assertEquals(start, route.getCity(0), query);
+        assertEquals(goal, route.getCity(route.length() - 1), query);
+        assertEquals(expected, route.getCost(), tolerance(expected), query);
+        assertEquals(expected, walk(graph, route), tolerance(expected), query);
+    }
+
+    /**
+     * Recorrer la ruta sumando la carretera más corta entre cada par de ciudades
+     */
+    static double walk(Graph graph, Route route) {
+        double cost = 0;
+        for (int i = 1; i < route.length(); i++) {
+            double distance = graph.getDistance(route.getCity(i - 1), route.getCity(i));
+            assertTrue(distance >= 0, "la ruta usa una carretera que no existe");
+            cost += distance;
+        }
+        return cost;
+    }
+
+    static double tolerance(double cost) {
+        return 1e-9 * Math.max(1, cost);
+    }
+}